@@ -23,19 +23,33 @@
 package org.cubeengine.dirigent;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.context.ContextFingerprint;
 import org.cubeengine.dirigent.context.Contexts;
 import org.cubeengine.dirigent.formatter.ConstantFormatter;
 import org.cubeengine.dirigent.formatter.Formatter;
 import org.cubeengine.dirigent.formatter.PostProcessor;
+import org.cubeengine.dirigent.formatter.PostProcessors;
+import org.cubeengine.dirigent.formatter.SelectFormatter;
 import org.cubeengine.dirigent.formatter.StringFormatter;
 import org.cubeengine.dirigent.context.Arguments;
 import org.cubeengine.dirigent.parser.MacroResolutionResult;
 import org.cubeengine.dirigent.parser.MacroResolutionState;
+import org.cubeengine.dirigent.parser.CharSequenceText;
 import org.cubeengine.dirigent.parser.Parser;
+import org.cubeengine.dirigent.parser.Text;
 import org.cubeengine.dirigent.parser.component.Component;
 import org.cubeengine.dirigent.parser.component.ComponentGroup;
 import org.cubeengine.dirigent.parser.component.ResolvedMacro;
@@ -45,6 +59,7 @@ import org.cubeengine.dirigent.parser.element.Element;
 import org.cubeengine.dirigent.parser.element.Indexed;
 import org.cubeengine.dirigent.parser.element.Macro;
 import org.cubeengine.dirigent.parser.element.NamedMacro;
+import org.cubeengine.dirigent.parser.element.PropertyPathMacro;
 
 /**
  * Basic implementation of Dirigent providing:
@@ -53,6 +68,14 @@ import org.cubeengine.dirigent.parser.element.NamedMacro;
  */
 public abstract class AbstractDirigent<MessageT> implements Dirigent<MessageT>
 {
+    /**
+     * The {@link Inputs} carrier used by the fixed-arity compose methods, null while it is in use.
+     */
+    private static final ThreadLocal<Inputs> INPUTS = new ThreadLocal<Inputs>();
+
+    private static final PostProcessor[] NO_POST_PROCESSORS = new PostProcessor[0];
+    private static final int COMPILED_CAPACITY = 256;
+
     /**
      * The registered formatter.
      */
@@ -61,12 +84,52 @@ public abstract class AbstractDirigent<MessageT> implements Dirigent<MessageT>
      * The attached post processors.
      */
     private List<PostProcessor> postProcessors = new ArrayList<PostProcessor>();
+    /**
+     * The post processors applying to literal texts.
+     */
+    private PostProcessor[] textPostProcessors = NO_POST_PROCESSORS;
+    /**
+     * The number of leading pure text post processors, which are applied when a message is compiled.
+     */
+    private int pureTextPostProcessors = 0;
+    /**
+     * Whether all post processors are pure.
+     */
+    private boolean purePostProcessors = true;
+    /**
+     * The post processors applying to macros without a name.
+     */
+    private PostProcessor[] unnamedMacroPostProcessors = NO_POST_PROCESSORS;
+    /**
+     * The post processors applying to the macros of a name, computed on first use.
+     */
+    private final ConcurrentMap<String, PostProcessor[]> macroPostProcessors = new ConcurrentHashMap<String,
+        PostProcessor[]>();
+    /**
+     * The source messages with literal texts processed by the pure text post processors.
+     */
+    private final ConcurrentMap<String, List<Element>> compiledSources = new ConcurrentHashMap<String, List<Element>>();
+    /**
+     * The catalog templates with literal texts processed by the pure text post processors.
+     */
+    private final ConcurrentMap<String, CompiledTemplate> compiledTemplates = new ConcurrentHashMap<String,
+        CompiledTemplate>();
 
     /**
      * The default formatter.
      */
     private Formatter<Object> defaultFormatter;
 
+    /**
+     * The catalog of the message source, might be null.
+     */
+    private volatile MessageCatalog messageCatalog;
+
+    /**
+     * The cache of pure compositions, might be null.
+     */
+    private volatile ResultCache<MessageT> resultCache;
+
     /**
      * Constructor. Uses the {@link StringFormatter} as the default formatter.
      */
@@ -94,172 +157,1224 @@ public abstract class AbstractDirigent<MessageT> implements Dirigent<MessageT>
     @Override
     public MessageT compose(Context context, String source, Object... inputs)
     {
-        List<Element> elements = Parser.parse(source);
-        ComponentGroup message = resolve(elements, context, inputs);
-        return compose(message, context);
+        if (resultCache == null)
+        {
+            return compose(compile(source), context, inputs);
+        }
+        return composeCached(source, null, context, Inputs.of(inputs));
     }
 
     /**
-     * Composes the parsed {@link ComponentGroup} into the final form.
+     * Composes the message of the given key from the {@link MessageSource} of this instance. The message is compiled
+     * once by the {@link MessageCatalog}, which inlines the messages it references.
      *
-     * @param componentGroup A component group holding the entire message components.
      * @param context The compose context.
+     * @param key The key of the message.
+     * @param inputs The message parameters.
      *
      * @return the composed message.
+     *
+     * @throws IllegalStateException if no message source was set.
      */
-    protected abstract MessageT compose(ComponentGroup componentGroup, Context context);
+    public MessageT composeMessage(Context context, String key, Object... inputs)
+    {
+        if (resultCache == null)
+        {
+            return compose(compileTemplate(key), context, inputs);
+        }
+        List<Element> template = template(key);
+        return composeCached(template, compileTemplate(key, template), context, Inputs.of(inputs));
+    }
 
-    @Override
-    public MacroResolutionResult findFormatter(String name, Object input)
+    /**
+     * Parses and resolves a message without composing it, so sub classes can compose it into other targets.
+     *
+     * @param context The compose context.
+     * @param source The source message.
+     * @param inputs The message parameters.
+     *
+     * @return the resolved components.
+     */
+    protected final ComponentGroup resolve(Context context, String source, Object... inputs)
     {
-        if (name == null && defaultFormatter != null)
+        return resolve(compile(source), context, Inputs.of(inputs));
+    }
+
+    /**
+     * Resolves the message of the given key from the {@link MessageSource} without composing it, so sub classes can
+     * compose it into other targets.
+     *
+     * @param context The compose context.
+     * @param key The key of the message.
+     * @param inputs The message parameters.
+     *
+     * @return the resolved components.
+     */
+    protected final ComponentGroup resolveMessage(Context context, String key, Object... inputs)
+    {
+        return resolve(compileTemplate(key), context, Inputs.of(inputs));
+    }
+
+    private List<Element> template(String key)
+    {
+        final MessageCatalog catalog = messageCatalog;
+        if (catalog == null)
         {
-            return new MacroResolutionResult(MacroResolutionState.OK, defaultFormatter);
+            throw new IllegalStateException("No message source was set!");
         }
+        return catalog.getTemplate(key);
+    }
 
-        List<Formatter<?>> list = this.formatters.get(name);
-        if (list == null)
+    /**
+     * Composes a message with a single input parameter without allocating an input array.
+     *
+     * @param context The compose context.
+     * @param source The source message.
+     * @param input The message parameter.
+     *
+     * @return the composed message.
+     */
+    public MessageT compose(Context context, String source, Object input)
+    {
+        Inputs inputs = acquireInputs();
+        try
         {
-            return MacroResolutionResult.UNKNOWN_NAME;
+            return composeInputs(context, source, inputs.add(input));
         }
-        for (Formatter<?> formatter : list)
+        finally
         {
-            if (formatter.isApplicable(input))
-            {
-                return new MacroResolutionResult(MacroResolutionState.OK, formatter);
-            }
+            releaseInputs(inputs);
         }
-        return MacroResolutionResult.NONE_APPLICABLE;
     }
 
-    @Override
-    public Dirigent<MessageT> addPostProcessor(PostProcessor postProcessor)
+    /**
+     * Composes a message with two input parameters without allocating an input array.
+     *
+     * @param context The compose context.
+     * @param source The source message.
+     * @param input1 The first message parameter.
+     * @param input2 The second message parameter.
+     *
+     * @return the composed message.
+     */
+    public MessageT compose(Context context, String source, Object input1, Object input2)
     {
-        postProcessors.add(postProcessor);
-        return this;
+        Inputs inputs = acquireInputs();
+        try
+        {
+            return composeInputs(context, source, inputs.add(input1).add(input2));
+        }
+        finally
+        {
+            releaseInputs(inputs);
+        }
     }
 
-    @Override
-    public Dirigent<MessageT> registerFormatter(Formatter<?> formatter)
+    /**
+     * Composes a message with three input parameters without allocating an input array.
+     *
+     * @param context The compose context.
+     * @param source The source message.
+     * @param input1 The first message parameter.
+     * @param input2 The second message parameter.
+     * @param input3 The third message parameter.
+     *
+     * @return the composed message.
+     */
+    public MessageT compose(Context context, String source, Object input1, Object input2, Object input3)
     {
-        for (String name : formatter.getNames())
+        Inputs inputs = acquireInputs();
+        try
         {
-            List<Formatter<?>> list = this.formatters.get(name);
-            if (list == null)
-            {
-                list = new ArrayList<Formatter<?>>();
-                formatters.put(name, list);
-            }
-            list.add(formatter);
+            return composeInputs(context, source, inputs.add(input1).add(input2).add(input3));
+        }
+        finally
+        {
+            releaseInputs(inputs);
         }
-        return this;
     }
 
     /**
-     * Iterates through the provided {@link Element}s and converts them to {@link Component}s. Therefore the method uses
-     * the registered {@link Formatter} and runs global {@link PostProcessor}s.
+     * Composes a message with the parameters of the given {@link Inputs} carrier. Primitive values are formatted
+     * without boxing if the formatter supports it. It isn't an overload of {@code compose}, so a null argument isn't
+     * ambiguous.
      *
-     * @param elements The parsed elements.
      * @param context The compose context.
-     * @param inputs The message input parameters.
+     * @param source The source message.
+     * @param inputs The message parameters.
      *
-     * @return A {@link ComponentGroup} holding all the {@link Component}s representing the input {@link Element}s.
+     * @return the composed message.
      */
-    @SuppressWarnings("unchecked")
-    private ComponentGroup resolve(List<Element> elements, Context context, Object[] inputs)
+    public MessageT composeInputs(Context context, String source, Inputs inputs)
     {
-        if (elements.isEmpty())
+        if (resultCache == null)
         {
-            return ComponentGroup.EMPTY;
+            return compose(resolve(compile(source), context, inputs), context);
         }
+        return composeCached(source, null, context, inputs);
+    }
 
-        List<Component> list = new ArrayList<Component>();
-        int implicitArgCounter = 0;
-
-        for (Element element : elements)
+    /**
+     * Composes a message using the {@link ResultCache}. Messages of pure compositions are cached.
+     *
+     * @param template The template of the cache key, the source string or the compiled template.
+     * @param elements The elements of the message, null to parse the source string on a cache miss.
+     * @param context The compose context.
+     * @param inputs The message parameters.
+     *
+     * @return the composed message.
+     */
+    private MessageT composeCached(Object template, List<Element> elements, Context context, Inputs inputs)
+    {
+        final ResultCache<MessageT> cache = resultCache;
+        final ResultCache.Key key = cache == null ? null : cache.key(template, context, inputs);
+        if (key != null)
         {
-            Component out;
-            Arguments arguments = Arguments.NONE;
-            if (element instanceof TextComponent)
+            final MessageT cached = cache.get(key);
+            if (cached != null)
             {
-                out = (Component)element;
+                return cached;
             }
-            else if (element instanceof Macro)
-            {
-                Macro macro = (Macro)element;
+        }
+        if (elements == null)
+        {
+            elements = compile((String)template);
+        }
+        final ComponentGroup resolved = resolve(elements, context, inputs);
+        final MessageT message = compose(resolved, context);
+        if (key != null && purePostProcessors && isPure(resolved))
+        {
+            cache.put(key, message);
+        }
+        return message;
+    }
 
-                int argIndex;
-                boolean explicitIndex;
-                if (macro instanceof Indexed)
-                {
-                    argIndex = ((Indexed)element).getIndex();
-                    explicitIndex = true;
-                }
-                else
+    /**
+     * Checks whether the given resolved component is a pure function of its inputs and the context fingerprint.
+     *
+     * @param component The component.
+     *
+     * @return whether the component is pure.
+     */
+    private static boolean isPure(Component component)
+    {
+        if (component instanceof ResolvedMacro)
+        {
+            return ((ResolvedMacro)component).getFormatter().isPure();
+        }
+        if (component instanceof ComponentGroup)
+        {
+            for (Component c : ((ComponentGroup)component).getComponents())
+            {
+                if (!isPure(c))
                 {
-                    argIndex = implicitArgCounter;
-                    explicitIndex = false;
+                    return false;
                 }
+            }
+            return true;
+        }
+        return component instanceof TextComponent || component instanceof UnresolvableMacro;
+    }
 
-                // Default macros will not have a name
-                String name = null;
-                if (macro instanceof NamedMacro)
-                {
-                    NamedMacro named = (NamedMacro)macro;
-                    name = named.getName();
-                    arguments = named.getArgs();
-                }
+    /**
+     * Clears the result cache after the configuration changed.
+     */
+    private void clearResultCache()
+    {
+        final ResultCache<MessageT> cache = resultCache;
+        if (cache != null)
+        {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Sets the cache of composed messages. Compositions which are pure functions of the template, the context
+     * fingerprint and immutable inputs are answered from the cache, see {@link ResultCache}. The cache is disabled by
+     * default.
+     *
+     * @param resultCache The cache or null to disable caching.
+     *
+     * @return fluent interface.
+     */
+    public AbstractDirigent<MessageT> setResultCache(ResultCache<MessageT> resultCache)
+    {
+        this.resultCache = resultCache;
+        return this;
+    }
 
-                // may be null because it might be a constant macro
-                Object input = argIndex < inputs.length ? inputs[argIndex] : null;
-                MacroResolutionResult res = this.findFormatter(name, input);
-                Formatter formatter = res.getFormatter();
-                boolean isConstant = formatter instanceof ConstantFormatter;
+    /**
+     * Returns the cache of composed messages.
+     *
+     * @return the cache, might be null.
+     */
+    public ResultCache<MessageT> getResultCache()
+    {
+        return resultCache;
+    }
 
-                if (res.isOK())
-                {
-                    out = new ResolvedMacro((Formatter<Object>)formatter, isConstant ? null : input, arguments);
-                }
-                else
-                {
-                    out = new UnresolvableMacro(macro, input, res.getState());
-                }
+    /**
+     * Parses the given source message and inlines the messages it references if a message source is set.
+     *
+     * @param source The source message.
+     *
+     * @return the elements of the message.
+     */
+    private List<Element> parse(String source)
+    {
+        final MessageCatalog catalog = messageCatalog;
+        if (catalog == null)
+        {
+            return Parser.parse(source);
+        }
+        return catalog.compile(source);
+    }
 
-                if (!explicitIndex && !isConstant)
-                {
-                    implicitArgCounter++;
-                }
+    /**
+     * Parses the given source message like {@link #parse(String)} and applies the leading pure post processors to its
+     * literal texts. Without a message source the result is cached.
+     *
+     * @param source The source message.
+     *
+     * @return the elements of the message.
+     */
+    private List<Element> compile(String source)
+    {
+        if (pureTextPostProcessors == 0)
+        {
+            return parse(source);
+        }
+        if (messageCatalog != null)
+        {
+            // the referenced messages may change
+            return processLiterals(parse(source));
+        }
+        List<Element> elements = compiledSources.get(source);
+        if (elements == null)
+        {
+            elements = processLiterals(parse(source));
+            if (compiledSources.size() >= COMPILED_CAPACITY)
+            {
+                compiledSources.clear();
+            }
+            compiledSources.put(source, elements);
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the template of the given key with the leading pure post processors applied to its literal texts.
+     *
+     * @param key The key of the message.
+     *
+     * @return the elements of the message.
+     */
+    private List<Element> compileTemplate(String key)
+    {
+        return compileTemplate(key, template(key));
+    }
+
+    private List<Element> compileTemplate(String key, List<Element> template)
+    {
+        if (pureTextPostProcessors == 0)
+        {
+            return template;
+        }
+        CompiledTemplate compiled = compiledTemplates.get(key);
+        if (compiled == null || compiled.template != template)
+        {
+            compiled = new CompiledTemplate(template, processLiterals(template));
+            if (compiledTemplates.size() >= COMPILED_CAPACITY)
+            {
+                compiledTemplates.clear();
+            }
+            compiledTemplates.put(key, compiled);
+        }
+        return compiled.elements;
+    }
+
+    /**
+     * Applies the leading pure text post processors to the literal texts of the given elements.
+     *
+     * @param elements The elements.
+     *
+     * @return the processed elements.
+     */
+    private List<Element> processLiterals(List<Element> elements)
+    {
+        final int applied = pureTextPostProcessors;
+        final List<Element> processed = new ArrayList<Element>(elements.size());
+        for (Element element : elements)
+        {
+            if (element instanceof TextComponent)
+            {
+                Component out = applyTextPostProcessors((Component)element, Contexts.EMPTY, 0, applied);
+                processed.add(new ProcessedLiteral(out, applied));
             }
             else
             {
-                throw new IllegalStateException(
-                    "The message contains Tokens that are not Text or Macro: " + element.getClass().getName());
+                processed.add(element);
             }
+        }
+        return Collections.unmodifiableList(processed);
+    }
 
-            list.add(applyPostProcessors(out, context, arguments));
+    /**
+     * Returns the {@link Inputs} carrier of the current thread. If it is already in use by an outer compose call a new
+     * carrier is created.
+     *
+     * @return the carrier.
+     */
+    private Inputs acquireInputs()
+    {
+        Inputs inputs = INPUTS.get();
+        if (inputs == null)
+        {
+            return new Inputs(3);
         }
+        INPUTS.set(null);
+        return inputs;
+    }
 
-        return new ComponentGroup(list);
+    /**
+     * Clears the given {@link Inputs} carrier and keeps it for the next compose call of the current thread.
+     *
+     * @param inputs the carrier.
+     */
+    private void releaseInputs(Inputs inputs)
+    {
+        INPUTS.set(inputs.clear());
     }
 
     /**
-     * Executes all attached {@link PostProcessor}s to process the specified {@link Component}.
+     * Creates a message which is composed on first use. The inputs are captured by reference.
      *
-     * @param in The component to process.
      * @param context The compose context.
-     * @param args The macro arguments.
+     * @param source The source message.
+     * @param inputs The message parameters.
      *
-     * @return The processed component.
+     * @return the deferred message.
      */
-    private Component applyPostProcessors(Component in, Context context, Arguments args)
+    public LazyMessage<MessageT> defer(Context context, String source, Object... inputs)
     {
-        Component out = in;
+        return new LazyMessage<MessageT>(this, context, source, inputs);
+    }
 
-        for (final PostProcessor postProcessor : postProcessors)
-        {
-            out = postProcessor.process(out, context, args);
-        }
+    /**
+     * Creates a message which is built on first use. In contrast to {@link #defer(Context, String, Object...)} the
+     * inputs are formatted immediately, so later changes of mutable inputs don't affect the message.
+     *
+     * @param context The compose context.
+     * @param source The source message.
+     * @param inputs The message parameters.
+     *
+     * @return the deferred message.
+     */
+    public LazyMessage<MessageT> deferSnapshot(Context context, String source, Object... inputs)
+    {
+        ComponentGroup resolved = resolve(parse(source), context, Inputs.of(inputs));
+        return new LazyMessage<MessageT>(this, context, (ComponentGroup)format(resolved, context));
+    }
 
+    /**
+     * Composes the same message for many recipients. The contexts are grouped by their
+     * {@link org.cubeengine.dirigent.context.ContextFingerprint} and the message is only composed once per group, so
+     * sending a message to thousands of recipients only costs as many compositions as there are distinct locales,
+     * time zones and currencies.
+     *
+     * Every group is composed with the first of its contexts and all contexts of the group get the same message
+     * instance. This is only correct if the registered formatters and post processors depend on the context solely
+     * through {@link Contexts#LOCALE}, {@link Contexts#TIMEZONE} and {@link Contexts#CURRENCY}, like the shipped ones.
+     * Messages using other context properties, e.g. the name of the recipient, have to be composed per context with
+     * {@link #compose(Context, String, Object...)}.
+     *
+     * @param contexts The compose contexts of the recipients.
+     * @param source The source message.
+     * @param inputs The message parameters.
+     *
+     * @return the composed messages mapped by the identity of the given contexts.
+     */
+    public Map<Context, MessageT> composeAll(Collection<? extends Context> contexts, String source, Object... inputs)
+    {
+        List<Element> elements = parse(source);
+        Map<ContextFingerprint, MessageT> composed = new HashMap<ContextFingerprint, MessageT>();
+        Map<Context, MessageT> messages = new IdentityHashMap<Context, MessageT>(contexts.size());
+        for (Context context : contexts)
+        {
+            ContextFingerprint fingerprint = ContextFingerprint.of(context);
+            MessageT message = composed.get(fingerprint);
+            if (message == null)
+            {
+                message = compose(elements, context, inputs);
+                composed.put(fingerprint, message);
+            }
+            messages.put(context, message);
+        }
+        return messages;
+    }
+
+    /**
+     * Composes the same source message with many rows of inputs, for example to render a report. The source is parsed
+     * only once and the rows are composed in chunks by the given {@link Executor}. The messages are passed to the sink
+     * in the order of the input rows and on the calling thread. The registered formatters and post processors are
+     * shared by all threads, so they must not be changed while the batch is running.
+     *
+     * @param context The compose context.
+     * @param source The source message.
+     * @param inputs The rows of message parameters.
+     * @param executor The executor to compose the rows with or {@code null} to compose on the calling thread.
+     * @param sink The sink receiving the composed messages.
+     */
+    public void composeBatch(Context context, String source, Iterable<Object[]> inputs, Executor executor,
+                             MessageSink<? super MessageT> sink)
+    {
+        List<Element> elements = parse(source);
+        if (executor == null)
+        {
+            for (Object[] row : inputs)
+            {
+                sink.accept(compose(elements, context, row));
+            }
+        }
+        else
+        {
+            new BatchComposition<MessageT>(this, context, elements, executor).run(inputs, sink);
+        }
+    }
+
+    /**
+     * Composes a message from already parsed elements.
+     *
+     * @param elements The parsed elements.
+     * @param context The compose context.
+     * @param inputs The message input parameters.
+     *
+     * @return the composed message.
+     */
+    MessageT compose(List<Element> elements, Context context, Object[] inputs)
+    {
+        return compose(resolve(elements, context, Inputs.of(inputs)), context);
+    }
+
+    /**
+     * Composes the parsed {@link ComponentGroup} into the final form.
+     *
+     * @param componentGroup A component group holding the entire message components.
+     * @param context The compose context.
+     *
+     * @return the composed message.
+     */
+    protected abstract MessageT compose(ComponentGroup componentGroup, Context context);
+
+    @Override
+    public MacroResolutionResult findFormatter(String name, Object input)
+    {
+        if (name == null && defaultFormatter != null)
+        {
+            return new MacroResolutionResult(MacroResolutionState.OK, defaultFormatter);
+        }
+
+        List<Formatter<?>> list = this.formatters.get(name);
+        if (list == null)
+        {
+            return MacroResolutionResult.UNKNOWN_NAME;
+        }
+        for (Formatter<?> formatter : list)
+        {
+            if (formatter.isApplicable(input))
+            {
+                return new MacroResolutionResult(MacroResolutionState.OK, formatter);
+            }
+        }
+        return MacroResolutionResult.NONE_APPLICABLE;
+    }
+
+    /**
+     * Sets the {@link MessageSource} resolving {@code {msg:key}} references and the keys of
+     * {@link #composeMessage(Context, String, Object...)}. The compiled messages are kept by a new
+     * {@link MessageCatalog}.
+     *
+     * @param messageSource the message source or null to remove it.
+     *
+     * @return fluent interface
+     */
+    public AbstractDirigent<MessageT> setMessageSource(MessageSource messageSource)
+    {
+        this.messageCatalog = messageSource == null ? null : createMessageCatalog(messageSource);
+        return this;
+    }
+
+    /**
+     * Creates the {@link MessageCatalog} of a message source. Sub classes can override it to configure the catalog.
+     *
+     * @param messageSource The message source.
+     *
+     * @return the catalog.
+     */
+    protected MessageCatalog createMessageCatalog(MessageSource messageSource)
+    {
+        return new MessageCatalog(messageSource);
+    }
+
+    /**
+     * Returns the {@link MessageCatalog} of the message source of this instance.
+     *
+     * @return the catalog or null if no message source was set.
+     */
+    public MessageCatalog getMessageCatalog()
+    {
+        return messageCatalog;
+    }
+
+    @Override
+    public Dirigent<MessageT> addPostProcessor(PostProcessor postProcessor)
+    {
+        postProcessors.add(postProcessor);
+
+        List<PostProcessor> text = new ArrayList<PostProcessor>();
+        List<PostProcessor> unnamed = new ArrayList<PostProcessor>();
+        boolean pure = true;
+        int pureText = -1;
+        for (PostProcessor processor : postProcessors)
+        {
+            if (PostProcessors.appliesToLiterals(processor))
+            {
+                if (pureText < 0 && !PostProcessors.isPure(processor))
+                {
+                    pureText = text.size();
+                }
+                text.add(processor);
+            }
+            if (PostProcessors.appliesToMacro(processor, null))
+            {
+                unnamed.add(processor);
+            }
+            pure &= PostProcessors.isPure(processor);
+        }
+        textPostProcessors = text.toArray(new PostProcessor[text.size()]);
+        pureTextPostProcessors = pureText < 0 ? text.size() : pureText;
+        unnamedMacroPostProcessors = unnamed.toArray(new PostProcessor[unnamed.size()]);
+        purePostProcessors = pure;
+        macroPostProcessors.clear();
+        compiledSources.clear();
+        compiledTemplates.clear();
+        clearResultCache();
+        return this;
+    }
+
+    @Override
+    public Dirigent<MessageT> registerFormatter(Formatter<?> formatter)
+    {
+        for (String name : formatter.getNames())
+        {
+            List<Formatter<?>> list = this.formatters.get(name);
+            if (list == null)
+            {
+                list = new ArrayList<Formatter<?>>();
+                formatters.put(name, list);
+            }
+            list.add(formatter);
+        }
+        clearResultCache();
+        return this;
+    }
+
+    /**
+     * Iterates through the provided {@link Element}s and converts them to {@link Component}s. Therefore the method uses
+     * the registered {@link Formatter} and runs global {@link PostProcessor}s.
+     *
+     * @param elements The parsed elements.
+     * @param context The compose context.
+     * @param inputs The message input parameters.
+     *
+     * @return A {@link ComponentGroup} holding all the {@link Component}s representing the input {@link Element}s.
+     */
+    private ComponentGroup resolve(List<Element> elements, Context context, Inputs inputs)
+    {
+        if (elements.isEmpty())
+        {
+            return ComponentGroup.EMPTY;
+        }
+
+        List<Component> list = new ArrayList<Component>();
+        int implicitArgCounter = 0;
+
+        for (Element element : elements)
+        {
+            Component out;
+            if (element instanceof ProcessedLiteral)
+            {
+                ProcessedLiteral literal = (ProcessedLiteral)element;
+                out = applyTextPostProcessors(literal.component, context, literal.applied, textPostProcessors.length);
+            }
+            else if (element instanceof TextComponent)
+            {
+                out = applyTextPostProcessors((Component)element, context, 0, textPostProcessors.length);
+            }
+            else if (element instanceof Macro)
+            {
+                Macro macro = (Macro)element;
+                boolean explicitIndex = macro instanceof Indexed;
+                int argIndex = explicitIndex ? ((Indexed)macro).getIndex() : implicitArgCounter;
+
+                if (inputs.isPrimitive(argIndex) && pathOf(macro) == null)
+                {
+                    out = resolvePrimitiveMacro(macro, inputs, argIndex);
+                }
+                else
+                {
+                    // may be null because it might be a constant macro
+                    out = resolveMacro(macro, inputs.get(argIndex));
+                }
+
+                if (!explicitIndex && !isConstant(out))
+                {
+                    implicitArgCounter++;
+                }
+                out = expand(out, macro, context, inputs);
+            }
+            else
+            {
+                throw unknownElement(element);
+            }
+
+            list.add(out);
+        }
+
+        return new ComponentGroup(list);
+    }
+
+    /**
+     * Expands a resolved select macro to its chosen part, which is resolved against the same message inputs, and runs
+     * the global {@link PostProcessor}s.
+     *
+     * @param out The resolved macro.
+     * @param macro The macro.
+     * @param context The compose context.
+     * @param inputs The message input parameters.
+     *
+     * @return The expanded component.
+     */
+    private Component expand(Component out, Macro macro, Context context, Inputs inputs)
+    {
+        Arguments arguments = argumentsOf(macro);
+        if (out instanceof ResolvedMacro && ((ResolvedMacro)out).getFormatter() instanceof SelectFormatter)
+        {
+            final ResolvedMacro select = (ResolvedMacro)out;
+            final Formatter<?> formatter = select.getFormatter();
+            out = resolve(((SelectFormatter)formatter).select(select.getInput(), arguments), context, inputs);
+        }
+        return applyPostProcessors(out, context, arguments, nameOf(macro));
+    }
+
+    /**
+     * Resolves the macro of a {@link BoundMessage.Slot} and runs the global {@link PostProcessor}s. Select macros are
+     * expanded against all message inputs.
+     *
+     * @param slot The slot.
+     * @param context The compose context.
+     * @param inputs The message input parameters.
+     *
+     * @return The resolved component.
+     */
+    Component resolve(BoundMessage.Slot slot, Context context, Object[] inputs)
+    {
+        Object input = slot.index < inputs.length ? inputs[slot.index] : null;
+        if (slot.dependencies == null)
+        {
+            return resolve(slot.macro, context, input);
+        }
+        return expand(resolveMacro(slot.macro, input), slot.macro, context, Inputs.of(inputs));
+    }
+
+    /**
+     * Resolves a single {@link Macro} with the given input and runs the global {@link PostProcessor}s.
+     *
+     * @param macro The macro.
+     * @param context The compose context.
+     * @param input The message input parameter of the macro.
+     *
+     * @return The resolved component.
+     */
+    Component resolve(Macro macro, Context context, Object input)
+    {
+        return applyPostProcessors(resolveMacro(macro, input), context, argumentsOf(macro), nameOf(macro));
+    }
+
+    /**
+     * Converts the given {@link Macro} to a {@link ResolvedMacro} or an {@link UnresolvableMacro} using the
+     * registered {@link Formatter}s.
+     *
+     * @param macro The macro.
+     * @param input The message input parameter of the macro.
+     *
+     * @return The resolved component.
+     */
+    @SuppressWarnings("unchecked")
+    private Component resolveMacro(Macro macro, Object input)
+    {
+        String path = pathOf(macro);
+        if (path != null)
+        {
+            input = PropertyPath.of(path).get(input);
+            if (input == PropertyPath.UNKNOWN_PROPERTY)
+            {
+                return new UnresolvableMacro(macro, null, MacroResolutionState.UNKNOWN_PROPERTY);
+            }
+        }
+        MacroResolutionResult res = this.findFormatter(nameOf(macro), input);
+        if (res.isOK())
+        {
+            Formatter<?> formatter = res.getFormatter();
+            boolean isConstant = formatter instanceof ConstantFormatter;
+            return new ResolvedMacro((Formatter<Object>)formatter, isConstant ? null : input, argumentsOf(macro));
+        }
+        return new UnresolvableMacro(macro, input, res.getState());
+    }
+
+    /**
+     * Converts the given {@link Macro} referring to a primitive input to a {@link ResolvedMacro} or an
+     * {@link UnresolvableMacro}. The formatter is determined with a boxed probe of the same type, so the actual value
+     * is only boxed if the formatter doesn't support primitive values.
+     *
+     * @param macro The macro.
+     * @param inputs The message input parameters.
+     * @param index The index of the input.
+     *
+     * @return The resolved component.
+     */
+    @SuppressWarnings("unchecked")
+    private Component resolvePrimitiveMacro(Macro macro, Inputs inputs, int index)
+    {
+        MacroResolutionResult res = this.findFormatter(nameOf(macro), inputs.probe(index));
+        if (res.isOK())
+        {
+            Formatter<?> formatter = res.getFormatter();
+            if (formatter instanceof ConstantFormatter)
+            {
+                return new ResolvedMacro((Formatter<Object>)formatter, null, argumentsOf(macro));
+            }
+            return inputs.resolve(index, (Formatter<Object>)formatter, argumentsOf(macro));
+        }
+        return new UnresolvableMacro(macro, inputs.get(index), res.getState());
+    }
+
+    /**
+     * Creates a partially evaluated message. See {@link #bind(Context, String, Object...)}.
+     *
+     * @param context The compose context.
+     * @param source The source message.
+     * @param inputs The bound message input parameters.
+     *
+     * @return the bound message.
+     */
+    /**
+     * Partially evaluates a message. The given inputs are bound now and their macros are formatted once, while
+     * macros referring to an input index beyond the given inputs or to {@link BoundMessage#UNBOUND} stay open and
+     * are filled by {@link BoundMessage#compose(Object...)}.
+     *
+     * @param context The compose context.
+     * @param source The source message.
+     * @param inputs The message input parameters to bind.
+     *
+     * @return the bound message.
+     */
+    public BoundMessage<MessageT> bind(Context context, String source, Object... inputs)
+    {
+        List<Element> elements = parse(source);
+        List<Component> parts = new ArrayList<Component>(elements.size());
+        int implicitArgCounter = 0;
+
+        for (Element element : elements)
+        {
+            if (element instanceof TextComponent)
+            {
+                parts.add(format(applyTextPostProcessors((Component)element, context, 0, textPostProcessors.length), context));
+            }
+            else if (element instanceof Macro)
+            {
+                Macro macro = (Macro)element;
+                boolean explicitIndex = macro instanceof Indexed;
+                int argIndex = explicitIndex ? ((Indexed)macro).getIndex() : implicitArgCounter;
+
+                int[] dependencies = dependenciesOf(macro, argIndex);
+                boolean open = isUnbound(inputs, argIndex);
+                if (dependencies != null)
+                {
+                    for (int dependency : dependencies)
+                    {
+                        open |= isUnbound(inputs, dependency);
+                    }
+                }
+
+                boolean isConstant;
+                if (open)
+                {
+                    Component out = resolveMacro(macro, null);
+                    isConstant = isConstant(out);
+                    if (isConstant)
+                    {
+                        parts.add(format(applyPostProcessors(out, context, argumentsOf(macro), nameOf(macro)), context));
+                    }
+                    else
+                    {
+                        parts.add(new BoundMessage.Slot(macro, argIndex, dependencies));
+                    }
+                }
+                else
+                {
+                    Component out = resolveMacro(macro, inputs[argIndex]);
+                    isConstant = isConstant(out);
+                    parts.add(format(expand(out, macro, context, Inputs.of(inputs)), context));
+                }
+
+                if (!explicitIndex && !isConstant)
+                {
+                    implicitArgCounter++;
+                }
+            }
+            else
+            {
+                throw unknownElement(element);
+            }
+        }
+
+        return new BoundMessage<MessageT>(this, context, parts, inputs);
+    }
+
+    private static boolean isUnbound(Object[] inputs, int index)
+    {
+        return index >= inputs.length || inputs[index] == BoundMessage.UNBOUND;
+    }
+
+    /**
+     * Collects the inputs a select macro depends on: its own input and the inputs of the macros within all of its
+     * parts, as the chosen part is resolved against the same message inputs.
+     *
+     * @param macro The macro.
+     * @param index The input index of the macro.
+     *
+     * @return the sorted input indices or null if the macro isn't a select macro.
+     */
+    private int[] dependenciesOf(Macro macro, int index)
+    {
+        if (!isSelect(macro))
+        {
+            return null;
+        }
+        Set<Integer> dependencies = new TreeSet<Integer>();
+        dependencies.add(index);
+        collectDependencies(argumentsOf(macro), dependencies);
+
+        int[] result = new int[dependencies.size()];
+        int i = 0;
+        for (Integer dependency : dependencies)
+        {
+            result[i++] = dependency;
+        }
+        return result;
+    }
+
+    private void collectDependencies(Arguments arguments, Set<Integer> dependencies)
+    {
+        for (String part : arguments.getParameters().values())
+        {
+            int implicitArgCounter = 0;
+            for (Element element : Parser.parse(part))
+            {
+                if (element instanceof Macro)
+                {
+                    Macro macro = (Macro)element;
+                    boolean explicitIndex = macro instanceof Indexed;
+                    int argIndex = explicitIndex ? ((Indexed)macro).getIndex() : implicitArgCounter;
+                    if (!isConstant(resolveMacro(macro, null)))
+                    {
+                        dependencies.add(argIndex);
+                        if (!explicitIndex)
+                        {
+                            implicitArgCounter++;
+                        }
+                    }
+                    if (isSelect(macro))
+                    {
+                        collectDependencies(argumentsOf(macro), dependencies);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a {@link SelectFormatter} is registered for the name of the given macro.
+     *
+     * @param macro The macro.
+     *
+     * @return whether the macro may be a select macro.
+     */
+    private boolean isSelect(Macro macro)
+    {
+        List<Formatter<?>> list = formatters.get(nameOf(macro));
+        if (list != null)
+        {
+            for (Formatter<?> formatter : list)
+            {
+                if (formatter instanceof SelectFormatter)
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a message for incremental composition. See {@link #live(Context, String, Object...)}.
+     *
+     * @param context The compose context.
+     * @param source The source message.
+     * @param inputs The initial message input parameters.
+     *
+     * @return the live message.
+     */
+    /**
+     * Creates a message which is composed repeatedly with changing inputs. The inputs are updated with
+     * {@link LiveMessage#update(int, Object)} and {@link LiveMessage#compose()} only formats the macros of the changed
+     * inputs.
+     *
+     * @param context The compose context.
+     * @param source The source message.
+     * @param inputs The initial message input parameters.
+     *
+     * @return the live message.
+     */
+    public LiveMessage<MessageT> live(Context context, String source, Object... inputs)
+    {
+        List<Element> elements = parse(source);
+        List<Component> parts = new ArrayList<Component>(elements.size());
+        int implicitArgCounter = 0;
+        int inputCount = inputs.length;
+
+        for (Element element : elements)
+        {
+            if (element instanceof TextComponent)
+            {
+                parts.add(format(applyTextPostProcessors((Component)element, context, 0, textPostProcessors.length), context));
+            }
+            else if (element instanceof Macro)
+            {
+                Macro macro = (Macro)element;
+                boolean explicitIndex = macro instanceof Indexed;
+                int argIndex = explicitIndex ? ((Indexed)macro).getIndex() : implicitArgCounter;
+
+                Component out = resolveMacro(macro, null);
+                boolean isConstant = isConstant(out);
+                if (isConstant)
+                {
+                    parts.add(format(applyPostProcessors(out, context, argumentsOf(macro), nameOf(macro)), context));
+                }
+                else
+                {
+                    int[] dependencies = dependenciesOf(macro, argIndex);
+                    parts.add(new BoundMessage.Slot(macro, argIndex, dependencies));
+                    inputCount = Math.max(inputCount, argIndex + 1);
+                    if (dependencies != null)
+                    {
+                        inputCount = Math.max(inputCount, dependencies[dependencies.length - 1] + 1);
+                    }
+                }
+
+                if (!explicitIndex && !isConstant)
+                {
+                    implicitArgCounter++;
+                }
+            }
+            else
+            {
+                throw unknownElement(element);
+            }
+        }
+
+        return new LiveMessage<MessageT>(this, context, parts, Arrays.copyOf(inputs, inputCount));
+    }
+
+    /**
+     * Resolves and formats the macro of a {@link BoundMessage.Slot}.
+     *
+     * @param slot The slot.
+     * @param context The compose context.
+     * @param inputs The message input parameters.
+     *
+     * @return the formatted component.
+     */
+    Component formatSlot(BoundMessage.Slot slot, Context context, Object[] inputs)
+    {
+        return format(resolve(slot, context, inputs), context);
+    }
+
+    private static IllegalStateException unknownElement(Element element)
+    {
+        return new IllegalStateException(
+            "The message contains Tokens that are not Text or Macro: " + element.getClass().getName());
+    }
+
+    private static boolean isConstant(Component component)
+    {
+        if (component instanceof ResolvedMacro)
+        {
+            Formatter<?> formatter = ((ResolvedMacro)component).getFormatter();
+            return formatter instanceof ConstantFormatter;
+        }
+        return false;
+    }
+
+    private static String nameOf(Macro macro)
+    {
+        // Default macros will not have a name
+        if (macro instanceof NamedMacro)
+        {
+            return ((NamedMacro)macro).getName();
+        }
+        return null;
+    }
+
+    private static String pathOf(Macro macro)
+    {
+        if (macro instanceof PropertyPathMacro)
+        {
+            return ((PropertyPathMacro)macro).getPath();
+        }
+        if (macro instanceof NamedMacro)
+        {
+            return ((NamedMacro)macro).getArgs().get(Parser.PATH_PARAM);
+        }
+        return null;
+    }
+
+    private static Arguments argumentsOf(Macro macro)
+    {
+        if (macro instanceof NamedMacro)
+        {
+            return ((NamedMacro)macro).getArgs();
+        }
+        return Arguments.NONE;
+    }
+
+    /**
+     * Formats all {@link ResolvedMacro}s within the given component, so the result doesn't depend on the message
+     * inputs anymore.
+     *
+     * @param component The component to format.
+     * @param context The compose context.
+     *
+     * @return The formatted component.
+     */
+    private Component format(Component component, Context context)
+    {
+        if (component instanceof ResolvedMacro)
+        {
+            ResolvedMacro macro = (ResolvedMacro)component;
+            return format(macro.process(context), context);
+        }
+        if (component instanceof ComponentGroup)
+        {
+            List<Component> components = ((ComponentGroup)component).getComponents();
+            List<Component> formatted = new ArrayList<Component>(components.size());
+            for (Component c : components)
+            {
+                formatted.add(format(c, context));
+            }
+            return new ComponentGroup(formatted);
+        }
+        if (component instanceof CharSequenceText)
+        {
+            // the text may be backed by a mutable input
+            return new Text(((CharSequenceText)component).getText());
+        }
+        return component;
+    }
+
+    /**
+     * Executes the attached {@link PostProcessor}s applying to literal texts.
+     *
+     * @param in The text to process.
+     * @param context The compose context.
+     * @param from The index of the first post processor to run.
+     * @param to The index after the last post processor to run.
+     *
+     * @return The processed component.
+     */
+    private Component applyTextPostProcessors(Component in, Context context, int from, int to)
+    {
+        final PostProcessor[] processors = textPostProcessors;
+        Component out = in;
+        for (int i = from; i < to; i++)
+        {
+            if (PostProcessors.appliesTo(processors[i], out))
+            {
+                out = processors[i].process(out, context, Arguments.NONE);
+            }
+        }
         return out;
     }
+
+    /**
+     * Executes the attached {@link PostProcessor}s applying to the macros of the given name.
+     *
+     * @param in The component to process.
+     * @param context The compose context.
+     * @param args The macro arguments.
+     * @param name The name of the macro, null for macros without a name.
+     *
+     * @return The processed component.
+     */
+    private Component applyPostProcessors(Component in, Context context, Arguments args, String name)
+    {
+        PostProcessor[] processors;
+        if (name == null)
+        {
+            processors = unnamedMacroPostProcessors;
+        }
+        else
+        {
+            processors = macroPostProcessors.get(name);
+            if (processors == null)
+            {
+                List<PostProcessor> list = new ArrayList<PostProcessor>();
+                for (PostProcessor processor : postProcessors)
+                {
+                    if (PostProcessors.appliesToMacro(processor, name))
+                    {
+                        list.add(processor);
+                    }
+                }
+                processors = list.toArray(new PostProcessor[list.size()]);
+                macroPostProcessors.put(name, processors);
+            }
+        }
+
+        Component out = in;
+        for (final PostProcessor postProcessor : processors)
+        {
+            if (PostProcessors.appliesTo(postProcessor, out))
+            {
+                out = postProcessor.process(out, context, args);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * A catalog template and its elements with processed literal texts.
+     */
+    private static final class CompiledTemplate
+    {
+        private final List<Element> template;
+        private final List<Element> elements;
+
+        private CompiledTemplate(List<Element> template, List<Element> elements)
+        {
+            this.template = template;
+            this.elements = elements;
+        }
+    }
 }
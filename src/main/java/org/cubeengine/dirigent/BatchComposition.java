@@ -0,0 +1,164 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.element.Element;
+
+/**
+ * Composes a parsed message with many rows of inputs. The rows are split into chunks which are composed by an
+ * {@link Executor}. At most a fixed number of chunks are in flight, the finished chunks are handed to the
+ * {@link MessageSink} in the order of the input rows.
+ *
+ * @param <MessageT> the resulting message type
+ */
+final class BatchComposition<MessageT>
+{
+    /**
+     * The number of input rows composed by a single task.
+     */
+    static final int CHUNK_SIZE = 64;
+
+    private final AbstractDirigent<MessageT> dirigent;
+    private final Context context;
+    private final List<Element> elements;
+    private final Executor executor;
+    private final int window;
+
+    /**
+     * Constructor.
+     *
+     * @param dirigent the dirigent composing the messages
+     * @param context the compose context
+     * @param elements the parsed source message
+     * @param executor the executor running the tasks
+     */
+    BatchComposition(AbstractDirigent<MessageT> dirigent, Context context, List<Element> elements, Executor executor)
+    {
+        this.dirigent = dirigent;
+        this.context = context;
+        this.elements = elements;
+        this.executor = executor;
+        this.window = 4 * Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Composes a message for every row of inputs.
+     *
+     * @param inputs the rows of message input parameters
+     * @param sink the sink receiving the messages in input order
+     */
+    void run(Iterable<Object[]> inputs, MessageSink<? super MessageT> sink)
+    {
+        final ArrayDeque<FutureTask<List<MessageT>>> pending = new ArrayDeque<FutureTask<List<MessageT>>>(window);
+        try
+        {
+            List<Object[]> chunk = new ArrayList<Object[]>(CHUNK_SIZE);
+            for (Object[] row : inputs)
+            {
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE)
+                {
+                    pending.add(submit(chunk));
+                    chunk = new ArrayList<Object[]>(CHUNK_SIZE);
+                    if (pending.size() >= window)
+                    {
+                        drain(pending.poll(), sink);
+                    }
+                }
+            }
+            if (!chunk.isEmpty())
+            {
+                pending.add(submit(chunk));
+            }
+            while (!pending.isEmpty())
+            {
+                drain(pending.poll(), sink);
+            }
+        }
+        finally
+        {
+            for (FutureTask<List<MessageT>> task : pending)
+            {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private FutureTask<List<MessageT>> submit(final List<Object[]> chunk)
+    {
+        final FutureTask<List<MessageT>> task = new FutureTask<List<MessageT>>(new Callable<List<MessageT>>()
+        {
+            @Override
+            public List<MessageT> call() throws Exception
+            {
+                final List<MessageT> messages = new ArrayList<MessageT>(chunk.size());
+                for (Object[] row : chunk)
+                {
+                    messages.add(dirigent.compose(elements, context, row));
+                }
+                return messages;
+            }
+        });
+        executor.execute(task);
+        return task;
+    }
+
+    private void drain(FutureTask<List<MessageT>> task, MessageSink<? super MessageT> sink)
+    {
+        final List<MessageT> messages;
+        try
+        {
+            messages = task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for composed messages!", e);
+        }
+        catch (ExecutionException e)
+        {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        for (MessageT message : messages)
+        {
+            sink.accept(message);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
+import org.cubeengine.dirigent.parser.element.Macro;
+
+/**
+ * A partially evaluated message. The macros of the bound inputs are already formatted and adjacent texts are merged,
+ * so composing the message only resolves and formats the open slots.
+ * <p>
+ * The open slots are filled in ascending order of their input index: the first input given to
+ * {@link #compose(Object...)} is used for the lowest open index, the second one for the next open index and so on.
+ * Select macros depend on the inputs of the macros within their parts as well, the open ones among them are open
+ * inputs of the message.
+ *
+ * @param <MessageT> the resulting message type
+ */
+public final class BoundMessage<MessageT>
+{
+    /**
+     * Marks an input as open when binding a message.
+     */
+    public static final Object UNBOUND = new Object()
+    {
+        @Override
+        public String toString()
+        {
+            return "UNBOUND";
+        }
+    };
+
+    private final AbstractDirigent<MessageT> dirigent;
+    private final Context context;
+    private final Component[] parts;
+    /**
+     * The position within the compose inputs for each slot part, -1 for all other parts.
+     */
+    private final int[] positions;
+    private final int openInputCount;
+    /**
+     * The bound inputs and the open indices for select slots, null if there are none.
+     */
+    private final Object[] bound;
+    private final int[] openIndices;
+
+    /**
+     * Constructor.
+     *
+     * @param dirigent the dirigent composing the message
+     * @param context the compose context
+     * @param parts the formatted components and open {@link Slot}s
+     * @param inputs the bound message input parameters
+     */
+    BoundMessage(AbstractDirigent<MessageT> dirigent, Context context, List<Component> parts, Object[] inputs)
+    {
+        this.dirigent = dirigent;
+        this.context = context;
+
+        List<Component> merged = new ArrayList<Component>(parts.size());
+        TreeSet<Integer> openIndices = new TreeSet<Integer>();
+        boolean selects = false;
+        for (Component part : parts)
+        {
+            int last = merged.size() - 1;
+            if (last >= 0 && isPlainText(part) && isPlainText(merged.get(last)))
+            {
+                merged.set(last, Text.append((Text)merged.get(last), (Text)part));
+            }
+            else
+            {
+                merged.add(part);
+            }
+            if (part instanceof Slot)
+            {
+                Slot slot = (Slot)part;
+                if (slot.dependencies == null)
+                {
+                    openIndices.add(slot.index);
+                }
+                else
+                {
+                    selects = true;
+                    for (int dependency : slot.dependencies)
+                    {
+                        if (dependency >= inputs.length || inputs[dependency] == UNBOUND)
+                        {
+                            openIndices.add(dependency);
+                        }
+                    }
+                }
+            }
+        }
+
+        this.parts = merged.toArray(new Component[merged.size()]);
+        this.positions = new int[this.parts.length];
+        for (int i = 0; i < this.parts.length; i++)
+        {
+            Component part = this.parts[i];
+            this.positions[i] = part instanceof Slot ? openIndices.headSet(((Slot)part).index).size() : -1;
+        }
+        this.openInputCount = openIndices.size();
+
+        if (selects)
+        {
+            this.openIndices = new int[openIndices.size()];
+            int i = 0;
+            for (Integer index : openIndices)
+            {
+                this.openIndices[i++] = index;
+            }
+            int length = Math.max(inputs.length, openIndices.isEmpty() ? 0 : openIndices.last() + 1);
+            this.bound = Arrays.copyOf(inputs, length);
+        }
+        else
+        {
+            this.openIndices = null;
+            this.bound = null;
+        }
+    }
+
+    private static boolean isPlainText(Component component)
+    {
+        return component != null && component.getClass() == Text.class;
+    }
+
+    /**
+     * Returns the number of inputs expected by {@link #compose(Object...)}.
+     *
+     * @return the number of open inputs.
+     */
+    public int getOpenInputCount()
+    {
+        return openInputCount;
+    }
+
+    /**
+     * Composes the message by filling the open slots with the given inputs.
+     *
+     * @param inputs the inputs of the open slots in ascending order of their index.
+     *
+     * @return the composed message.
+     */
+    public MessageT compose(Object... inputs)
+    {
+        Object[] all = null;
+        if (bound != null)
+        {
+            // select slots are resolved against all inputs
+            all = bound.clone();
+            for (int position = 0; position < openIndices.length; position++)
+            {
+                all[openIndices[position]] = position < inputs.length ? inputs[position] : null;
+            }
+        }
+
+        List<Component> components = new ArrayList<Component>(parts.length);
+        for (int i = 0; i < parts.length; i++)
+        {
+            int position = positions[i];
+            if (position < 0)
+            {
+                components.add(parts[i]);
+            }
+            else if (all != null && ((Slot)parts[i]).dependencies != null)
+            {
+                components.add(dirigent.resolve((Slot)parts[i], context, all));
+            }
+            else
+            {
+                Object input = position < inputs.length ? inputs[position] : null;
+                components.add(dirigent.resolve(((Slot)parts[i]).macro, context, input));
+            }
+        }
+        return dirigent.compose(new ComponentGroup(components), context);
+    }
+
+    /**
+     * A macro which is resolved when the message is composed.
+     */
+    static final class Slot implements Component
+    {
+        final Macro macro;
+        final int index;
+        /**
+         * The sorted indices of all inputs a select macro depends on, null for other macros.
+         */
+        final int[] dependencies;
+
+        /**
+         * Constructor.
+         *
+         * @param macro the macro
+         * @param index the input index of the macro within the source message
+         * @param dependencies the indices of all inputs a select macro depends on, null for other macros
+         */
+        Slot(Macro macro, int index, int[] dependencies)
+        {
+            this.macro = macro;
+            this.index = index;
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Slot{" + "macro=" + macro + ", index=" + index + '}';
+        }
+    }
+}
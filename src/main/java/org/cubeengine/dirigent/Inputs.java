@@ -0,0 +1,279 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.util.Arrays;
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.formatter.Formatter;
+import org.cubeengine.dirigent.parser.component.ResolvedMacro;
+import org.cubeengine.dirigent.parser.component.ResolvedPrimitiveMacro;
+
+/**
+ * A reusable carrier of message input parameters. In contrast to an {@code Object[]} it stores {@code int},
+ * {@code long} and {@code double} values in primitive arrays, so formatters supporting primitive values, like the
+ * {@link org.cubeengine.dirigent.formatter.NumberFormatter}, format them without boxing.
+ * <p>
+ * The inputs are read while the message is composed only. Afterwards the carrier can be cleared and reused. It must
+ * not be used by several threads at the same time.
+ */
+public final class Inputs
+{
+    private static final byte OBJECT = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+
+    /**
+     * The boxed values used to find the formatter of a primitive input.
+     */
+    private static final Object[] PROBES = {null, 0, 0L, 0d};
+
+    private Object[] objects;
+    private long[] primitives;
+    private byte[] kinds;
+    private int size;
+
+    /**
+     * Constructor.
+     */
+    public Inputs()
+    {
+        this(8);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity The initial capacity.
+     */
+    public Inputs(int capacity)
+    {
+        this.objects = new Object[capacity];
+        this.primitives = new long[capacity];
+        this.kinds = new byte[capacity];
+    }
+
+    /**
+     * Constructor for a view of the given objects.
+     *
+     * @param objects The message input parameters.
+     */
+    private Inputs(Object[] objects)
+    {
+        this.objects = objects;
+        this.size = objects.length;
+    }
+
+    /**
+     * Creates a read only view of the given message input parameters.
+     *
+     * @param inputs The message input parameters.
+     *
+     * @return the view.
+     */
+    static Inputs of(Object[] inputs)
+    {
+        return new Inputs(inputs);
+    }
+
+    /**
+     * Adds an object.
+     *
+     * @param input The message input parameter.
+     *
+     * @return fluent interface.
+     */
+    public Inputs add(Object input)
+    {
+        int index = grow();
+        objects[index] = input;
+        kinds[index] = OBJECT;
+        return this;
+    }
+
+    /**
+     * Adds an {@code int} value.
+     *
+     * @param input The message input parameter.
+     *
+     * @return fluent interface.
+     */
+    public Inputs addInt(int input)
+    {
+        return addPrimitive(INT, input);
+    }
+
+    /**
+     * Adds a {@code long} value.
+     *
+     * @param input The message input parameter.
+     *
+     * @return fluent interface.
+     */
+    public Inputs addLong(long input)
+    {
+        return addPrimitive(LONG, input);
+    }
+
+    /**
+     * Adds a {@code double} value.
+     *
+     * @param input The message input parameter.
+     *
+     * @return fluent interface.
+     */
+    public Inputs addDouble(double input)
+    {
+        return addPrimitive(DOUBLE, Double.doubleToRawLongBits(input));
+    }
+
+    private Inputs addPrimitive(byte kind, long bits)
+    {
+        int index = grow();
+        objects[index] = null;
+        primitives[index] = bits;
+        kinds[index] = kind;
+        return this;
+    }
+
+    private int grow()
+    {
+        if (kinds == null)
+        {
+            throw new UnsupportedOperationException("The inputs are read only.");
+        }
+        if (size == kinds.length)
+        {
+            int capacity = Math.max(4, size * 2);
+            objects = Arrays.copyOf(objects, capacity);
+            primitives = Arrays.copyOf(primitives, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+        }
+        return size++;
+    }
+
+    /**
+     * Removes all inputs.
+     *
+     * @return fluent interface.
+     */
+    public Inputs clear()
+    {
+        if (kinds == null)
+        {
+            throw new UnsupportedOperationException("The inputs are read only.");
+        }
+        Arrays.fill(objects, 0, size, null);
+        size = 0;
+        return this;
+    }
+
+    /**
+     * Returns the number of inputs.
+     *
+     * @return the number of inputs.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the input at the given index. Primitive values are boxed.
+     *
+     * @param index The index.
+     *
+     * @return the input or null if the index is out of bounds.
+     */
+    public Object get(int index)
+    {
+        if (index >= size)
+        {
+            return null;
+        }
+        switch (kindOf(index))
+        {
+            case INT:
+                return (int)primitives[index];
+            case LONG:
+                return primitives[index];
+            case DOUBLE:
+                return Double.longBitsToDouble(primitives[index]);
+            default:
+                return objects[index];
+        }
+    }
+
+    /**
+     * Returns whether the input at the given index is stored as primitive value.
+     *
+     * @param index The index.
+     *
+     * @return whether it is a primitive value.
+     */
+    boolean isPrimitive(int index)
+    {
+        return index < size && kindOf(index) != OBJECT;
+    }
+
+    /**
+     * Returns a boxed value of the same type as the primitive input at the given index. It is used to find the
+     * formatter without boxing the actual value.
+     *
+     * @param index The index.
+     *
+     * @return the probe.
+     */
+    Object probe(int index)
+    {
+        return PROBES[kindOf(index)];
+    }
+
+    /**
+     * Creates the {@link ResolvedMacro} for the primitive input at the given index.
+     *
+     * @param index The index.
+     * @param formatter The formatter.
+     * @param arguments The macro arguments.
+     *
+     * @return the resolved macro.
+     */
+    ResolvedMacro resolve(int index, Formatter<Object> formatter, Arguments arguments)
+    {
+        switch (kindOf(index))
+        {
+            case INT:
+                return ResolvedPrimitiveMacro.ofInt(formatter, (int)primitives[index], arguments);
+            case LONG:
+                return ResolvedPrimitiveMacro.ofLong(formatter, primitives[index], arguments);
+            default:
+                return ResolvedPrimitiveMacro.ofDouble(formatter, Double.longBitsToDouble(primitives[index]),
+                                                       arguments);
+        }
+    }
+
+    private byte kindOf(int index)
+    {
+        return kinds == null ? OBJECT : kinds[index];
+    }
+}
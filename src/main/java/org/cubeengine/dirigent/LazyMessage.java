@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
+
+/**
+ * A message which is composed on first use. Creating it only captures the source, the context and the inputs, so
+ * messages which are never used, like filtered debug output, cost next to nothing. The message is composed at most
+ * once, even if it is used by several threads at the same time.
+ * <p>
+ * By default the inputs are captured by reference, so changes of mutable inputs until the first use show up in the
+ * message. A snapshot message formats the inputs immediately and only defers building the final message.
+ * <p>
+ * The {@link CharSequence} methods work on the string representation of the composed message, which is created once.
+ * The source, the inputs and the dirigent are released once the message is composed. They are held by final fields,
+ * so a message can be handed to other threads in any way.
+ *
+ * @param <MessageT> the resulting message type
+ */
+public final class LazyMessage<MessageT> implements CharSequence
+{
+    /**
+     * Represents a composed null message.
+     */
+    private static final Object NULL = new Object();
+
+    /**
+     * Either the {@link Pending} composition or the composed message. The reference is final, so the message can be
+     * passed to other threads without safe publication.
+     */
+    private final AtomicReference<Object> state;
+    private volatile String string;
+
+    /**
+     * Constructor for a message capturing the inputs by reference.
+     *
+     * @param dirigent the dirigent composing the message
+     * @param context the compose context
+     * @param source the source message
+     * @param inputs the message input parameters
+     */
+    LazyMessage(AbstractDirigent<MessageT> dirigent, Context context, String source, Object[] inputs)
+    {
+        this.state = new AtomicReference<Object>(new Pending<MessageT>(dirigent, context, source, inputs, null));
+    }
+
+    /**
+     * Constructor for a snapshot message.
+     *
+     * @param dirigent the dirigent composing the message
+     * @param context the compose context
+     * @param snapshot the already formatted components of the message
+     */
+    LazyMessage(AbstractDirigent<MessageT> dirigent, Context context, ComponentGroup snapshot)
+    {
+        this.state = new AtomicReference<Object>(new Pending<MessageT>(dirigent, context, null, null, snapshot));
+    }
+
+    /**
+     * Returns the composed message. It is composed on the first call.
+     *
+     * @return the composed message
+     */
+    @SuppressWarnings("unchecked")
+    public MessageT get()
+    {
+        Object result = state.get();
+        if (result instanceof Pending)
+        {
+            synchronized (this)
+            {
+                result = state.get();
+                if (result instanceof Pending)
+                {
+                    result = ((Pending<MessageT>)result).compose();
+                    // replacing the pending composition releases the source, the inputs and the dirigent
+                    state.set(result == null ? NULL : result);
+                }
+            }
+        }
+        return result == NULL ? null : (MessageT)result;
+    }
+
+    /**
+     * Returns whether the message was composed already.
+     *
+     * @return true if the message is composed
+     */
+    public boolean isComposed()
+    {
+        return !(state.get() instanceof Pending);
+    }
+
+    @Override
+    public int length()
+    {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString()
+    {
+        String string = this.string;
+        if (string == null)
+        {
+            string = String.valueOf(get());
+            this.string = string;
+        }
+        return string;
+    }
+
+    /**
+     * The captured values of a message which isn't composed yet.
+     */
+    private static final class Pending<MessageT>
+    {
+        private final AbstractDirigent<MessageT> dirigent;
+        private final Context context;
+        private final String source;
+        private final Object[] inputs;
+        private final ComponentGroup snapshot;
+
+        private Pending(AbstractDirigent<MessageT> dirigent, Context context, String source, Object[] inputs,
+                        ComponentGroup snapshot)
+        {
+            this.dirigent = dirigent;
+            this.context = context;
+            this.source = source;
+            this.inputs = inputs;
+            this.snapshot = snapshot;
+        }
+
+        private MessageT compose()
+        {
+            if (snapshot != null)
+            {
+                return dirigent.compose(snapshot, context);
+            }
+            return dirigent.compose(context, source, inputs);
+        }
+    }
+}
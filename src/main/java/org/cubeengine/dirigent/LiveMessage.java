@@ -0,0 +1,260 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
+
+/**
+ * A message which is composed over and over again while its inputs change, e.g. for scoreboards, boss bars and tab
+ * lists. The texts and constant macros are formatted once and the formatted segment of every macro is kept, so
+ * {@link #compose()} only formats the macros whose input was changed by {@link #update(int, Object)}. If nothing
+ * changed or the changed inputs are formatted to the same segments, the previous message is returned as it is.
+ * <p>
+ * The segments changed by the last composition are reported by {@link #getChangedSegments()}, so displays can
+ * update only the affected parts.
+ * <p>
+ * A live message isn't thread safe, it is meant to be updated and composed by a single thread.
+ *
+ * @param <MessageT> the resulting message type
+ */
+public final class LiveMessage<MessageT>
+{
+    private final AbstractDirigent<MessageT> dirigent;
+    private final Context context;
+    /**
+     * The formatted texts and constant macros and the last formatted segment of each slot, null until it is formatted.
+     */
+    private final Component[] segments;
+    /**
+     * The slot of each segment, null for the static segments.
+     */
+    private final BoundMessage.Slot[] slots;
+    private final Object[] inputs;
+    private final BitSet dirtyInputs = new BitSet();
+    private final BitSet changedSegments = new BitSet();
+
+    private MessageT message;
+
+    /**
+     * Constructor.
+     *
+     * @param dirigent the dirigent composing the message
+     * @param context the compose context
+     * @param parts the formatted components and {@link BoundMessage.Slot}s
+     * @param inputs the initial message input parameters, at least as many as referred to by the slots
+     */
+    LiveMessage(AbstractDirigent<MessageT> dirigent, Context context, List<Component> parts, Object[] inputs)
+    {
+        this.dirigent = dirigent;
+        this.context = context;
+        this.inputs = inputs;
+
+        List<Component> merged = new ArrayList<Component>(parts.size());
+        for (Component part : parts)
+        {
+            int last = merged.size() - 1;
+            if (last >= 0 && isPlainText(part) && isPlainText(merged.get(last)))
+            {
+                merged.set(last, Text.append((Text)merged.get(last), (Text)part));
+            }
+            else
+            {
+                merged.add(part);
+            }
+        }
+
+        this.segments = new Component[merged.size()];
+        this.slots = new BoundMessage.Slot[merged.size()];
+        for (int i = 0; i < segments.length; i++)
+        {
+            Component part = merged.get(i);
+            if (part instanceof BoundMessage.Slot)
+            {
+                slots[i] = (BoundMessage.Slot)part;
+            }
+            else
+            {
+                segments[i] = part;
+            }
+        }
+    }
+
+    private static boolean isPlainText(Component component)
+    {
+        return component != null && component.getClass() == Text.class;
+    }
+
+    /**
+     * Returns the number of inputs.
+     *
+     * @return the number of inputs.
+     */
+    public int getInputCount()
+    {
+        return inputs.length;
+    }
+
+    /**
+     * Returns the current input of the given index.
+     *
+     * @param index the index of the input.
+     *
+     * @return the input.
+     */
+    public Object getInput(int index)
+    {
+        checkIndex(index);
+        return inputs[index];
+    }
+
+    /**
+     * Changes an input. Inputs which are equal to the current one are ignored.
+     *
+     * @param index the index of the input.
+     * @param input the new input.
+     *
+     * @return whether the input changed.
+     */
+    public boolean update(int index, Object input)
+    {
+        checkIndex(index);
+        Object current = inputs[index];
+        if (current == input || (current != null && current.equals(input)))
+        {
+            return false;
+        }
+        inputs[index] = input;
+        dirtyInputs.set(index);
+        return true;
+    }
+
+    /**
+     * Marks an input as changed, e.g. because a mutable input was modified in place.
+     *
+     * @param index the index of the input.
+     */
+    public void invalidate(int index)
+    {
+        checkIndex(index);
+        dirtyInputs.set(index);
+    }
+
+    /**
+     * Checks whether the next composition has to format any macros.
+     *
+     * @return whether an input changed since the last composition.
+     */
+    public boolean isDirty()
+    {
+        return message == null || !dirtyInputs.isEmpty();
+    }
+
+    private boolean isDirty(BoundMessage.Slot slot)
+    {
+        if (slot.dependencies == null)
+        {
+            return dirtyInputs.get(slot.index);
+        }
+        for (int dependency : slot.dependencies)
+        {
+            if (dirtyInputs.get(dependency))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= inputs.length)
+        {
+            throw new IllegalArgumentException("Invalid input index: " + index);
+        }
+    }
+
+    /**
+     * Composes the message. Only the macros of changed inputs are formatted again.
+     *
+     * @return the composed message.
+     */
+    public MessageT compose()
+    {
+        if (!isDirty())
+        {
+            changedSegments.clear();
+            return message;
+        }
+
+        changedSegments.clear();
+        for (int i = 0; i < segments.length; i++)
+        {
+            BoundMessage.Slot slot = slots[i];
+            if (slot != null && (segments[i] == null || isDirty(slot)))
+            {
+                Component segment = dirigent.formatSlot(slot, context, inputs);
+                if (!segment.equals(segments[i]))
+                {
+                    segments[i] = segment;
+                    changedSegments.set(i);
+                }
+            }
+        }
+        dirtyInputs.clear();
+
+        if (message == null || !changedSegments.isEmpty())
+        {
+            message = dirigent.compose(new ComponentGroup(Arrays.asList(segments.clone())), context);
+        }
+        return message;
+    }
+
+    /**
+     * Returns the formatted segments of the last composition.
+     *
+     * @return the segments.
+     */
+    public List<Component> getSegments()
+    {
+        return Collections.unmodifiableList(Arrays.asList(segments.clone()));
+    }
+
+    /**
+     * Returns the indices of the segments which changed in the last composition. All formatted macros are reported
+     * after the first composition.
+     *
+     * @return the indices of the changed segments.
+     */
+    public BitSet getChangedSegments()
+    {
+        return (BitSet)changedSegments.clone();
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.cubeengine.dirigent.parser.EncodedText;
+import org.cubeengine.dirigent.parser.Parser;
+import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.element.Element;
+import org.cubeengine.dirigent.parser.element.Indexed;
+import org.cubeengine.dirigent.parser.element.NamedMacro;
+
+/**
+ * Compiles the messages of a {@link MessageSource} and keeps them parsed. A message can reference another message
+ * with a {@code {msg:key}} macro. The referenced message is inlined into the elements of the referencing message when
+ * it is compiled, so composing a message doesn't look up or parse any referenced message again. Cyclic references
+ * are rejected.
+ *
+ * Inlining works like pasting the referenced message in place of the reference, so it shares the inputs of the
+ * referencing message. Macros with an explicit index like {@code {0}} refer to the same input in every message.
+ * Macros without an index like {@code {}} take the next input after the preceding macros of the composed message,
+ * so their input depends on the position of the reference, e.g. with "prefix" being {@code [{}] } the message
+ * {@code {}: {msg:prefix}{}} uses the inputs 0, 1 and 2.
+ *
+ * If a message changes, {@link #invalidate(String)} drops the compiled message together with all messages which
+ * reference it directly or indirectly. They are compiled again on their next use.
+ */
+public final class MessageCatalog
+{
+    /**
+     * The name of the macro referencing another message.
+     */
+    public static final String REFERENCE_MACRO = "msg";
+
+    private final MessageSource source;
+    /**
+     * The charset to encode the literal texts of compiled messages with, might be null.
+     */
+    private final Charset literalCharset;
+    private final ConcurrentMap<String, List<Element>> templates = new ConcurrentHashMap<String, List<Element>>();
+    /**
+     * The keys of the messages referencing a message, guarded by the lock of this catalog.
+     */
+    private final Map<String, Set<String>> dependents = new HashMap<String, Set<String>>();
+
+    /**
+     * Constructor.
+     *
+     * @param source the message source.
+     */
+    public MessageCatalog(MessageSource source)
+    {
+        this(source, null);
+    }
+
+    /**
+     * Constructor. The literal texts of compiled messages are kept encoded with the given charset as
+     * {@link EncodedText}s, so builders writing bytes only have to encode the formatted values.
+     *
+     * @param source the message source.
+     * @param literalCharset the charset to encode the literal texts with or null to keep them as they are.
+     */
+    public MessageCatalog(MessageSource source, Charset literalCharset)
+    {
+        if (source == null)
+        {
+            throw new IllegalArgumentException("The message source may not be null!");
+        }
+        this.source = source;
+        this.literalCharset = literalCharset;
+    }
+
+    /**
+     * Returns the message source of this catalog.
+     *
+     * @return the message source.
+     */
+    public MessageSource getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Returns the compiled message of the given key with all references inlined.
+     *
+     * @param key the key of the message.
+     *
+     * @return the elements of the message.
+     *
+     * @throws IllegalArgumentException if there is no message for the key or the message references itself.
+     */
+    public List<Element> getTemplate(String key)
+    {
+        final List<Element> template = templates.get(key);
+        if (template != null)
+        {
+            return template;
+        }
+        synchronized (this)
+        {
+            return compile(key, new LinkedHashSet<String>());
+        }
+    }
+
+    /**
+     * Parses the given source message and inlines the messages it references.
+     *
+     * @param message the source message.
+     *
+     * @return the elements of the message.
+     */
+    public List<Element> compile(String message)
+    {
+        final List<Element> elements = Parser.parse(message);
+        if (!hasReference(elements))
+        {
+            return elements;
+        }
+        synchronized (this)
+        {
+            return inline(elements, null, new LinkedHashSet<String>());
+        }
+    }
+
+    /**
+     * Drops the compiled message of the given key and all compiled messages referencing it.
+     *
+     * @param key the key of the changed message.
+     */
+    public synchronized void invalidate(String key)
+    {
+        templates.remove(key);
+        final Set<String> referencing = dependents.remove(key);
+        if (referencing != null)
+        {
+            for (String dependent : referencing)
+            {
+                invalidate(dependent);
+            }
+        }
+    }
+
+    /**
+     * Drops all compiled messages.
+     */
+    public synchronized void invalidateAll()
+    {
+        templates.clear();
+        dependents.clear();
+    }
+
+    private List<Element> compile(String key, LinkedHashSet<String> path)
+    {
+        List<Element> template = templates.get(key);
+        if (template != null)
+        {
+            return template;
+        }
+        if (!path.add(key))
+        {
+            throw new IllegalArgumentException("The message references itself: " + describe(path, key));
+        }
+        final String message = source.getMessage(key);
+        if (message == null)
+        {
+            throw new IllegalArgumentException("There is no message for the key '" + key + "'!");
+        }
+        template = Collections.unmodifiableList(encode(inline(Parser.parse(message), key, path)));
+        path.remove(key);
+        templates.put(key, template);
+        return template;
+    }
+
+    private List<Element> inline(List<Element> elements, String key, LinkedHashSet<String> path)
+    {
+        final List<Element> out = new ArrayList<Element>(elements.size());
+        for (Element element : elements)
+        {
+            final String reference = referenceOf(element);
+            if (reference == null)
+            {
+                add(out, element);
+                continue;
+            }
+            if (key != null)
+            {
+                Set<String> referencing = dependents.get(reference);
+                if (referencing == null)
+                {
+                    referencing = new HashSet<String>();
+                    dependents.put(reference, referencing);
+                }
+                referencing.add(key);
+            }
+            for (Element inlined : compile(reference, path))
+            {
+                add(out, inlined);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Replaces the literal texts of a compiled message with {@link EncodedText}s if a charset is set.
+     */
+    private List<Element> encode(List<Element> elements)
+    {
+        if (literalCharset == null)
+        {
+            return elements;
+        }
+        for (int i = 0; i < elements.size(); i++)
+        {
+            final Element element = elements.get(i);
+            if (element.getClass() == Text.class)
+            {
+                elements.set(i, new EncodedText(((Text)element).getText(), literalCharset));
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Adds an element and merges adjacent texts like the {@link Parser} does.
+     */
+    private static void add(List<Element> out, Element element)
+    {
+        final int last = out.size() - 1;
+        if (last >= 0 && element.getClass() == Text.class && out.get(last).getClass() == Text.class)
+        {
+            out.set(last, Text.append((Text)out.get(last), (Text)element));
+        }
+        else
+        {
+            out.add(element);
+        }
+    }
+
+    private static boolean hasReference(List<Element> elements)
+    {
+        for (Element element : elements)
+        {
+            if (referenceOf(element) != null)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the key referenced by the given element.
+     *
+     * @param element the element.
+     *
+     * @return the key or null if the element isn't a reference macro.
+     */
+    private static String referenceOf(Element element)
+    {
+        if (element instanceof NamedMacro && !(element instanceof Indexed))
+        {
+            final NamedMacro macro = (NamedMacro)element;
+            if (REFERENCE_MACRO.equals(macro.getName()))
+            {
+                return macro.getArgs().get(0);
+            }
+        }
+        return null;
+    }
+
+    private static String describe(Set<String> path, String key)
+    {
+        final StringBuilder builder = new StringBuilder();
+        boolean inCycle = false;
+        for (String element : path)
+        {
+            inCycle = inCycle || element.equals(key);
+            if (inCycle)
+            {
+                builder.append(element).append(" -> ");
+            }
+        }
+        return builder.append(key).toString();
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A dot separated property path like {@code stats.kills} which is evaluated against a message input parameter.
+ * Each segment is looked up as a public getter ({@code getKills()} or {@code isKills()}) or a public field, in this
+ * order. Other methods are never invoked, as the templates shouldn't be able to trigger side effects like
+ * {@code delete()} or {@code incrementAndGet()}, and {@code getClass()} is excluded to not expose the class and its
+ * class loader. The getters are expected to be free of side effects. The looked up accessors are cached per class,
+ * so the reflective lookup happens only once per class and property. The cache doesn't keep the classes and their
+ * class loaders alive, e.g. of unloaded plugins. A null value within the path yields null, a
+ * property which doesn't exist yields {@link #UNKNOWN_PROPERTY}.
+ */
+final class PropertyPath
+{
+    /**
+     * The result of a path referring to a property which doesn't exist.
+     */
+    static final Object UNKNOWN_PROPERTY = new Object()
+    {
+        @Override
+        public String toString()
+        {
+            return "UNKNOWN_PROPERTY";
+        }
+    };
+
+    private static final int MAX_CACHED_PATHS = 256;
+    /**
+     * Marks properties which don't exist, so they are looked up only once as well.
+     */
+    private static final Accessor MISSING = new Accessor()
+    {
+        @Override
+        Object get(Object target)
+        {
+            return UNKNOWN_PROPERTY;
+        }
+    };
+
+    private static final ConcurrentMap<String, PropertyPath> PATHS = new ConcurrentHashMap<String, PropertyPath>();
+    /**
+     * The accessors per class, keyed by weak references to the classes. The accessors refer to their class, so they
+     * are only softly reachable, otherwise they would keep the weak keys alive.
+     */
+    private static final ConcurrentMap<ClassKey, SoftReference<ConcurrentMap<String, Accessor>>> ACCESSORS =
+        new ConcurrentHashMap<ClassKey, SoftReference<ConcurrentMap<String, Accessor>>>();
+    private static final ReferenceQueue<Class<?>> COLLECTED_CLASSES = new ReferenceQueue<Class<?>>();
+
+    private final String path;
+    private final String[] segments;
+
+    private PropertyPath(String path, String[] segments)
+    {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    /**
+     * Returns the property path for the given string.
+     *
+     * @param path the dot separated property path.
+     *
+     * @return the property path.
+     */
+    static PropertyPath of(String path)
+    {
+        PropertyPath propertyPath = PATHS.get(path);
+        if (propertyPath == null)
+        {
+            propertyPath = new PropertyPath(path, split(path));
+            if (PATHS.size() >= MAX_CACHED_PATHS)
+            {
+                PATHS.clear();
+            }
+            PATHS.put(path, propertyPath);
+        }
+        return propertyPath;
+    }
+
+    private static String[] split(String path)
+    {
+        List<String> segments = new ArrayList<String>(2);
+        int start = 0;
+        int end;
+        while ((end = path.indexOf('.', start)) != -1)
+        {
+            segments.add(path.substring(start, end));
+            start = end + 1;
+        }
+        segments.add(path.substring(start));
+        return segments.toArray(new String[segments.size()]);
+    }
+
+    /**
+     * Evaluates the property path against the given object.
+     *
+     * @param root the object to start at.
+     *
+     * @return the value of the property, null if any object within the path is null or {@link #UNKNOWN_PROPERTY} if
+     *         a property doesn't exist.
+     */
+    Object get(Object root)
+    {
+        Object current = root;
+        for (String segment : segments)
+        {
+            if (current == null)
+            {
+                return null;
+            }
+            Accessor accessor = accessor(current.getClass(), segment);
+            if (accessor == MISSING)
+            {
+                return UNKNOWN_PROPERTY;
+            }
+            current = accessor.get(current);
+        }
+        return current;
+    }
+
+    private Accessor accessor(Class<?> type, String property)
+    {
+        SoftReference<ConcurrentMap<String, Accessor>> reference = ACCESSORS.get(new ClassKey(type, null));
+        ConcurrentMap<String, Accessor> accessors = reference == null ? null : reference.get();
+        if (accessors == null)
+        {
+            accessors = accessors(type);
+        }
+        Accessor accessor = accessors.get(property);
+        if (accessor == null)
+        {
+            accessor = lookup(type, property);
+            if (accessor == null)
+            {
+                accessor = MISSING;
+            }
+            accessors.put(property, accessor);
+        }
+        return accessor;
+    }
+
+    private static ConcurrentMap<String, Accessor> accessors(Class<?> type)
+    {
+        for (Reference<? extends Class<?>> collected = COLLECTED_CLASSES.poll(); collected != null;
+             collected = COLLECTED_CLASSES.poll())
+        {
+            ACCESSORS.remove(collected);
+        }
+        ConcurrentMap<String, Accessor> accessors = new ConcurrentHashMap<String, Accessor>(4);
+        SoftReference<ConcurrentMap<String, Accessor>> reference =
+            new SoftReference<ConcurrentMap<String, Accessor>>(accessors);
+        SoftReference<ConcurrentMap<String, Accessor>> previous =
+            ACCESSORS.putIfAbsent(new ClassKey(type, COLLECTED_CLASSES), reference);
+        if (previous != null)
+        {
+            ConcurrentMap<String, Accessor> existing = previous.get();
+            if (existing != null)
+            {
+                return existing;
+            }
+            // the accessors have been collected, the key is still in use
+            ACCESSORS.put(new ClassKey(type, COLLECTED_CLASSES), reference);
+        }
+        return accessors;
+    }
+
+    private static Accessor lookup(Class<?> type, String property)
+    {
+        if (property.isEmpty() || "class".equals(property))
+        {
+            return null;
+        }
+        String capitalized = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        Method method = findMethod(type, "get" + capitalized);
+        if (method == null)
+        {
+            method = findMethod(type, "is" + capitalized);
+            if (method != null && method.getReturnType() != boolean.class && method.getReturnType() != Boolean.class)
+            {
+                method = null;
+            }
+        }
+        if (method != null)
+        {
+            return new MethodAccessor(method);
+        }
+        try
+        {
+            Field field = type.getField(property);
+            if (!Modifier.isStatic(field.getModifiers()))
+            {
+                makeAccessible(field, field.getDeclaringClass());
+                return new FieldAccessor(field);
+            }
+        }
+        catch (NoSuchFieldException ignored)
+        {
+        }
+        return null;
+    }
+
+    private static Method findMethod(Class<?> type, String name)
+    {
+        final Method method;
+        try
+        {
+            method = type.getMethod(name);
+        }
+        catch (NoSuchMethodException e)
+        {
+            return null;
+        }
+        if (Modifier.isStatic(method.getModifiers()) || method.getReturnType() == void.class)
+        {
+            return null;
+        }
+        if (!Modifier.isPublic(method.getDeclaringClass().getModifiers()))
+        {
+            // the method is implemented by a non-public class, prefer the declaration of a public super type
+            Method publicMethod = findPublicDeclaration(type, name);
+            if (publicMethod != null)
+            {
+                return publicMethod;
+            }
+            makeAccessible(method, method.getDeclaringClass());
+        }
+        return method;
+    }
+
+    private static Method findPublicDeclaration(Class<?> type, String name)
+    {
+        for (Class<?> current = type; current != null; current = current.getSuperclass())
+        {
+            if (Modifier.isPublic(current.getModifiers()))
+            {
+                try
+                {
+                    return current.getMethod(name);
+                }
+                catch (NoSuchMethodException ignored)
+                {
+                }
+            }
+            for (Class<?> iface : current.getInterfaces())
+            {
+                Method method = findPublicDeclaration(iface, name);
+                if (method != null)
+                {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void makeAccessible(AccessibleObject member, Class<?> declaringClass)
+    {
+        if (!Modifier.isPublic(declaringClass.getModifiers()))
+        {
+            try
+            {
+                member.setAccessible(true);
+            }
+            catch (RuntimeException ignored)
+            {
+                // the access check will fail on invocation and report the actual problem
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return path;
+    }
+
+    /**
+     * A weak reference to a class which is usable as a key, comparing the classes by identity.
+     */
+    private static final class ClassKey extends WeakReference<Class<?>>
+    {
+        private final int hash;
+
+        ClassKey(Class<?> type, ReferenceQueue<Class<?>> queue)
+        {
+            super(type, queue);
+            this.hash = System.identityHashCode(type);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof ClassKey))
+            {
+                return false;
+            }
+            Class<?> type = get();
+            return type != null && type == ((ClassKey)o).get();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    /**
+     * Reads a single property of an object.
+     */
+    private static abstract class Accessor
+    {
+        abstract Object get(Object target);
+    }
+
+    private static final class MethodAccessor extends Accessor
+    {
+        private final Method method;
+
+        MethodAccessor(Method method)
+        {
+            this.method = method;
+        }
+
+        @Override
+        Object get(Object target)
+        {
+            try
+            {
+                return method.invoke(target);
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new IllegalStateException("The method " + method + " is not accessible!", e);
+            }
+            catch (InvocationTargetException e)
+            {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException)cause;
+                }
+                if (cause instanceof Error)
+                {
+                    throw (Error)cause;
+                }
+                throw new IllegalStateException("The method " + method + " failed!", cause);
+            }
+        }
+    }
+
+    private static final class FieldAccessor extends Accessor
+    {
+        private final Field field;
+
+        FieldAccessor(Field field)
+        {
+            this.field = field;
+        }
+
+        @Override
+        Object get(Object target)
+        {
+            try
+            {
+                return field.get(target);
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new IllegalStateException("The field " + field + " is not accessible!", e);
+            }
+        }
+    }
+}
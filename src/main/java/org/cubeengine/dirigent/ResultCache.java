@@ -0,0 +1,343 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.context.ContextFingerprint;
+
+/**
+ * An opt-in cache of composed messages, see {@link AbstractDirigent#setResultCache(ResultCache)}. A message is cached if it
+ * is a pure function of its template, the {@link ContextFingerprint} of the context and its inputs: all inputs are
+ * immutable values (null, strings, boxed primitives and enums), all macros are formatted by
+ * {@link org.cubeengine.dirigent.formatter.Formatter#isPure() pure} formatters and all global post processors of the
+ * dirigent are pure {@link org.cubeengine.dirigent.formatter.SelectivePostProcessor}s. The cache is cleared when
+ * formatters or post processors are added.
+ * <p>
+ * The cache is bounded by the total weight of the cached messages, by default the length of {@link CharSequence}
+ * messages. The least recently used messages are evicted first. The cached messages are shared, so the cache must
+ * only be used for immutable message types.
+ *
+ * @param <MessageT> the message type
+ */
+public final class ResultCache<MessageT>
+{
+    /**
+     * Weighs a message, e.g. by its length.
+     *
+     * @param <MessageT> the message type
+     */
+    public interface Weigher<MessageT>
+    {
+        /**
+         * Returns the weight of a message.
+         *
+         * @param message The message.
+         *
+         * @return the weight, at least 1.
+         */
+        int weigh(MessageT message);
+    }
+
+    /**
+     * Weighs {@link CharSequence}s by their length and all other messages with 1.
+     */
+    public static final Weigher<Object> LENGTH = new Weigher<Object>()
+    {
+        @Override
+        public int weigh(Object message)
+        {
+            return message instanceof CharSequence ? Math.max(1, ((CharSequence)message).length()) : 1;
+        }
+    };
+
+    private final long maxWeight;
+    private final Weigher<? super MessageT> weigher;
+    private final LinkedHashMap<Key, Entry<MessageT>> entries = new LinkedHashMap<Key, Entry<MessageT>>(16, 0.75f,
+                                                                                                        true);
+    private long weight = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructor. Weighs the messages with {@link #LENGTH}.
+     *
+     * @param maxWeight The maximum total weight of the cached messages.
+     */
+    public ResultCache(long maxWeight)
+    {
+        this(maxWeight, LENGTH);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxWeight The maximum total weight of the cached messages.
+     * @param weigher The weigher of the messages.
+     */
+    public ResultCache(long maxWeight, Weigher<? super MessageT> weigher)
+    {
+        if (maxWeight <= 0)
+        {
+            throw new IllegalArgumentException("The maximum weight must be positive: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Checks whether an input is an immutable value which can be part of a cache key.
+     *
+     * @param input The input.
+     *
+     * @return whether the input is cacheable.
+     */
+    public static boolean isCacheable(Object input)
+    {
+        return input == null || input instanceof String || input instanceof Integer || input instanceof Long
+            || input instanceof Double || input instanceof Boolean || input instanceof Enum || input instanceof Float
+            || input instanceof Short || input instanceof Byte || input instanceof Character;
+    }
+
+    /**
+     * Creates the cache key of a composition.
+     *
+     * @param template The template, either the source string or the identity of a compiled template.
+     * @param context The compose context.
+     * @param inputs The message parameters.
+     *
+     * @return the key or null if an input isn't cacheable.
+     */
+    Key key(Object template, Context context, Inputs inputs)
+    {
+        final Object[] values = new Object[inputs.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            final Object input = inputs.get(i);
+            if (!isCacheable(input))
+            {
+                return null;
+            }
+            values[i] = input;
+        }
+        return new Key(template, ContextFingerprint.of(context), values);
+    }
+
+    /**
+     * Returns the cached message of the given key and counts the hit or miss.
+     *
+     * @param key The key.
+     *
+     * @return the message or null.
+     */
+    synchronized MessageT get(Key key)
+    {
+        final Entry<MessageT> entry = entries.get(key);
+        if (entry == null)
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.message;
+    }
+
+    /**
+     * Caches a message and evicts the least recently used messages exceeding the maximum weight.
+     *
+     * @param key The key.
+     * @param message The message.
+     */
+    synchronized void put(Key key, MessageT message)
+    {
+        final int messageWeight = weigher.weigh(message);
+        if (messageWeight > maxWeight)
+        {
+            return;
+        }
+        final Entry<MessageT> previous = entries.put(key, new Entry<MessageT>(message, messageWeight));
+        if (previous != null)
+        {
+            weight -= previous.weight;
+        }
+        weight += messageWeight;
+        final Iterator<Entry<MessageT>> it = entries.values().iterator();
+        while (weight > maxWeight && it.hasNext())
+        {
+            weight -= it.next().weight;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes all cached messages. The statistics are kept.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Returns the number of cached messages.
+     *
+     * @return the number of messages.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total weight of the cached messages.
+     *
+     * @return the weight.
+     */
+    public synchronized long getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Returns the number of compositions answered from the cache.
+     *
+     * @return the number of hits.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of cacheable compositions which had to be composed.
+     *
+     * @return the number of misses.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of messages evicted to stay within the maximum weight.
+     *
+     * @return the number of evictions.
+     */
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the share of hits of all lookups.
+     *
+     * @return the hit rate between 0 and 1, 0 if nothing was looked up yet.
+     */
+    public double getHitRate()
+    {
+        final long hitCount = hits.get();
+        final long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double)hitCount / total;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ResultCache{" + "size=" + size() + ", weight=" + getWeight() + ", maxWeight=" + maxWeight
+            + ", hitRate=" + getHitRate() + '}';
+    }
+
+    private static final class Entry<MessageT>
+    {
+        private final MessageT message;
+        private final int weight;
+
+        private Entry(MessageT message, int weight)
+        {
+            this.message = message;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * The key of a cached message. Source strings are compared by equality, compiled templates by identity, so a
+     * template which was compiled again doesn't hit the messages of its previous version.
+     */
+    static final class Key
+    {
+        private final Object template;
+        private final ContextFingerprint fingerprint;
+        private final Object[] inputs;
+        private final int hashCode;
+
+        private Key(Object template, ContextFingerprint fingerprint, Object[] inputs)
+        {
+            this.template = template;
+            this.fingerprint = fingerprint;
+            this.inputs = inputs;
+
+            int result = template instanceof String ? template.hashCode() : System.identityHashCode(template);
+            result = 31 * result + fingerprint.hashCode();
+            result = 31 * result + Arrays.hashCode(inputs);
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+
+            final Key that = (Key)o;
+
+            if (hashCode != that.hashCode)
+            {
+                return false;
+            }
+            if (template != that.template && !(template instanceof String && template.equals(that.template)))
+            {
+                return false;
+            }
+            return fingerprint.equals(that.fingerprint) && Arrays.equals(inputs, that.inputs);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+}
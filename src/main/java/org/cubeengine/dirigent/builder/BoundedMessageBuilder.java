@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.parser.component.TextComponent;
+import org.cubeengine.dirigent.parser.component.UnresolvableMacro;
+import org.cubeengine.dirigent.parser.element.Macro;
+import org.cubeengine.dirigent.parser.element.NamedMacro;
+
+/**
+ * Builds Strings within a character budget using a {@link BoundedStringBuilder}. Once the budget is used up the
+ * remaining components are skipped, so the formatters of their macros don't run at all.
+ *
+ * {@link #newBuilder()} creates an unbounded builder, bounded builders are created with
+ * {@link BoundedStringBuilder#truncating(int, String)} or {@link BoundedStringBuilder#splitting(int, int)}. The chunks
+ * of a splitting builder are returned by {@link BoundedStringBuilder#getChunks()} instead of
+ * {@link #finalize(BoundedStringBuilder, Context)}.
+ *
+ * A bounded builder can wrap the {@link MessageBuilder} of unbounded Strings, which then renders the texts,
+ * unresolvable macros and custom components, including its registered handlers. Its iterative traversal and maximum
+ * depth are used as well. Only groups and resolved macros are traversed by the bounded builder itself, so the
+ * remaining macros can still be skipped.
+ */
+public class BoundedMessageBuilder extends MessageBuilder<String, BoundedStringBuilder>
+{
+    private final MessageBuilder<?, StringBuilder> delegate;
+
+    /**
+     * Constructor.
+     */
+    public BoundedMessageBuilder()
+    {
+        this.delegate = null;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param delegate The builder rendering the components within the budget.
+     */
+    public BoundedMessageBuilder(MessageBuilder<?, StringBuilder> delegate)
+    {
+        if (delegate == null)
+        {
+            throw new IllegalArgumentException("The delegate must not be null");
+        }
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean isIterative()
+    {
+        return delegate == null ? super.isIterative() : delegate.isIterative();
+    }
+
+    @Override
+    public int getMaxDepth()
+    {
+        return delegate == null ? super.getMaxDepth() : delegate.getMaxDepth();
+    }
+
+    @Override
+    public BoundedStringBuilder newBuilder()
+    {
+        return BoundedStringBuilder.truncating(Integer.MAX_VALUE, "");
+    }
+
+    @Override
+    public String finalize(BoundedStringBuilder builder, Context context)
+    {
+        return builder.toString();
+    }
+
+    @Override
+    protected boolean isComplete(BoundedStringBuilder builder)
+    {
+        return builder.isComplete();
+    }
+
+    @Override
+    protected void buildText(TextComponent component, BoundedStringBuilder builder, Context context)
+    {
+        if (delegate != null)
+        {
+            delegate(component, builder, context);
+            return;
+        }
+        builder.append(component.getText());
+    }
+
+    @Override
+    protected void buildUnresolvable(UnresolvableMacro component, BoundedStringBuilder builder, Context context)
+    {
+        if (delegate != null)
+        {
+            delegate(component, builder, context);
+            return;
+        }
+        Macro macro = component.getMacro();
+        if (macro instanceof NamedMacro)
+        {
+            builder.append("{{unresolved: ").append(((NamedMacro)macro).getName()).append("}}");
+        }
+        else
+        {
+            builder.append("{{unresolved}}");
+        }
+    }
+
+    @Override
+    protected void buildOther(Component component, BoundedStringBuilder builder, Context context)
+    {
+        if (delegate != null)
+        {
+            delegate(component, builder, context);
+            return;
+        }
+        throw new IllegalStateException("Custom components not supported"); // No custom Components
+    }
+
+    private void delegate(Component component, BoundedStringBuilder builder, Context context)
+    {
+        StringBuilder scratch = builder.scratch();
+        delegate.buildAny(component, scratch, context);
+        builder.append(scratch);
+    }
+}
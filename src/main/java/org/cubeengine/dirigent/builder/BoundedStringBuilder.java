@@ -0,0 +1,248 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects a message within a character budget. A truncating builder cuts the message at the maximum length and ends it
+ * with an ellipsis, a splitting builder splits it into chunks of at most the maximum length, preferably at whitespace.
+ * Neither cuts a surrogate pair in half.
+ *
+ * As soon as the budget is used up the builder is {@link #isComplete() complete} and ignores further texts, so the
+ * {@link BoundedMessageBuilder} stops before running the formatters of the remaining macros.
+ */
+public final class BoundedStringBuilder
+{
+    private final StringBuilder builder = new StringBuilder();
+    private StringBuilder scratch;
+    private final int maxLength;
+    private final String ellipsis;
+    private final int maxChunks;
+    private final List<String> chunks;
+    private boolean complete = false;
+    private boolean truncated = false;
+
+    private BoundedStringBuilder(int maxLength, String ellipsis, int maxChunks)
+    {
+        if (maxLength <= 0)
+        {
+            throw new IllegalArgumentException("The maximum length must be positive: " + maxLength);
+        }
+        this.maxLength = maxLength;
+        this.ellipsis = ellipsis;
+        this.maxChunks = maxChunks;
+        this.chunks = ellipsis == null ? new ArrayList<String>() : null;
+    }
+
+    /**
+     * Creates a builder truncating the message.
+     *
+     * @param maxLength The maximum length of the message including the ellipsis.
+     * @param ellipsis The text replacing the end of a truncated message.
+     *
+     * @return the builder.
+     */
+    public static BoundedStringBuilder truncating(int maxLength, String ellipsis)
+    {
+        if (ellipsis.length() > maxLength)
+        {
+            throw new IllegalArgumentException("The ellipsis is longer than the maximum length: " + ellipsis);
+        }
+        return new BoundedStringBuilder(maxLength, ellipsis, 1);
+    }
+
+    /**
+     * Creates a builder splitting the message into chunks.
+     *
+     * @param maxLength The maximum length of a chunk.
+     * @param maxChunks The maximum number of chunks, the remaining message is dropped.
+     *
+     * @return the builder.
+     */
+    public static BoundedStringBuilder splitting(int maxLength, int maxChunks)
+    {
+        if (maxChunks <= 0)
+        {
+            throw new IllegalArgumentException("The maximum number of chunks must be positive: " + maxChunks);
+        }
+        return new BoundedStringBuilder(maxLength, null, maxChunks);
+    }
+
+    /**
+     * Appends a text unless the builder is already complete.
+     *
+     * @param text The text.
+     *
+     * @return fluent interface.
+     */
+    public BoundedStringBuilder append(CharSequence text)
+    {
+        if (complete)
+        {
+            return this;
+        }
+        if (chunks == null)
+        {
+            appendTruncating(text);
+        }
+        else
+        {
+            builder.append(text);
+            while (!complete && builder.length() > maxLength)
+            {
+                splitChunk();
+            }
+        }
+        return this;
+    }
+
+    private void appendTruncating(CharSequence text)
+    {
+        final int room = maxLength - builder.length();
+        if (text.length() <= room)
+        {
+            builder.append(text);
+            return;
+        }
+        int end = maxLength - ellipsis.length();
+        if (end < builder.length())
+        {
+            builder.setLength(end);
+        }
+        else
+        {
+            builder.append(text, 0, end - builder.length());
+        }
+        if (end > 0 && Character.isHighSurrogate(builder.charAt(end - 1)))
+        {
+            builder.setLength(end - 1);
+        }
+        builder.append(ellipsis);
+        complete = true;
+        truncated = true;
+    }
+
+    private void splitChunk()
+    {
+        // break at the last whitespace which is dropped, otherwise between two characters
+        int end = maxLength;
+        int next = maxLength;
+        while (end > 0 && !Character.isWhitespace(builder.charAt(end)))
+        {
+            --end;
+        }
+        if (end > 0)
+        {
+            next = end + 1;
+        }
+        else
+        {
+            end = maxLength;
+            if (end > 1 && Character.isHighSurrogate(builder.charAt(end - 1)))
+            {
+                --end;
+            }
+            next = end;
+        }
+        chunks.add(builder.substring(0, end));
+        builder.delete(0, next);
+        if (chunks.size() == maxChunks)
+        {
+            builder.setLength(0);
+            complete = true;
+            truncated = true;
+        }
+    }
+
+    /**
+     * Returns an empty builder for rendering a single component before appending it.
+     *
+     * @return the cleared scratch builder.
+     */
+    StringBuilder scratch()
+    {
+        if (scratch == null)
+        {
+            scratch = new StringBuilder();
+        }
+        scratch.setLength(0);
+        return scratch;
+    }
+
+    /**
+     * Checks whether the budget is used up, so further texts are ignored.
+     *
+     * @return whether the builder is complete.
+     */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    /**
+     * Checks whether a part of the message was dropped.
+     *
+     * @return whether the message was truncated.
+     */
+    public boolean isTruncated()
+    {
+        return truncated;
+    }
+
+    /**
+     * Returns the chunks of a splitting builder. The builder is complete afterwards.
+     *
+     * @return the chunks.
+     */
+    public List<String> getChunks()
+    {
+        if (chunks == null)
+        {
+            throw new IllegalStateException("The builder doesn't split the message");
+        }
+        if (!complete)
+        {
+            if (builder.length() > 0 || chunks.isEmpty())
+            {
+                chunks.add(builder.toString());
+                builder.setLength(0);
+            }
+            complete = true;
+        }
+        return Collections.unmodifiableList(chunks);
+    }
+
+    /**
+     * Returns the message of a truncating builder.
+     *
+     * @return the message.
+     */
+    @Override
+    public String toString()
+    {
+        return builder.toString();
+    }
+}
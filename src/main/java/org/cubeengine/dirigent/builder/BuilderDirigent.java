@@ -62,6 +62,16 @@ public class BuilderDirigent<MessageT, BuilderT> extends AbstractDirigent<Messag
         this.mBuilder = mBuilder;
     }
 
+    /**
+     * Returns the builder used for composing the target message, e.g. to configure it.
+     *
+     * @return the builder.
+     */
+    public MessageBuilder<MessageT, BuilderT> getMessageBuilder()
+    {
+        return mBuilder;
+    }
+
     @Override
     protected MessageT compose(ComponentGroup componentGroup, Context context)
     {
@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Provides the {@link ByteBuffer}s messages are encoded into, e.g. from a pool of direct buffers.
+ */
+public interface ByteBufferAllocator
+{
+    /**
+     * Allocates new heap buffers.
+     */
+    ByteBufferAllocator HEAP = new ByteBufferAllocator()
+    {
+        @Override
+        public ByteBuffer allocate(int capacity)
+        {
+            return ByteBuffer.allocate(capacity);
+        }
+
+        @Override
+        public void release(ByteBuffer buffer)
+        {
+        }
+    };
+
+    /**
+     * Allocates new direct buffers.
+     */
+    ByteBufferAllocator DIRECT = new ByteBufferAllocator()
+    {
+        @Override
+        public ByteBuffer allocate(int capacity)
+        {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+
+        @Override
+        public void release(ByteBuffer buffer)
+        {
+        }
+    };
+
+    /**
+     * Provides an empty buffer with at least the given capacity.
+     *
+     * @param capacity the minimum capacity.
+     *
+     * @return the buffer.
+     */
+    ByteBuffer allocate(int capacity);
+
+    /**
+     * Takes back a buffer of this allocator which was replaced by a bigger one, because the message didn't fit.
+     *
+     * @param buffer the buffer.
+     */
+    void release(ByteBuffer buffer);
+}
@@ -0,0 +1,45 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.component.Component;
+
+/**
+ * Appends a specific type of {@link Component}s to the builder of a {@link MessageBuilder}. Handlers are registered
+ * with {@link MessageBuilder#registerHandler(Class, ComponentHandler)}.
+ *
+ * @param <C> the component type
+ * @param <BuilderT> the builder type
+ */
+public interface ComponentHandler<C extends Component, BuilderT>
+{
+    /**
+     * Appends a component to the builder.
+     *
+     * @param component the component
+     * @param builder the builder
+     * @param context the context
+     */
+    void build(C component, BuilderT builder, Context context);
+}
@@ -0,0 +1,362 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import org.cubeengine.dirigent.context.Context;
+
+/**
+ * Composes a stream of messages into a {@link WritableByteChannel}, e.g. a {@link java.nio.channels.FileChannel}.
+ * The messages are encoded by a {@link Utf8Dirigent} directly into a ring of direct buffers, each followed by a
+ * separator, so no message is ever turned into a {@link String}. The filled buffers are written at once with a
+ * gathering write if the channel is a {@link GatheringByteChannel}.
+ *
+ * The buffers are flushed to the channel when the ring is full, when the pending bytes or the pending messages reach
+ * their threshold and on {@link #flush()} and {@link #close()}. The writer isn't thread safe.
+ */
+public class DirigentWriter implements Flushable, Closeable
+{
+    /**
+     * The default number of buffers of the ring.
+     */
+    public static final int DEFAULT_BUFFER_COUNT = 8;
+    /**
+     * The default capacity of each buffer of the ring.
+     */
+    public static final int DEFAULT_BUFFER_CAPACITY = 64 * 1024;
+
+    private static final byte[] DEFAULT_SEPARATOR = {'\n'};
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final Utf8Dirigent dirigent;
+    private final WritableByteChannel channel;
+    private final ByteBuffer[] ring;
+    /**
+     * A buffer is left for the next one when less bytes remain, so messages rarely outgrow a buffer.
+     */
+    private final int minRemaining;
+    private final long flushBytes;
+    private final long flushMessages;
+    private byte[] separator = DEFAULT_SEPARATOR;
+
+    private int current;
+    private long pendingBytes;
+    private long pendingMessages;
+
+    private final long startNanos = System.nanoTime();
+    private long byteCount;
+    private long messageCount;
+
+    /**
+     * Constructor. Uses the default ring and flushes when the ring is full.
+     *
+     * @param dirigent The dirigent composing the messages.
+     * @param channel The channel to write to.
+     */
+    public DirigentWriter(Utf8Dirigent dirigent, WritableByteChannel channel)
+    {
+        this(dirigent, channel, DEFAULT_BUFFER_COUNT, DEFAULT_BUFFER_CAPACITY, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dirigent The dirigent composing the messages.
+     * @param channel The channel to write to.
+     * @param bufferCount The number of direct buffers of the ring.
+     * @param bufferCapacity The capacity of each buffer.
+     * @param flushBytes The number of pending bytes triggering a flush.
+     * @param flushMessages The number of pending messages triggering a flush.
+     */
+    public DirigentWriter(Utf8Dirigent dirigent, WritableByteChannel channel, int bufferCount, int bufferCapacity,
+                          long flushBytes, long flushMessages)
+    {
+        if (bufferCount < 1 || bufferCapacity < 1)
+        {
+            throw new IllegalArgumentException("The ring needs at least one buffer with a positive capacity!");
+        }
+        if (flushBytes < 1 || flushMessages < 1)
+        {
+            throw new IllegalArgumentException("The flush thresholds must be positive!");
+        }
+        this.dirigent = dirigent;
+        this.channel = channel;
+        this.ring = new ByteBuffer[bufferCount];
+        for (int i = 0; i < bufferCount; i++)
+        {
+            ring[i] = ByteBuffer.allocateDirect(bufferCapacity);
+        }
+        this.minRemaining = Math.min(256, bufferCapacity / 4);
+        this.flushBytes = flushBytes;
+        this.flushMessages = flushMessages;
+    }
+
+    /**
+     * Sets the separator written after every message, a line feed by default.
+     *
+     * @param separator The separator.
+     *
+     * @return fluent interface
+     */
+    public DirigentWriter setSeparator(String separator)
+    {
+        this.separator = separator.getBytes(Utf8Output.UTF_8);
+        return this;
+    }
+
+    /**
+     * Composes a message and writes it.
+     *
+     * @param context The compose context.
+     * @param source The source message.
+     * @param inputs The message parameters.
+     *
+     * @throws IOException if writing to the channel fails.
+     */
+    public void write(Context context, String source, Object... inputs) throws IOException
+    {
+        final ByteBuffer buffer = prepare();
+        final int start = buffer.position();
+        written(buffer, start, dirigent.composeInto(buffer, context, source, inputs));
+    }
+
+    /**
+     * Composes the message of the given key of the message source of the dirigent and writes it.
+     *
+     * @param context The compose context.
+     * @param key The key of the message.
+     * @param inputs The message parameters.
+     *
+     * @throws IOException if writing to the channel fails.
+     */
+    public void writeMessage(Context context, String key, Object... inputs) throws IOException
+    {
+        final ByteBuffer buffer = prepare();
+        final int start = buffer.position();
+        written(buffer, start, dirigent.composeMessageInto(buffer, context, key, inputs));
+    }
+
+    /**
+     * Returns the buffer to compose the next message into.
+     */
+    private ByteBuffer prepare() throws IOException
+    {
+        if (ring[current].remaining() < minRemaining)
+        {
+            advance();
+        }
+        return ring[current];
+    }
+
+    /**
+     * Accounts a composed message and writes its separator.
+     *
+     * @param buffer The buffer the message was composed into.
+     * @param start The position of the buffer before the message.
+     * @param result The flipped buffer holding the message.
+     */
+    private void written(ByteBuffer buffer, int start, ByteBuffer result) throws IOException
+    {
+        final long bytes;
+        if (result == buffer)
+        {
+            bytes = buffer.limit() - start;
+            buffer.position(buffer.limit()).limit(buffer.capacity());
+            if (buffer.remaining() < separator.length)
+            {
+                advance();
+            }
+            ring[current].put(separator);
+        }
+        else
+        {
+            // the message outgrew the buffer, the result holds the content of the buffer as well
+            bytes = result.remaining() - start;
+            buffer.clear();
+            writeRing(current, result);
+            dirigent.getAllocator().release(result);
+            ring[current].put(separator);
+        }
+        count(bytes + separator.length);
+    }
+
+    private void count(long bytes) throws IOException
+    {
+        byteCount += bytes;
+        messageCount++;
+        pendingBytes += bytes;
+        pendingMessages++;
+        if (pendingBytes >= flushBytes || pendingMessages >= flushMessages)
+        {
+            flush();
+        }
+    }
+
+    /**
+     * Moves on to the next buffer of the ring and flushes the ring if it is full.
+     */
+    private void advance() throws IOException
+    {
+        if (current + 1 == ring.length)
+        {
+            flush();
+        }
+        else
+        {
+            current++;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        writeRing(ring[current].position() > 0 ? current + 1 : current, null);
+    }
+
+    /**
+     * Writes the first buffers of the ring and an optional extra buffer, which is already flipped.
+     *
+     * @param count The number of buffers of the ring to write.
+     * @param extra The extra buffer or null.
+     */
+    private void writeRing(int count, ByteBuffer extra) throws IOException
+    {
+        final ByteBuffer[] buffers = new ByteBuffer[extra == null ? count : count + 1];
+        for (int i = 0; i < count; i++)
+        {
+            ring[i].flip();
+            buffers[i] = ring[i];
+        }
+        if (extra != null)
+        {
+            buffers[count] = extra;
+        }
+        if (buffers.length > 0)
+        {
+            write(buffers);
+        }
+        for (int i = 0; i < count; i++)
+        {
+            ring[i].clear();
+        }
+        current = 0;
+        pendingBytes = 0;
+        pendingMessages = 0;
+    }
+
+    private void write(ByteBuffer[] buffers) throws IOException
+    {
+        if (channel instanceof GatheringByteChannel)
+        {
+            final GatheringByteChannel gathering = (GatheringByteChannel)channel;
+            int offset = 0;
+            while (offset < buffers.length)
+            {
+                gathering.write(buffers, offset, buffers.length - offset);
+                while (offset < buffers.length && !buffers[offset].hasRemaining())
+                {
+                    offset++;
+                }
+            }
+        }
+        else
+        {
+            for (ByteBuffer buffer : buffers)
+            {
+                while (buffer.hasRemaining())
+                {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Flushes the pending messages and closes the channel.
+     *
+     * @throws IOException if writing to or closing the channel fails.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the number of written messages.
+     *
+     * @return the number of messages.
+     */
+    public long getMessageCount()
+    {
+        return messageCount;
+    }
+
+    /**
+     * Returns the number of written bytes including the separators.
+     *
+     * @return the number of bytes.
+     */
+    public long getByteCount()
+    {
+        return byteCount;
+    }
+
+    /**
+     * Returns the average number of messages written per second since the writer was created.
+     *
+     * @return the messages per second.
+     */
+    public double getMessagesPerSecond()
+    {
+        return perSecond(messageCount);
+    }
+
+    /**
+     * Returns the average number of bytes written per second since the writer was created.
+     *
+     * @return the bytes per second.
+     */
+    public double getBytesPerSecond()
+    {
+        return perSecond(byteCount);
+    }
+
+    private double perSecond(long count)
+    {
+        final long nanos = Math.max(1, System.nanoTime() - startNanos);
+        return count * (double)NANOS_PER_SECOND / nanos;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import java.io.IOException;
+import org.cubeengine.dirigent.parser.component.Component;
+
+/**
+ * A custom {@link Component} which is written by the {@link JsonChatMessageBuilder} as a chat component of its own,
+ * e.g. a styled text or a translation. Implementations can escape their strings with
+ * {@link JsonChatOutput#writeString(CharSequence, Appendable)}.
+ */
+public interface JsonChatComponent extends Component
+{
+    /**
+     * Writes this component as a compact JSON value, either a string or an object.
+     *
+     * @param out The target.
+     *
+     * @throws IOException if the target fails.
+     */
+    void writeJson(Appendable out) throws IOException;
+}
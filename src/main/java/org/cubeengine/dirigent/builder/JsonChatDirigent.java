@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.formatter.Formatter;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
+
+/**
+ * A {@link org.cubeengine.dirigent.Dirigent} implementation composing compact JSON chat components with the
+ * {@link JsonChatMessageBuilder}. Messages can be composed to a {@link String} or streamed into any {@link Appendable}.
+ */
+public class JsonChatDirigent extends BuilderDirigent<String, JsonChatOutput>
+{
+    private final JsonChatMessageBuilder builder;
+
+    /**
+     * Constructor.
+     */
+    public JsonChatDirigent()
+    {
+        this(new JsonChatMessageBuilder());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param builder The builder to use.
+     */
+    public JsonChatDirigent(JsonChatMessageBuilder builder)
+    {
+        super(builder);
+        this.builder = builder;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param builder The builder to use.
+     * @param defaultFormatter The default formatter.
+     */
+    public JsonChatDirigent(JsonChatMessageBuilder builder, Formatter<Object> defaultFormatter)
+    {
+        super(builder, defaultFormatter);
+        this.builder = builder;
+    }
+
+    /**
+     * Composes a message as JSON into the given target.
+     *
+     * @param target The target.
+     * @param context The compose context.
+     * @param source The source message.
+     * @param inputs The message parameters.
+     */
+    public void composeInto(Appendable target, Context context, String source, Object... inputs)
+    {
+        build(target, resolve(context, source, inputs), context);
+    }
+
+    /**
+     * Composes the message of the given key from the {@link org.cubeengine.dirigent.MessageSource} as JSON into the
+     * given target.
+     *
+     * @param target The target.
+     * @param context The compose context.
+     * @param key The key of the message.
+     * @param inputs The message parameters.
+     */
+    public void composeMessageInto(Appendable target, Context context, String key, Object... inputs)
+    {
+        build(target, resolveMessage(context, key, inputs), context);
+    }
+
+    private void build(Appendable target, ComponentGroup components, Context context)
+    {
+        JsonChatOutput output = builder.newBuilder(target);
+        builder.buildGroup(components, output, context);
+        output.finish();
+    }
+}
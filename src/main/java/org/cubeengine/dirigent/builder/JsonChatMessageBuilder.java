@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.StyledText;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.parser.component.TextComponent;
+import org.cubeengine.dirigent.parser.component.UnresolvableMacro;
+import org.cubeengine.dirigent.parser.element.Macro;
+import org.cubeengine.dirigent.parser.element.NamedMacro;
+
+/**
+ * Builds compact JSON chat components, e.g. for Minecraft clients, with a {@link JsonChatOutput}. The JSON is written
+ * while the component tree is walked, adjacent texts are merged into a single string and custom components have to
+ * implement {@link JsonChatComponent}. The styled runs of {@link StyledText}s are written as components of their own.
+ *
+ * {@link #newBuilder()} writes into a {@link StringBuilder}, {@link #newBuilder(Appendable)} writes into any target,
+ * e.g. a {@link java.io.Writer} of a network connection.
+ */
+public class JsonChatMessageBuilder extends MessageBuilder<String, JsonChatOutput>
+{
+    /**
+     * Constructor.
+     */
+    public JsonChatMessageBuilder()
+    {
+        registerHandler(JsonChatComponent.class, new ComponentHandler<JsonChatComponent, JsonChatOutput>()
+        {
+            @Override
+            public void build(JsonChatComponent component, JsonChatOutput builder, Context context)
+            {
+                builder.component(component);
+            }
+        });
+    }
+
+    @Override
+    public JsonChatOutput newBuilder()
+    {
+        return new JsonChatOutput(new StringBuilder());
+    }
+
+    /**
+     * Creates a builder writing into the given target.
+     *
+     * @param target The target.
+     *
+     * @return the builder.
+     */
+    public JsonChatOutput newBuilder(Appendable target)
+    {
+        return new JsonChatOutput(target);
+    }
+
+    @Override
+    public String finalize(JsonChatOutput output, Context context)
+    {
+        output.finish();
+        return output.getTarget().toString();
+    }
+
+    @Override
+    protected void buildText(TextComponent component, JsonChatOutput builder, Context context)
+    {
+        builder.text(component.getText());
+    }
+
+    @Override
+    protected void buildStyled(StyledText component, JsonChatOutput builder, Context context)
+    {
+        final String text = component.getText();
+        for (int run = 0; run < component.getRunCount(); ++run)
+        {
+            builder.styled(text, component.getRunStart(run), component.getRunEnd(run), component.getRunStyle(run));
+        }
+    }
+
+    @Override
+    protected void buildUnresolvable(UnresolvableMacro component, JsonChatOutput builder, Context context)
+    {
+        Macro macro = component.getMacro();
+        if (macro instanceof NamedMacro)
+        {
+            builder.text("{{unresolved: ").text(((NamedMacro)macro).getName()).text("}}");
+        }
+        else
+        {
+            builder.text("{{unresolved}}");
+        }
+    }
+
+    @Override
+    protected void buildOther(Component component, JsonChatOutput builder, Context context)
+    {
+        throw new IllegalStateException("Custom components must implement JsonChatComponent");
+    }
+}
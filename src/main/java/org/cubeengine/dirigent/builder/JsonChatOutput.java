@@ -0,0 +1,326 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import java.io.IOException;
+import org.cubeengine.dirigent.parser.Style;
+
+/**
+ * Writes a chat component as compact JSON to an {@link Appendable} while a message is built. Adjacent texts are
+ * written into the same JSON string, so plain messages result in a single <code>{"text":"..."}</code> object. As soon as
+ * a {@link JsonChatComponent} or a styled text is written, the following components are written to the
+ * <code>extra</code> array.
+ *
+ * Nothing is buffered: texts are escaped straight into the target in a single pass. {@link IOException}s of the target
+ * are rethrown as {@link IllegalStateException}s.
+ */
+public final class JsonChatOutput
+{
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String[] COLORS = {"black", "dark_blue", "dark_green", "dark_aqua", "dark_red",
+        "dark_purple", "gold", "gray", "dark_gray", "blue", "green", "aqua", "red", "light_purple", "yellow", "white"};
+
+    private static final int EMPTY = 0;
+    private static final int TEXT = 1;
+    private static final int TEXT_IN_EXTRA = 2;
+    private static final int EXTRA = 3;
+    private static final int FINISHED = 4;
+
+    private final Appendable target;
+    private int state = EMPTY;
+
+    /**
+     * Constructor.
+     *
+     * @param target The target of the JSON.
+     */
+    public JsonChatOutput(Appendable target)
+    {
+        this.target = target;
+    }
+
+    /**
+     * Returns the target of the JSON.
+     *
+     * @return the target.
+     */
+    public Appendable getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * Writes a plain text. It is merged with a directly preceding text.
+     *
+     * @param text The text.
+     *
+     * @return fluent interface.
+     */
+    public JsonChatOutput text(CharSequence text)
+    {
+        return text(text, 0, text.length());
+    }
+
+    /**
+     * Writes a part of a plain text. It is merged with a directly preceding text.
+     *
+     * @param text The text.
+     * @param start The index of the first character.
+     * @param end The index after the last character.
+     *
+     * @return fluent interface.
+     */
+    public JsonChatOutput text(CharSequence text, int start, int end)
+    {
+        try
+        {
+            switch (state)
+            {
+                case EMPTY:
+                    target.append("{\"text\":\"");
+                    state = TEXT;
+                    break;
+                case EXTRA:
+                    target.append(",\"");
+                    state = TEXT_IN_EXTRA;
+                    break;
+                case FINISHED:
+                    throw new IllegalStateException("The output is already finished");
+                default:
+                    break;
+            }
+            escape(text, start, end, target);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Failed to write the message", e);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a custom component as an element of the <code>extra</code> array.
+     *
+     * @param component The component.
+     *
+     * @return fluent interface.
+     */
+    public JsonChatOutput component(JsonChatComponent component)
+    {
+        try
+        {
+            beginExtra();
+            component.writeJson(target);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Failed to write the message", e);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a part of a text with the given {@link Style}. Plain parts are written like
+     * {@link #text(CharSequence, int, int)}, styled parts as an element of the <code>extra</code> array.
+     *
+     * @param text The text.
+     * @param start The index of the first character.
+     * @param end The index after the last character.
+     * @param style The style.
+     *
+     * @return fluent interface.
+     */
+    public JsonChatOutput styled(CharSequence text, int start, int end, int style)
+    {
+        if (style == Style.PLAIN)
+        {
+            return text(text, start, end);
+        }
+        try
+        {
+            beginExtra();
+            target.append("{\"text\":\"");
+            escape(text, start, end, target);
+            target.append('"');
+            writeFlag(style, Style.BOLD, ",\"bold\":true");
+            writeFlag(style, Style.ITALIC, ",\"italic\":true");
+            writeFlag(style, Style.UNDERLINED, ",\"underlined\":true");
+            writeFlag(style, Style.STRIKETHROUGH, ",\"strikethrough\":true");
+            writeFlag(style, Style.OBFUSCATED, ",\"obfuscated\":true");
+            final int color = Style.getColor(style);
+            if (color >= 0)
+            {
+                target.append(",\"color\":\"").append(COLORS[color]).append('"');
+            }
+            target.append('}');
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Failed to write the message", e);
+        }
+        return this;
+    }
+
+    private void writeFlag(int style, int flag, String json) throws IOException
+    {
+        if (Style.has(style, flag))
+        {
+            target.append(json);
+        }
+    }
+
+    /**
+     * Prepares writing the next element of the <code>extra</code> array.
+     *
+     * @throws IOException if the target fails.
+     */
+    private void beginExtra() throws IOException
+    {
+        switch (state)
+        {
+            case EMPTY:
+                target.append("{\"text\":\"\",\"extra\":[");
+                break;
+            case TEXT:
+                target.append("\",\"extra\":[");
+                break;
+            case TEXT_IN_EXTRA:
+                target.append("\",");
+                break;
+            case EXTRA:
+                target.append(',');
+                break;
+            default:
+                throw new IllegalStateException("The output is already finished");
+        }
+        state = EXTRA;
+    }
+
+    /**
+     * Closes the JSON object. Nothing can be written afterwards.
+     */
+    public void finish()
+    {
+        try
+        {
+            switch (state)
+            {
+                case EMPTY:
+                    target.append("{\"text\":\"\"}");
+                    break;
+                case TEXT:
+                    target.append("\"}");
+                    break;
+                case TEXT_IN_EXTRA:
+                    target.append("\"]}");
+                    break;
+                case EXTRA:
+                    target.append("]}");
+                    break;
+                default:
+                    throw new IllegalStateException("The output is already finished");
+            }
+            state = FINISHED;
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Failed to write the message", e);
+        }
+    }
+
+    /**
+     * Writes a quoted and escaped JSON string.
+     *
+     * @param s The string.
+     * @param out The target.
+     *
+     * @throws IOException if the target fails.
+     */
+    public static void writeString(CharSequence s, Appendable out) throws IOException
+    {
+        out.append('"');
+        escape(s, 0, s.length(), out);
+        out.append('"');
+    }
+
+    /**
+     * Escapes a string for JSON in a single pass. Unescaped runs are appended as a whole. The line and paragraph
+     * separators are escaped as well, so the JSON can be embedded in JavaScript.
+     *
+     * @param s The string.
+     * @param from The index of the first character.
+     * @param to The index after the last character.
+     * @param out The target.
+     *
+     * @throws IOException if the target fails.
+     */
+    static void escape(CharSequence s, int from, int to, Appendable out) throws IOException
+    {
+        int start = from;
+        for (int i = from; i < to; ++i)
+        {
+            final char c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029')
+            {
+                continue;
+            }
+            if (i > start)
+            {
+                out.append(s, start, i);
+            }
+            start = i + 1;
+            switch (c)
+            {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                default:
+                    out.append("\\u").append(HEX[c >> 12]).append(HEX[(c >> 8) & 0xF]).append(HEX[(c >> 4) & 0xF])
+                       .append(HEX[c & 0xF]);
+                    break;
+            }
+        }
+        if (start < to)
+        {
+            out.append(s, start, to);
+        }
+    }
+}
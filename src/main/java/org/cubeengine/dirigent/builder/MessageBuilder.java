@@ -22,9 +22,17 @@
  */
 package org.cubeengine.dirigent.builder;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.cubeengine.dirigent.parser.component.Component;
 import org.cubeengine.dirigent.context.Context;
 import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.StyledText;
 import org.cubeengine.dirigent.parser.component.ComponentGroup;
 import org.cubeengine.dirigent.parser.component.ResolvedMacro;
 import org.cubeengine.dirigent.parser.component.TextComponent;
@@ -33,11 +41,99 @@ import org.cubeengine.dirigent.parser.component.UnresolvableMacro;
 /**
  * Uses a Builder to construct a message
  *
+ * Components are dispatched by their concrete class: the kind of every class is determined once and kept in a table,
+ * so building a component costs a single lookup. Custom component types can be plugged in with
+ * {@link #registerHandler(Class, ComponentHandler)}, components without a handler are passed to
+ * {@link #buildOther(Component, Object, Context)}.
+ *
+ * By default nested groups and the results of formatters are built recursively. With
+ * {@link #setIterative(boolean) iterative traversal} the tree is walked with an explicit work stack instead, so deeply
+ * nested components can't overflow the call stack, and the depth of the tree is limited by {@link #setMaxDepth(int)}.
+ *
  * @param <MessageT> the resulting MessageType
  * @param <BuilderT> the Builder Type
  */
 public abstract class MessageBuilder<MessageT, BuilderT>
 {
+    private static final int RESOLVED = 0;
+    private static final int UNRESOLVABLE = 1;
+    private static final int STYLED = 2;
+    private static final int TEXT = 3;
+    private static final int GROUP = 4;
+    private static final int HANDLER = 5;
+    private static final int OTHER = 6;
+
+    /**
+     * The registered handlers in the order of their registration.
+     */
+    private final Map<Class<?>, ComponentHandler<?, BuilderT>> handlers = new LinkedHashMap<Class<?>,
+        ComponentHandler<?, BuilderT>>();
+    /**
+     * The dispatch of the component classes, determined on first use.
+     */
+    private final ConcurrentMap<Class<?>, Dispatch> dispatch = new ConcurrentHashMap<Class<?>, Dispatch>();
+
+    /**
+     * The default maximum depth of component trees built iteratively.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 1024;
+
+    private boolean iterative = false;
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+
+    /**
+     * Sets whether component trees are built with an explicit work stack instead of recursion. In iterative mode
+     * nested groups are expanded by the traversal, {@link #buildGroup(ComponentGroup, Object, Context)} is only called
+     * for the root group.
+     *
+     * @param iterative whether to build iteratively
+     *
+     * @return fluent interface.
+     */
+    public MessageBuilder<MessageT, BuilderT> setIterative(boolean iterative)
+    {
+        this.iterative = iterative;
+        return this;
+    }
+
+    /**
+     * Returns whether component trees are built iteratively.
+     *
+     * @return whether to build iteratively
+     */
+    public boolean isIterative()
+    {
+        return iterative;
+    }
+
+    /**
+     * Sets the maximum depth of component trees built iteratively. Nested groups and the results of formatters each
+     * add a level.
+     *
+     * @param maxDepth the maximum depth
+     *
+     * @return fluent interface.
+     */
+    public MessageBuilder<MessageT, BuilderT> setMaxDepth(int maxDepth)
+    {
+        if (maxDepth <= 0)
+        {
+            throw new IllegalArgumentException("The maximum depth must be positive: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Returns the maximum depth of component trees built iteratively.
+     *
+     * @return the maximum depth
+     */
+    public int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
     /**
      * Constructs a new Builder
      *
@@ -64,12 +160,34 @@ public abstract class MessageBuilder<MessageT, BuilderT>
      */
     public void buildGroup(ComponentGroup group, BuilderT builder, Context context)
     {
+        if (isIterative())
+        {
+            buildIteratively(group, builder, context);
+            return;
+        }
         for (Component component : group.getComponents())
         {
+            if (isComplete(builder))
+            {
+                return;
+            }
             buildAny(component, builder, context);
         }
     }
 
+    /**
+     * Checks whether the builder doesn't accept any more content, e.g. because a length limit is reached. The
+     * remaining components of the message are skipped then, so their formatters don't run.
+     *
+     * @param builder the builder
+     *
+     * @return whether the builder is complete
+     */
+    protected boolean isComplete(BuilderT builder)
+    {
+        return false;
+    }
+
     /**
      * Appends a Component to the builder
      *
@@ -79,26 +197,189 @@ public abstract class MessageBuilder<MessageT, BuilderT>
      */
     protected final void buildAny(Component component, BuilderT builder, Context context)
     {
-        if (component instanceof ResolvedMacro)
+        if (component == null)
+        {
+            buildOther(null, builder, context);
+            return;
+        }
+        build(component, dispatchOf(component), builder, context);
+    }
+
+    /**
+     * Builds a component tree with an explicit work stack. Every frame of the stack holds the children of a group and
+     * the position of the next child to build, so the number of frames is the current depth of the tree.
+     *
+     * @param group the root group
+     * @param builder the builder
+     * @param context the context
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void buildIteratively(ComponentGroup group, BuilderT builder, Context context)
+    {
+        List<Component>[] frames = new List[16];
+        int[] positions = new int[16];
+        int depth = 1;
+        frames[0] = group.getComponents();
+
+        while (depth > 0)
         {
-            buildResolved((ResolvedMacro)component, builder, context);
+            final List<Component> children = frames[depth - 1];
+            final int position = positions[depth - 1];
+            if (position == children.size())
+            {
+                frames[--depth] = null;
+                continue;
+            }
+            if (isComplete(builder))
+            {
+                return;
+            }
+            positions[depth - 1] = position + 1;
+
+            final Component component = children.get(position);
+            if (component == null)
+            {
+                buildOther(null, builder, context);
+                continue;
+            }
+            final Dispatch d = dispatchOf(component);
+            final List<Component> nested;
+            if (d.kind == GROUP)
+            {
+                nested = ((ComponentGroup)component).getComponents();
+            }
+            else if (d.kind == RESOLVED)
+            {
+                nested = Collections.singletonList(((ResolvedMacro)component).process(context));
+            }
+            else
+            {
+                build(component, d, builder, context);
+                continue;
+            }
+
+            if (depth >= getMaxDepth())
+            {
+                throw new IllegalStateException("The component tree exceeds the maximum depth of " + getMaxDepth());
+            }
+            if (depth == frames.length)
+            {
+                frames = Arrays.copyOf(frames, depth * 2);
+                positions = Arrays.copyOf(positions, depth * 2);
+            }
+            frames[depth] = nested;
+            positions[depth++] = 0;
         }
-        else if (component instanceof UnresolvableMacro)
+    }
+
+    private Dispatch dispatchOf(Component component)
+    {
+        Dispatch d = dispatch.get(component.getClass());
+        if (d == null)
         {
-            buildUnresolvable((UnresolvableMacro)component, builder, context);
+            d = dispatchOf(component.getClass());
+            dispatch.put(component.getClass(), d);
         }
-        else if (component instanceof TextComponent)
+        return d;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void build(Component component, Dispatch d, BuilderT builder, Context context)
+    {
+        switch (d.kind)
         {
-            buildText((TextComponent)component, builder, context);
+            case RESOLVED:
+                buildResolved((ResolvedMacro)component, builder, context);
+                break;
+            case UNRESOLVABLE:
+                buildUnresolvable((UnresolvableMacro)component, builder, context);
+                break;
+            case STYLED:
+                buildStyled((StyledText)component, builder, context);
+                break;
+            case TEXT:
+                buildText((TextComponent)component, builder, context);
+                break;
+            case GROUP:
+                buildGroup((ComponentGroup)component, builder, context);
+                break;
+            case HANDLER:
+                ((ComponentHandler<Component, BuilderT>)d.handler).build(component, builder, context);
+                break;
+            default:
+                buildOther(component, builder, context);
+                break;
         }
-        else if (component instanceof ComponentGroup)
+    }
+
+    /**
+     * Determines the dispatch of a component class. Registered handlers take precedence over the built-in component
+     * types.
+     *
+     * @param type the component class
+     *
+     * @return the dispatch
+     */
+    private Dispatch dispatchOf(Class<?> type)
+    {
+        synchronized (handlers)
+        {
+            for (Map.Entry<Class<?>, ComponentHandler<?, BuilderT>> entry : handlers.entrySet())
+            {
+                if (entry.getKey().isAssignableFrom(type))
+                {
+                    return new Dispatch(HANDLER, entry.getValue());
+                }
+            }
+        }
+        return new Dispatch(kindOf(type), null);
+    }
+
+    private static int kindOf(Class<?> type)
+    {
+        if (ResolvedMacro.class.isAssignableFrom(type))
+        {
+            return RESOLVED;
+        }
+        if (UnresolvableMacro.class.isAssignableFrom(type))
         {
-            buildGroup((ComponentGroup)component, builder, context);
+            return UNRESOLVABLE;
         }
-        else
+        if (StyledText.class.isAssignableFrom(type))
         {
-            buildOther(component, builder, context);
+            return STYLED;
         }
+        if (TextComponent.class.isAssignableFrom(type))
+        {
+            return TEXT;
+        }
+        if (ComponentGroup.class.isAssignableFrom(type))
+        {
+            return GROUP;
+        }
+        return OTHER;
+    }
+
+    /**
+     * Registers a handler for a component type, including its sub types. Handlers take precedence over the built-in
+     * component types and are checked in the order of their registration. They should be registered before the
+     * builder is used.
+     *
+     * @param type the component type
+     * @param handler the handler
+     * @param <C> the component type
+     *
+     * @return fluent interface.
+     */
+    public <C extends Component> MessageBuilder<MessageT, BuilderT> registerHandler(
+        Class<C> type, ComponentHandler<? super C, BuilderT> handler)
+    {
+        synchronized (handlers)
+        {
+            handlers.put(type, handler);
+            dispatch.clear();
+        }
+        return this;
     }
 
     /**
@@ -110,6 +391,20 @@ public abstract class MessageBuilder<MessageT, BuilderT>
      */
     protected abstract void buildText(TextComponent component, BuilderT builder, Context context);
 
+    /**
+     * Appends a {@link StyledText} to the builder. The runs can be walked with {@link StyledText#getRunCount()},
+     * {@link StyledText#getRunEnd(int)} and {@link StyledText#getRunStyle(int)}. By default the styles are dropped
+     * and the plain text is appended with {@link #buildText(TextComponent, Object, Context)}.
+     *
+     * @param component the styled text
+     * @param builder the builder
+     * @param context the context
+     */
+    protected void buildStyled(StyledText component, BuilderT builder, Context context)
+    {
+        buildText(component, builder, context);
+    }
+
     /**
      * Appends a {@link ResolvedMacro} Component to the builder
      *
@@ -119,7 +414,11 @@ public abstract class MessageBuilder<MessageT, BuilderT>
      */
     protected final void buildResolved(ResolvedMacro c, BuilderT builder, Context context)
     {
-        Component processed = c.getFormatter().process(c.getInput(), context, c.getArguments());
+        if (isComplete(builder))
+        {
+            return;
+        }
+        Component processed = c.process(context);
         buildAny(processed, builder, context);
     }
 
@@ -141,4 +440,19 @@ public abstract class MessageBuilder<MessageT, BuilderT>
      * @param context the context
      */
     protected abstract void buildOther(Component component, BuilderT builder, Context context);
+
+    /**
+     * The dispatch of a component class.
+     */
+    private static final class Dispatch
+    {
+        private final int kind;
+        private final ComponentHandler<?, ?> handler;
+
+        private Dispatch(int kind, ComponentHandler<?, ?> handler)
+        {
+            this.kind = kind;
+            this.handler = handler;
+        }
+    }
 }
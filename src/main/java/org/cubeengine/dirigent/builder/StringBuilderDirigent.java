@@ -22,14 +22,23 @@
  */
 package org.cubeengine.dirigent.builder;
 
+import java.util.List;
+import org.cubeengine.dirigent.context.Context;
 import org.cubeengine.dirigent.formatter.Formatter;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
 
 /**
  * A {@link org.cubeengine.dirigent.Dirigent} implementation creating String compositions by using a {@link
- * StringBuilder}.
+ * StringBuilder}. Messages can be truncated or split at a character budget, skipping the formatters of the macros
+ * beyond it.
  */
 public class StringBuilderDirigent extends BuilderDirigent<String, StringBuilder>
 {
+    /**
+     * Builds the truncated and split messages with the configuration and handlers of the message builder.
+     */
+    private final BoundedMessageBuilder boundedBuilder = new BoundedMessageBuilder(getMessageBuilder());
+
     /**
      * Constructor.
      */
@@ -47,4 +56,88 @@ public class StringBuilderDirigent extends BuilderDirigent<String, StringBuilder
     {
         super(new StringMessageBuilder(), defaultFormatter);
     }
+
+    /**
+     * Composes a message of at most the given length. A longer message is cut and ends with the ellipsis, the
+     * formatters of the cut off macros don't run.
+     *
+     * @param context The compose context.
+     * @param maxLength The maximum length including the ellipsis.
+     * @param ellipsis The text replacing the end of a truncated message, e.g. "...".
+     * @param source The source message.
+     * @param inputs The message parameters.
+     *
+     * @return the composed message.
+     */
+    public String composeTruncated(Context context, int maxLength, String ellipsis, String source, Object... inputs)
+    {
+        BoundedStringBuilder builder = BoundedStringBuilder.truncating(maxLength, ellipsis);
+        build(builder, resolve(context, source, inputs), context);
+        return builder.toString();
+    }
+
+    /**
+     * Composes the message of the given key from the {@link org.cubeengine.dirigent.MessageSource} like
+     * {@link #composeTruncated(Context, int, String, String, Object...)}.
+     *
+     * @param context The compose context.
+     * @param maxLength The maximum length including the ellipsis.
+     * @param ellipsis The text replacing the end of a truncated message, e.g. "...".
+     * @param key The key of the message.
+     * @param inputs The message parameters.
+     *
+     * @return the composed message.
+     */
+    public String composeMessageTruncated(Context context, int maxLength, String ellipsis, String key,
+                                          Object... inputs)
+    {
+        BoundedStringBuilder builder = BoundedStringBuilder.truncating(maxLength, ellipsis);
+        build(builder, resolveMessage(context, key, inputs), context);
+        return builder.toString();
+    }
+
+    /**
+     * Composes a message split into chunks of at most the given length. The message is split at whitespace if
+     * possible. If the maximum number of chunks is reached, the remaining message is dropped and the formatters of its
+     * macros don't run.
+     *
+     * @param context The compose context.
+     * @param maxLength The maximum length of a chunk.
+     * @param maxChunks The maximum number of chunks.
+     * @param source The source message.
+     * @param inputs The message parameters.
+     *
+     * @return the chunks of the message.
+     */
+    public List<String> composeSplit(Context context, int maxLength, int maxChunks, String source, Object... inputs)
+    {
+        BoundedStringBuilder builder = BoundedStringBuilder.splitting(maxLength, maxChunks);
+        build(builder, resolve(context, source, inputs), context);
+        return builder.getChunks();
+    }
+
+    /**
+     * Composes the message of the given key from the {@link org.cubeengine.dirigent.MessageSource} like
+     * {@link #composeSplit(Context, int, int, String, Object...)}.
+     *
+     * @param context The compose context.
+     * @param maxLength The maximum length of a chunk.
+     * @param maxChunks The maximum number of chunks.
+     * @param key The key of the message.
+     * @param inputs The message parameters.
+     *
+     * @return the chunks of the message.
+     */
+    public List<String> composeMessageSplit(Context context, int maxLength, int maxChunks, String key,
+                                            Object... inputs)
+    {
+        BoundedStringBuilder builder = BoundedStringBuilder.splitting(maxLength, maxChunks);
+        build(builder, resolveMessage(context, key, inputs), context);
+        return builder.getChunks();
+    }
+
+    private void build(BoundedStringBuilder builder, ComponentGroup components, Context context)
+    {
+        boundedBuilder.buildGroup(components, builder, context);
+    }
 }
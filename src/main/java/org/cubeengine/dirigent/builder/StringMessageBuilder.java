@@ -22,6 +22,7 @@
  */
 package org.cubeengine.dirigent.builder;
 
+import org.cubeengine.dirigent.parser.CharSequenceText;
 import org.cubeengine.dirigent.parser.component.Component;
 import org.cubeengine.dirigent.context.Context;
 import org.cubeengine.dirigent.parser.component.TextComponent;
@@ -37,7 +38,14 @@ public class StringMessageBuilder extends MessageBuilder<String, StringBuilder>
     @Override
     public void buildText(TextComponent component, StringBuilder builder, Context context)
     {
-        builder.append(component.getText());
+        if (component instanceof CharSequenceText)
+        {
+            ((CharSequenceText)component).appendTo(builder);
+        }
+        else
+        {
+            builder.append(component.getText());
+        }
     }
 
     @Override
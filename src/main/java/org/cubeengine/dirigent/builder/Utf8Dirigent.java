@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import java.nio.ByteBuffer;
+import org.cubeengine.dirigent.MessageCatalog;
+import org.cubeengine.dirigent.MessageSource;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.formatter.Formatter;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
+
+/**
+ * A {@link org.cubeengine.dirigent.Dirigent} implementation composing UTF-8 encoded messages into {@link ByteBuffer}s
+ * with the {@link Utf8MessageBuilder}. The messages of its {@link MessageSource} are compiled with UTF-8 encoded
+ * literal texts, so only the formatted values are encoded on composition.
+ */
+public class Utf8Dirigent extends BuilderDirigent<ByteBuffer, Utf8Output>
+{
+    private final Utf8MessageBuilder builder;
+
+    /**
+     * Constructor. Uses heap buffers.
+     */
+    public Utf8Dirigent()
+    {
+        this(new Utf8MessageBuilder());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param builder The builder to use.
+     */
+    public Utf8Dirigent(Utf8MessageBuilder builder)
+    {
+        super(builder);
+        this.builder = builder;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param builder The builder to use.
+     * @param defaultFormatter The default formatter.
+     */
+    public Utf8Dirigent(Utf8MessageBuilder builder, Formatter<Object> defaultFormatter)
+    {
+        super(builder, defaultFormatter);
+        this.builder = builder;
+    }
+
+    /**
+     * Returns the allocator providing the buffers of the messages.
+     *
+     * @return the allocator.
+     */
+    public ByteBufferAllocator getAllocator()
+    {
+        return builder.getAllocator();
+    }
+
+    /**
+     * Composes a message into the given buffer, starting at its position. If the buffer is too small, the message is
+     * composed into a bigger buffer of the allocator, which contains the previous content of the given buffer as well.
+     * That buffer should be passed back to {@link ByteBufferAllocator#release(ByteBuffer)} once it was consumed.
+     *
+     * @param target The buffer.
+     * @param context The compose context.
+     * @param source The source message.
+     * @param inputs The message parameters.
+     *
+     * @return the flipped buffer containing the message, which is the given buffer unless it was too small.
+     */
+    public ByteBuffer composeInto(ByteBuffer target, Context context, String source, Object... inputs)
+    {
+        return build(target, resolve(context, source, inputs), context);
+    }
+
+    /**
+     * Composes the message of the given key from the {@link MessageSource} into the given buffer like
+     * {@link #composeInto(ByteBuffer, Context, String, Object...)}.
+     *
+     * @param target The buffer.
+     * @param context The compose context.
+     * @param key The key of the message.
+     * @param inputs The message parameters.
+     *
+     * @return the flipped buffer containing the message, which is the given buffer unless it was too small.
+     */
+    public ByteBuffer composeMessageInto(ByteBuffer target, Context context, String key, Object... inputs)
+    {
+        return build(target, resolveMessage(context, key, inputs), context);
+    }
+
+    private ByteBuffer build(ByteBuffer target, ComponentGroup components, Context context)
+    {
+        Utf8Output output = builder.newBuilder(target);
+        builder.buildGroup(components, output, context);
+        return builder.finalize(output, context);
+    }
+
+    @Override
+    protected MessageCatalog createMessageCatalog(MessageSource messageSource)
+    {
+        return new MessageCatalog(messageSource, Utf8Output.UTF_8);
+    }
+}
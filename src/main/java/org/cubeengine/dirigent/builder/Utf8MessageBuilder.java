@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import java.nio.ByteBuffer;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.EncodedText;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.parser.component.TextComponent;
+import org.cubeengine.dirigent.parser.component.UnresolvableMacro;
+import org.cubeengine.dirigent.parser.element.Macro;
+import org.cubeengine.dirigent.parser.element.NamedMacro;
+
+/**
+ * Builds UTF-8 encoded messages in a {@link ByteBuffer}, ready to be written to a channel. Texts are encoded directly
+ * into the buffer without creating a {@link String} of the whole message first. {@link EncodedText}s, e.g. the
+ * literal texts of messages compiled by a {@link org.cubeengine.dirigent.MessageCatalog}, are copied as they are.
+ *
+ * The finalized buffer is flipped, so it is ready to be read.
+ */
+public class Utf8MessageBuilder extends MessageBuilder<ByteBuffer, Utf8Output>
+{
+    /**
+     * The default initial capacity of the buffers.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final ByteBufferAllocator allocator;
+    private final int initialCapacity;
+
+    /**
+     * Constructor. Uses heap buffers.
+     */
+    public Utf8MessageBuilder()
+    {
+        this(ByteBufferAllocator.HEAP, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param allocator The allocator providing the buffers.
+     * @param initialCapacity The capacity of the buffers requested for a new message.
+     */
+    public Utf8MessageBuilder(ByteBufferAllocator allocator, int initialCapacity)
+    {
+        this.allocator = allocator;
+        this.initialCapacity = initialCapacity;
+    }
+
+    /**
+     * Returns the allocator providing the buffers.
+     *
+     * @return the allocator.
+     */
+    public ByteBufferAllocator getAllocator()
+    {
+        return allocator;
+    }
+
+    @Override
+    public Utf8Output newBuilder()
+    {
+        return new Utf8Output(allocator.allocate(initialCapacity), allocator, true);
+    }
+
+    /**
+     * Creates a builder writing into the given buffer, starting at its position. If the buffer is too small, it is
+     * replaced by one of the allocator.
+     *
+     * @param target The buffer.
+     *
+     * @return the builder.
+     */
+    public Utf8Output newBuilder(ByteBuffer target)
+    {
+        return new Utf8Output(target, allocator, false);
+    }
+
+    @Override
+    public ByteBuffer finalize(Utf8Output output, Context context)
+    {
+        output.finish();
+        final ByteBuffer buffer = output.getBuffer();
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    protected void buildText(TextComponent component, Utf8Output builder, Context context)
+    {
+        if (component instanceof EncodedText)
+        {
+            builder.write((EncodedText)component);
+        }
+        else
+        {
+            builder.write(component.getText());
+        }
+    }
+
+    @Override
+    protected void buildUnresolvable(UnresolvableMacro component, Utf8Output builder, Context context)
+    {
+        Macro macro = component.getMacro();
+        if (macro instanceof NamedMacro)
+        {
+            builder.write("{{unresolved: ").write(((NamedMacro)macro).getName()).write("}}");
+        }
+        else
+        {
+            builder.write("{{unresolved}}");
+        }
+    }
+
+    @Override
+    protected void buildOther(Component component, Utf8Output builder, Context context)
+    {
+        throw new IllegalStateException("Custom components not supported"); // No custom Components
+    }
+}
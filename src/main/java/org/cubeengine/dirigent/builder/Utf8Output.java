@@ -0,0 +1,265 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import org.cubeengine.dirigent.parser.EncodedText;
+
+/**
+ * The builder of the {@link Utf8MessageBuilder}. It encodes text to UTF-8 directly into a {@link ByteBuffer}, which
+ * is replaced by a bigger one of the {@link ByteBufferAllocator} if the message doesn't fit.
+ */
+public final class Utf8Output
+{
+    /**
+     * The UTF-8 charset.
+     */
+    public static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAX_BYTES_PER_CHAR = 3;
+
+    private final ByteBufferAllocator allocator;
+    private ByteBuffer buffer;
+    /**
+     * Whether the current buffer was allocated by the allocator and has to be released when it is replaced.
+     */
+    private boolean allocated;
+    /**
+     * A high surrogate ending the previous text, which is encoded together with the low surrogate starting the next
+     * text. It is 0 if there is none.
+     */
+    private char pendingHigh;
+
+    /**
+     * Constructor.
+     *
+     * @param buffer the buffer to write into.
+     * @param allocator the allocator providing bigger buffers.
+     * @param allocated whether the buffer was provided by the allocator.
+     */
+    Utf8Output(ByteBuffer buffer, ByteBufferAllocator allocator, boolean allocated)
+    {
+        this.buffer = buffer;
+        this.allocator = allocator;
+        this.allocated = allocated;
+    }
+
+    /**
+     * Returns the buffer which is written to. It might be a different one than the initial buffer, if that one was too
+     * small.
+     *
+     * @return the buffer.
+     */
+    public ByteBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * Writes text which is already encoded. Texts encoded with a different charset than UTF-8 are encoded again.
+     *
+     * @param text the text.
+     *
+     * @return fluent interface.
+     */
+    public Utf8Output write(EncodedText text)
+    {
+        if (!UTF_8.equals(text.getCharset()))
+        {
+            return write(text.getText());
+        }
+        writePending(null);
+        ensureRemaining(text.getByteCount());
+        text.putBytes(buffer);
+        return this;
+    }
+
+    /**
+     * Encodes the given text to UTF-8. Unpaired surrogates are replaced by '?' like {@link String#getBytes(Charset)}
+     * does. A surrogate pair may be split across two texts, e.g. if a text is written char by char.
+     *
+     * @param text the text.
+     *
+     * @return fluent interface.
+     */
+    public Utf8Output write(CharSequence text)
+    {
+        final int length = text.length();
+        if (length == 0)
+        {
+            return this;
+        }
+        final int start = writePending(text);
+        if (buffer.remaining() < (length - start) * MAX_BYTES_PER_CHAR)
+        {
+            // the worst case doesn't fit, so the buffer is only replaced if the exact length doesn't fit either
+            ensureRemaining(encodedLength(text, start));
+        }
+        final ByteBuffer buffer = this.buffer;
+        char c;
+        for (int i = start; i < length; i++)
+        {
+            c = text.charAt(i);
+            if (c < 0x80)
+            {
+                buffer.put((byte)c);
+            }
+            else if (c < 0x800)
+            {
+                buffer.put((byte)(0xC0 | c >> 6));
+                buffer.put((byte)(0x80 | c & 0x3F));
+            }
+            else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+            {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1)))
+                {
+                    putCodePoint(buffer, Character.toCodePoint(c, text.charAt(++i)));
+                }
+                else if (Character.isHighSurrogate(c) && i + 1 == length)
+                {
+                    pendingHigh = c;
+                }
+                else
+                {
+                    buffer.put((byte)'?');
+                }
+            }
+            else
+            {
+                buffer.put((byte)(0xE0 | c >> 12));
+                buffer.put((byte)(0x80 | c >> 6 & 0x3F));
+                buffer.put((byte)(0x80 | c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Counts the bytes of the given text encoded by {@link #write(CharSequence)}.
+     *
+     * @param text the text.
+     *
+     * @return the number of bytes.
+     */
+    static int encodedLength(CharSequence text)
+    {
+        return encodedLength(text, 0);
+    }
+
+    private static int encodedLength(CharSequence text, int start)
+    {
+        final int length = text.length();
+        int bytes = 0;
+        char c;
+        for (int i = start; i < length; i++)
+        {
+            c = text.charAt(i);
+            if (c < 0x80)
+            {
+                bytes++;
+            }
+            else if (c < 0x800)
+            {
+                bytes += 2;
+            }
+            else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+            {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1)))
+                {
+                    i++;
+                    bytes += 4;
+                }
+                else
+                {
+                    bytes++;
+                }
+            }
+            else
+            {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the pending high surrogate, together with the low surrogate starting the given text if there is one.
+     *
+     * @param text the next text or null.
+     *
+     * @return the number of chars of the text which have been written.
+     */
+    private int writePending(CharSequence text)
+    {
+        final char high = pendingHigh;
+        if (high == 0)
+        {
+            return 0;
+        }
+        pendingHigh = 0;
+        if (text != null && Character.isLowSurrogate(text.charAt(0)))
+        {
+            ensureRemaining(4);
+            putCodePoint(buffer, Character.toCodePoint(high, text.charAt(0)));
+            return 1;
+        }
+        ensureRemaining(1);
+        buffer.put((byte)'?');
+        return 0;
+    }
+
+    /**
+     * Finishes the output, a pending high surrogate without its low surrogate is written as '?'.
+     */
+    void finish()
+    {
+        writePending(null);
+    }
+
+    private static void putCodePoint(ByteBuffer buffer, int codePoint)
+    {
+        buffer.put((byte)(0xF0 | codePoint >> 18));
+        buffer.put((byte)(0x80 | codePoint >> 12 & 0x3F));
+        buffer.put((byte)(0x80 | codePoint >> 6 & 0x3F));
+        buffer.put((byte)(0x80 | codePoint & 0x3F));
+    }
+
+    private void ensureRemaining(int bytes)
+    {
+        if (buffer.remaining() >= bytes)
+        {
+            return;
+        }
+        final int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+        final ByteBuffer bigger = allocator.allocate(capacity);
+        buffer.flip();
+        bigger.put(buffer);
+        if (allocated)
+        {
+            allocator.release(buffer);
+        }
+        buffer = bigger;
+        allocated = true;
+    }
+}
@@ -65,6 +65,16 @@ public class Arguments
         return values;
     }
 
+    /**
+     * Returns the parameters (name-value pairs).
+     *
+     * @return the parameters
+     */
+    public Map<String, String> getParameters()
+    {
+        return unmodifiableMap(parameters);
+    }
+
     /**
      * Returns the parameter value for the given name or {@code null} if not found.
      *
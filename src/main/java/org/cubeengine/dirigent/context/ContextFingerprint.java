@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.context;
+
+import java.util.Currency;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Represents the effective values of the well known properties of a {@link Context}. Two contexts having an equal
+ * fingerprint result in the same output of the formatters shipped with this library, so the fingerprint can be used
+ * to group contexts or as part of cache keys.
+ * <p>
+ * Only the properties {@link Contexts#LOCALE}, {@link Contexts#TIMEZONE} and {@link Contexts#CURRENCY} are
+ * considered. Their default values are resolved, so a context without an explicit locale is equal to a context with
+ * the default locale.
+ */
+public final class ContextFingerprint
+{
+    private final Locale locale;
+    private final TimeZone timeZone;
+    private final Currency currency;
+    private final int hashCode;
+
+    private ContextFingerprint(Locale locale, TimeZone timeZone, Currency currency)
+    {
+        this.locale = locale;
+        this.timeZone = timeZone;
+        this.currency = currency;
+
+        int result = locale != null ? locale.hashCode() : 0;
+        result = 31 * result + (timeZone != null ? timeZone.getID().hashCode() : 0);
+        result = 31 * result + (currency != null ? currency.hashCode() : 0);
+        this.hashCode = result;
+    }
+
+    /**
+     * Returns the locale of the fingerprinted context.
+     *
+     * @return the locale.
+     */
+    public Locale getLocale()
+    {
+        return locale;
+    }
+
+    /**
+     * Returns the time zone of the fingerprinted context.
+     *
+     * @return the time zone.
+     */
+    public TimeZone getTimeZone()
+    {
+        return timeZone;
+    }
+
+    /**
+     * Returns the currency of the fingerprinted context.
+     *
+     * @return the currency, might be null.
+     */
+    public Currency getCurrency()
+    {
+        return currency;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof ContextFingerprint))
+        {
+            return false;
+        }
+
+        final ContextFingerprint that = (ContextFingerprint)o;
+
+        if (hashCode != that.hashCode)
+        {
+            return false;
+        }
+        if (locale != null ? !locale.equals(that.locale) : that.locale != null)
+        {
+            return false;
+        }
+        if (!sameTimeZone(timeZone, that.timeZone))
+        {
+            return false;
+        }
+        return currency != null ? currency.equals(that.currency) : that.currency == null;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ContextFingerprint{" + "locale=" + locale + ", timeZone=" + (timeZone == null ? null : timeZone.getID())
+            + ", currency=" + currency + '}';
+    }
+
+    private static boolean sameTimeZone(TimeZone a, TimeZone b)
+    {
+        if (a == null || b == null)
+        {
+            return a == b;
+        }
+        return a.getID().equals(b.getID()) && a.hasSameRules(b);
+    }
+
+    /**
+     * Creates the fingerprint of the given context.
+     *
+     * @param context the context
+     *
+     * @return the fingerprint
+     */
+    public static ContextFingerprint of(Context context)
+    {
+        return new ContextFingerprint(context.get(Contexts.LOCALE), context.get(Contexts.TIMEZONE),
+                                      context.get(Contexts.CURRENCY));
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+/**
+ * Caches the last formatted second of a date format. Timestamps are mostly "now", so many of them fall into the same
+ * second. Those are served from the cache and only the milliseconds are patched into the cached text. Whether and
+ * where the format renders milliseconds is detected by formatting probes once, so any pattern is supported. Patterns
+ * which render milliseconds in another way than three digits aren't cached. Afterwards a new second costs a single
+ * render, unless the width of the text before the milliseconds changed and they have to be located again.
+ * <p>
+ * Instances are thread safe. The cached second is replaced atomically.
+ */
+abstract class CachedDateFormat
+{
+    private static final int UNKNOWN = 0;
+    private static final int NO_MILLIS = 1;
+    private static final int PATCH_MILLIS = 2;
+    private static final int UNCACHEABLE = 3;
+
+    private volatile int mode = UNKNOWN;
+    private volatile Entry entry;
+
+    /**
+     * Formats the given timestamp without using the cache.
+     *
+     * @param millis the timestamp in milliseconds since the epoch
+     *
+     * @return the formatted timestamp
+     */
+    protected abstract String render(long millis);
+
+    /**
+     * Formats the given timestamp.
+     *
+     * @param millis the timestamp in milliseconds since the epoch
+     *
+     * @return the formatted timestamp
+     */
+    String format(long millis)
+    {
+        final long second = millis >= 0 ? millis / 1000 : (millis - 999) / 1000;
+        final int milliOfSecond = (int)(millis - second * 1000);
+
+        final Entry entry = this.entry;
+        if (entry != null && entry.second == second)
+        {
+            if (entry.millisOffset < 0)
+            {
+                return entry.text;
+            }
+            return patch(entry, milliOfSecond);
+        }
+        if (mode == UNCACHEABLE)
+        {
+            return render(millis);
+        }
+        return update(second, milliOfSecond);
+    }
+
+    /**
+     * Formats a timestamp of a new second and caches it if the pattern allows it.
+     */
+    private String update(long second, int milliOfSecond)
+    {
+        final long base = second * 1000;
+        if (mode == UNKNOWN)
+        {
+            return detect(second, milliOfSecond);
+        }
+
+        final String text = render(base + milliOfSecond);
+        if (mode == NO_MILLIS)
+        {
+            this.entry = new Entry(second, text, -1);
+            return text;
+        }
+        if (mode == PATCH_MILLIS)
+        {
+            final Entry previous = this.entry;
+            if (previous != null && previous.millisOffset >= 0 && hasMillisAt(text, previous.chars.length,
+                                                                               previous.millisOffset, milliOfSecond))
+            {
+                this.entry = new Entry(second, text, previous.millisOffset);
+                return text;
+            }
+            // the layout changed, locate the milliseconds again
+            final String text987 = render(base + 987);
+            final int offset = findMillis(text987, render(base + 654));
+            if (offset >= 0)
+            {
+                this.entry = new Entry(second, text987, offset);
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Detects the mode of the format with probes of the given second and caches the second if possible.
+     */
+    private String detect(long second, int milliOfSecond)
+    {
+        final long base = second * 1000;
+        final String text987 = render(base + 987);
+        final String text654 = render(base + 654);
+        final int mode = detectMode(text987, text654, render(base + 5));
+        if (mode == NO_MILLIS)
+        {
+            this.entry = new Entry(second, text987, -1);
+        }
+        else if (mode == PATCH_MILLIS)
+        {
+            final Entry entry = new Entry(second, text987, findMillis(text987, text654));
+            this.entry = entry;
+            this.mode = mode;
+            return patch(entry, milliOfSecond);
+        }
+        this.mode = mode;
+        return mode == NO_MILLIS ? text987 : render(base + milliOfSecond);
+    }
+
+    /**
+     * Checks whether the given text has the given length and the given milliseconds at the given offset.
+     */
+    private static boolean hasMillisAt(String text, int length, int offset, int milliOfSecond)
+    {
+        return text.length() == length && text.charAt(offset) == '0' + milliOfSecond / 100
+            && text.charAt(offset + 1) == '0' + milliOfSecond / 10 % 10
+            && text.charAt(offset + 2) == '0' + milliOfSecond % 10;
+    }
+
+    private static int detectMode(String text987, String text654, String text5)
+    {
+        if (text987.equals(text654) && text987.equals(text5))
+        {
+            return NO_MILLIS;
+        }
+        final int offset = findMillis(text987, text654);
+        if (offset >= 0 && text5.length() == text987.length() && text5.startsWith("005", offset)
+            && text5.regionMatches(0, text987, 0, offset)
+            && text5.regionMatches(offset + 3, text987, offset + 3, text987.length() - offset - 3))
+        {
+            return PATCH_MILLIS;
+        }
+        return UNCACHEABLE;
+    }
+
+    /**
+     * Finds the offset of the milliseconds within two texts formatted with 987 and 654 milliseconds.
+     *
+     * @return the offset or -1 if the texts differ in any other way.
+     */
+    private static int findMillis(String text987, String text654)
+    {
+        if (text987.length() != text654.length())
+        {
+            return -1;
+        }
+        int offset = 0;
+        while (offset < text987.length() && text987.charAt(offset) == text654.charAt(offset))
+        {
+            offset++;
+        }
+        if (!text987.startsWith("987", offset) || !text654.startsWith("654", offset))
+        {
+            return -1;
+        }
+        if (!text987.regionMatches(offset + 3, text654, offset + 3, text987.length() - offset - 3))
+        {
+            return -1;
+        }
+        return offset;
+    }
+
+    private static String patch(Entry entry, int milliOfSecond)
+    {
+        final char[] chars = entry.chars.clone();
+        chars[entry.millisOffset] = (char)('0' + milliOfSecond / 100);
+        chars[entry.millisOffset + 1] = (char)('0' + milliOfSecond / 10 % 10);
+        chars[entry.millisOffset + 2] = (char)('0' + milliOfSecond % 10);
+        return new String(chars);
+    }
+
+    /**
+     * The cached second.
+     */
+    private static final class Entry
+    {
+        private final long second;
+        private final String text;
+        private final char[] chars;
+        private final int millisOffset;
+
+        private Entry(long second, String text, int millisOffset)
+        {
+            this.second = second;
+            this.text = text;
+            this.chars = text.toCharArray();
+            this.millisOffset = millisOffset;
+        }
+    }
+}
@@ -0,0 +1,545 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An immutable and thread safe replacement of a configured {@link DecimalFormat}. The affixes, separators and digit
+ * limits are taken from the format once, afterwards {@code long} values and the shortest round-trip digits of
+ * {@code double} values are rendered straight into a char buffer. The output is the same as the one of the
+ * {@link DecimalFormat} of Java 8 and later, including its fast path for common {@code double} formats.
+ * <p>
+ * Exponential patterns, rounding modes other than {@link RoundingMode#HALF_EVEN}, {@link BigDecimal}s, big
+ * {@link BigInteger}s and overflowing multiplications aren't supported. In those cases the format methods return
+ * null and the caller has to use the {@link DecimalFormat}.
+ */
+final class CompiledNumberFormat
+{
+    /**
+     * The number of integer digits {@link DecimalFormat} renders at most.
+     */
+    private static final int MAX_INTEGER_DIGITS = 309;
+    /**
+     * The number of fraction digits {@link DecimalFormat} renders at most.
+     */
+    private static final int MAX_FRACTION_DIGITS = 340;
+
+    /**
+     * The format used for every {@link NumberFormat} which can't be compiled.
+     */
+    private static final CompiledNumberFormat UNSUPPORTED = new CompiledNumberFormat();
+
+    private final boolean supported;
+
+    private final char[] positivePrefix;
+    private final char[] positiveSuffix;
+    private final char[] negativePrefix;
+    private final char[] negativeSuffix;
+    private final int multiplier;
+    /**
+     * The grouping size or 0 if grouping isn't used.
+     */
+    private final int groupingSize;
+    private final int minIntegerDigits;
+    private final int maxIntegerDigits;
+    private final int minFractionDigits;
+    private final int maxFractionDigits;
+    private final boolean decimalSeparatorAlwaysShown;
+    /**
+     * Whether {@link DecimalFormat} uses its fast path for {@code double} values.
+     */
+    private final boolean fastPath;
+
+    private final char zeroDigit;
+    private final char groupingSeparator;
+    private final char decimalSeparator;
+    private final String nan;
+    private final char[] infinity;
+
+    private CompiledNumberFormat()
+    {
+        this.supported = false;
+        this.positivePrefix = this.positiveSuffix = this.negativePrefix = this.negativeSuffix = null;
+        this.multiplier = this.groupingSize = 0;
+        this.minIntegerDigits = this.maxIntegerDigits = this.minFractionDigits = this.maxFractionDigits = 0;
+        this.decimalSeparatorAlwaysShown = false;
+        this.fastPath = false;
+        this.zeroDigit = this.groupingSeparator = this.decimalSeparator = 0;
+        this.nan = null;
+        this.infinity = null;
+    }
+
+    private CompiledNumberFormat(DecimalFormat format, char zeroDigit, char groupingSeparator, char decimalSeparator)
+    {
+        this.supported = true;
+        this.positivePrefix = format.getPositivePrefix().toCharArray();
+        this.positiveSuffix = format.getPositiveSuffix().toCharArray();
+        this.negativePrefix = format.getNegativePrefix().toCharArray();
+        this.negativeSuffix = format.getNegativeSuffix().toCharArray();
+        this.multiplier = format.getMultiplier();
+        this.groupingSize = format.isGroupingUsed() ? format.getGroupingSize() : 0;
+        this.minIntegerDigits = Math.min(format.getMinimumIntegerDigits(), MAX_INTEGER_DIGITS);
+        this.maxIntegerDigits = Math.min(format.getMaximumIntegerDigits(), MAX_INTEGER_DIGITS);
+        this.minFractionDigits = Math.min(format.getMinimumFractionDigits(), MAX_FRACTION_DIGITS);
+        this.maxFractionDigits = Math.min(format.getMaximumFractionDigits(), MAX_FRACTION_DIGITS);
+        this.decimalSeparatorAlwaysShown = format.isDecimalSeparatorAlwaysShown();
+        this.fastPath = isFastPath(format);
+
+        final DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+        this.zeroDigit = zeroDigit;
+        this.groupingSeparator = groupingSeparator;
+        this.decimalSeparator = decimalSeparator;
+        this.nan = symbols.getNaN();
+        this.infinity = symbols.getInfinity().toCharArray();
+    }
+
+    /**
+     * Compiles the given {@link NumberFormat}. The format isn't modified.
+     *
+     * @param format the format.
+     *
+     * @return the compiled format. Its format methods always return null if the format isn't supported.
+     */
+    static CompiledNumberFormat compile(NumberFormat format)
+    {
+        if (!(format instanceof DecimalFormat) || format.getRoundingMode() != RoundingMode.HALF_EVEN)
+        {
+            return UNSUPPORTED;
+        }
+        final DecimalFormat decimalFormat = (DecimalFormat)format;
+        if (decimalFormat.getMultiplier() == 0)
+        {
+            return UNSUPPORTED;
+        }
+
+        // The separators depend on whether it is a currency format, therefore they are read from a probe of the
+        // format itself. This also detects exponential patterns which don't render the expected shape.
+        final DecimalFormat probe = (DecimalFormat)decimalFormat.clone();
+        probe.setPositivePrefix("");
+        probe.setPositiveSuffix("");
+        probe.setMultiplier(1);
+        probe.setGroupingUsed(true);
+        probe.setGroupingSize(1);
+        probe.setMinimumIntegerDigits(1);
+        probe.setMaximumIntegerDigits(10);
+        probe.setMinimumFractionDigits(1);
+        probe.setMaximumFractionDigits(1);
+        probe.setDecimalSeparatorAlwaysShown(false);
+        final String sample = probe.format(12.5);
+        if (sample.length() != 5)
+        {
+            return UNSUPPORTED;
+        }
+        final char zeroDigit = (char)(sample.charAt(0) - 1);
+        if (sample.charAt(2) != zeroDigit + 2 || sample.charAt(4) != zeroDigit + 5)
+        {
+            return UNSUPPORTED;
+        }
+        return new CompiledNumberFormat(decimalFormat, zeroDigit, sample.charAt(1), sample.charAt(3));
+    }
+
+    /**
+     * Checks whether the given format uses the fast path of {@link DecimalFormat} for {@code double} values.
+     *
+     * @param format the format
+     *
+     * @return whether the fast path is used
+     */
+    private static boolean isFastPath(DecimalFormat format)
+    {
+        if (!format.isGroupingUsed() || format.getGroupingSize() != 3 || format.getMultiplier() != 1
+            || format.isDecimalSeparatorAlwaysShown() || format.getMinimumIntegerDigits() != 1
+            || format.getMaximumIntegerDigits() < 10)
+        {
+            return false;
+        }
+        if (format.toPattern().indexOf('\u00A4') >= 0)
+        {
+            return format.getMinimumFractionDigits() == 2 && format.getMaximumFractionDigits() == 2;
+        }
+        return format.getMinimumFractionDigits() == 0 && format.getMaximumFractionDigits() == 3;
+    }
+
+    /**
+     * Formats a number the same way as {@link NumberFormat#format(Object)}.
+     *
+     * @param number the number.
+     *
+     * @return the formatted number or null if the number or the format isn't supported.
+     */
+    String format(Number number)
+    {
+        if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte
+            || number instanceof AtomicInteger || number instanceof AtomicLong)
+        {
+            return format(number.longValue());
+        }
+        if (number instanceof BigInteger)
+        {
+            return ((BigInteger)number).bitLength() < 64 ? format(number.longValue()) : null;
+        }
+        if (number instanceof BigDecimal)
+        {
+            return null;
+        }
+        return format(number.doubleValue());
+    }
+
+    /**
+     * Formats a {@code long} value the same way as {@link NumberFormat#format(long)}.
+     *
+     * @param number the number.
+     *
+     * @return the formatted number or null if the number or the format isn't supported.
+     */
+    String format(long number)
+    {
+        if (!supported)
+        {
+            return null;
+        }
+
+        boolean negative = number < 0;
+        if (negative)
+        {
+            number = -number;
+        }
+        if (number < 0)
+        {
+            // Long.MIN_VALUE
+            return null;
+        }
+        if (multiplier != 1)
+        {
+            long cutoff = Long.MAX_VALUE / multiplier;
+            if (cutoff < 0)
+            {
+                cutoff = -cutoff;
+            }
+            if (number > cutoff)
+            {
+                return null;
+            }
+        }
+        number *= multiplier;
+        if (number == 0)
+        {
+            negative = false;
+        }
+        else if (multiplier < 0)
+        {
+            number = -number;
+            negative = !negative;
+        }
+
+        final char[] digits = new char[19];
+        int start = digits.length;
+        for (long rest = number; rest != 0; rest /= 10)
+        {
+            digits[--start] = (char)('0' + rest % 10);
+        }
+        int count = digits.length - start;
+        final int decimalAt = count;
+        while (count > 0 && digits[start + count - 1] == '0')
+        {
+            count--;
+        }
+        System.arraycopy(digits, start, digits, 0, count);
+        return render(negative, digits, count, decimalAt, true);
+    }
+
+    /**
+     * Formats a {@code double} value the same way as {@link NumberFormat#format(double)}.
+     *
+     * @param number the number.
+     *
+     * @return the formatted number or null if the format isn't supported.
+     */
+    String format(double number)
+    {
+        if (!supported)
+        {
+            return null;
+        }
+        if (Double.isNaN(number))
+        {
+            return nan;
+        }
+
+        boolean negative = ((number < 0.0) || (number == 0.0 && 1 / number < 0.0)) ^ (multiplier < 0);
+        if (multiplier != 1)
+        {
+            number *= multiplier;
+        }
+        if (Double.isInfinite(number))
+        {
+            return affix(negative, infinity, infinity.length);
+        }
+        if (negative)
+        {
+            number = -number;
+        }
+
+        // The fast path of DecimalFormat rounds all ties exactly
+        final boolean exactTies = fastPath && number <= Integer.MAX_VALUE;
+
+        // Collects the significant digits of the shortest round-trip representation.
+        final String representation = Double.toString(number);
+        final char[] digits = new char[representation.length()];
+        int count = 0;
+        int decimalAt = -1;
+        int exponent = 0;
+        int leadingZeros = 0;
+        boolean nonZeroSeen = false;
+        for (int i = 0; i < representation.length(); i++)
+        {
+            final char c = representation.charAt(i);
+            if (c == '.')
+            {
+                decimalAt = count;
+            }
+            else if (c == 'E')
+            {
+                exponent = Integer.parseInt(representation.substring(i + 1));
+                break;
+            }
+            else
+            {
+                if (!nonZeroSeen)
+                {
+                    nonZeroSeen = c != '0';
+                    if (!nonZeroSeen && decimalAt != -1)
+                    {
+                        leadingZeros++;
+                    }
+                }
+                if (nonZeroSeen)
+                {
+                    digits[count++] = c;
+                }
+            }
+        }
+        if (decimalAt == -1)
+        {
+            decimalAt = count;
+        }
+        if (nonZeroSeen)
+        {
+            decimalAt += exponent - leadingZeros;
+        }
+
+        // Rounds to the maximum fraction digits like java.text.DigitList does.
+        if (-decimalAt > maxFractionDigits)
+        {
+            return render(negative, digits, 0, decimalAt, false);
+        }
+        if (-decimalAt == maxFractionDigits)
+        {
+            if (shouldRoundUp(digits, count, 0, number, representation, exactTies))
+            {
+                digits[0] = '1';
+                return render(negative, digits, 1, decimalAt + 1, false);
+            }
+            return render(negative, digits, 0, decimalAt, false);
+        }
+
+        while (count > 1 && digits[count - 1] == '0')
+        {
+            count--;
+        }
+        int position = maxFractionDigits + decimalAt;
+        if (position >= 0 && position < count)
+        {
+            if (shouldRoundUp(digits, count, position, number, representation, exactTies))
+            {
+                while (true)
+                {
+                    --position;
+                    if (position < 0)
+                    {
+                        digits[0] = '1';
+                        ++decimalAt;
+                        position = 0;
+                        break;
+                    }
+                    ++digits[position];
+                    if (digits[position] <= '9')
+                    {
+                        break;
+                    }
+                }
+                ++position;
+            }
+            count = position;
+            while (count > 1 && digits[count - 1] == '0')
+            {
+                count--;
+            }
+        }
+        return render(negative, digits, count, decimalAt, false);
+    }
+
+    /**
+     * Decides whether the digits are rounded up at the given position using {@link RoundingMode#HALF_EVEN}. A tie of
+     * the decimal digits is decided by the exact binary value. Like {@code java.text.DigitList} a '5' followed by
+     * zeros is only treated as a tie if exact ties are requested.
+     */
+    private static boolean shouldRoundUp(char[] digits, int count, int position, double value, String representation,
+                                         boolean exactTies)
+    {
+        if (position >= count)
+        {
+            return false;
+        }
+        if (digits[position] > '5')
+        {
+            return true;
+        }
+        if (digits[position] < '5')
+        {
+            return false;
+        }
+        for (int i = position + 1; i < count; i++)
+        {
+            if (digits[i] != '0')
+            {
+                return true;
+            }
+        }
+        if (!exactTies && position < count - 1)
+        {
+            return false;
+        }
+
+        final int comparison = new BigDecimal(value).compareTo(new BigDecimal(representation));
+        if (comparison != 0)
+        {
+            return comparison > 0;
+        }
+        return position > 0 && (digits[position - 1] - '0') % 2 != 0;
+    }
+
+    /**
+     * Renders the rounded digits.
+     *
+     * @param negative whether the number is negative
+     * @param digits the significant digits as ASCII characters
+     * @param count the number of significant digits
+     * @param decimalAt the position of the decimal separator relative to the first digit
+     * @param isInteger whether the number is an integer
+     *
+     * @return the formatted number
+     */
+    private String render(boolean negative, char[] digits, int count, int decimalAt, boolean isInteger)
+    {
+        int integerCount = minIntegerDigits;
+        int digitIndex = 0;
+        if (decimalAt > 0 && integerCount < decimalAt)
+        {
+            integerCount = decimalAt;
+        }
+        if (integerCount > maxIntegerDigits)
+        {
+            integerCount = maxIntegerDigits;
+            digitIndex = decimalAt - integerCount;
+        }
+        final int fractionCount = isInteger ? minFractionDigits : Math.max(minFractionDigits, Math.min(
+            maxFractionDigits, count - decimalAt));
+
+        final char[] prefix = negative ? negativePrefix : positivePrefix;
+        final char[] suffix = negative ? negativeSuffix : positiveSuffix;
+        final int groupings = groupingSize > 0 && integerCount > 0 ? (integerCount - 1) / groupingSize : 0;
+        final char[] buffer = new char[prefix.length + integerCount + groupings + 2 + fractionCount + suffix.length];
+        final int offset = zeroDigit - '0';
+
+        int length = prefix.length;
+        System.arraycopy(prefix, 0, buffer, 0, length);
+        for (int i = integerCount - 1; i >= 0; --i)
+        {
+            if (i < decimalAt && digitIndex < count)
+            {
+                buffer[length++] = (char)(digits[digitIndex++] + offset);
+            }
+            else
+            {
+                buffer[length++] = zeroDigit;
+            }
+            if (groupingSize > 0 && i > 0 && i % groupingSize == 0)
+            {
+                buffer[length++] = groupingSeparator;
+            }
+        }
+
+        final boolean fractionPresent = minFractionDigits > 0 || (!isInteger && digitIndex < count);
+        if (!fractionPresent && length == prefix.length)
+        {
+            buffer[length++] = zeroDigit;
+        }
+        if (decimalSeparatorAlwaysShown || fractionPresent)
+        {
+            buffer[length++] = decimalSeparator;
+        }
+        for (int i = 0; i < maxFractionDigits; ++i)
+        {
+            if (i >= minFractionDigits && (isInteger || digitIndex >= count))
+            {
+                break;
+            }
+            if (-1 - i > decimalAt - 1)
+            {
+                buffer[length++] = zeroDigit;
+                continue;
+            }
+            if (!isInteger && digitIndex < count)
+            {
+                buffer[length++] = (char)(digits[digitIndex++] + offset);
+            }
+            else
+            {
+                buffer[length++] = zeroDigit;
+            }
+        }
+
+        System.arraycopy(suffix, 0, buffer, length, suffix.length);
+        return new String(buffer, 0, length + suffix.length);
+    }
+
+    private String affix(boolean negative, char[] text, int textLength)
+    {
+        final char[] prefix = negative ? negativePrefix : positivePrefix;
+        final char[] suffix = negative ? negativeSuffix : positiveSuffix;
+        final char[] buffer = new char[prefix.length + textLength + suffix.length];
+        System.arraycopy(prefix, 0, buffer, 0, prefix.length);
+        System.arraycopy(text, 0, buffer, prefix.length, textLength);
+        System.arraycopy(suffix, 0, buffer, prefix.length + textLength, suffix.length);
+        return new String(buffer);
+    }
+}
@@ -45,4 +45,15 @@ public class DateFormatter extends DateTimeFormatter
     {
         super(Mode.DATE, names);
     }
+
+    /**
+     * Constructor.
+     *
+     * @param cached Whether the last formatted second is cached per format and time zone.
+     * @param names The names triggering this formatter.
+     */
+    public DateFormatter(boolean cached, String... names)
+    {
+        super(Mode.DATE, cached, names);
+    }
 }
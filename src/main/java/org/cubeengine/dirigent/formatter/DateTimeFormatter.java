@@ -26,6 +26,9 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.cubeengine.dirigent.parser.component.Component;
 import org.cubeengine.dirigent.context.Context;
 import org.cubeengine.dirigent.context.Contexts;
@@ -78,10 +81,37 @@ public class DateTimeFormatter extends AbstractFormatter<Date>
      */
     static final String FULL_STYLE = "full";
 
+    /**
+     * The per thread cache of the {@link DateFormat}s.
+     */
+    private static final ThreadLocalFormatCache<FormatKey, DateFormat> FORMATS =
+        new ThreadLocalFormatCache<FormatKey, DateFormat>(ThreadLocalFormatCache.DEFAULT_CAPACITY)
+        {
+            @Override
+            protected DateFormat create(FormatKey key)
+            {
+                return createFormatter(key.format, key.mode, key.dateStyle, key.timeStyle, key.locale);
+            }
+        };
+
+    /**
+     * The shared cache of the {@link CachedDateFormat}s.
+     */
+    private static final ConcurrentMap<ZonedFormatKey, CachedDateFormat> CACHED =
+        new ConcurrentHashMap<ZonedFormatKey, CachedDateFormat>();
+    /**
+     * The maximum number of {@link CachedDateFormat}s.
+     */
+    private static final int CACHED_CAPACITY = 256;
+
     /**
      * The mode of this formatter.
      */
     private final Mode mode;
+    /**
+     * Whether the last formatted second is cached.
+     */
+    private final boolean cached;
 
     /**
      * Constructor. Initializes this formatter with a few default names and the mode {@link Mode#DATE_TIME}.
@@ -98,9 +128,23 @@ public class DateTimeFormatter extends AbstractFormatter<Date>
      * @param names The names triggering this formatter.
      */
     public DateTimeFormatter(Mode mode, String... names)
+    {
+        this(mode, false, names);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param mode The default mode of the formatter.
+     * @param cached Whether the last formatted second is cached per format and time zone. This makes formatting
+     *               timestamps which are close to each other, like the current time, almost free.
+     * @param names The names triggering this formatter.
+     */
+    public DateTimeFormatter(Mode mode, boolean cached, String... names)
     {
         super(names);
         this.mode = mode;
+        this.cached = cached;
     }
 
     @Override
@@ -120,32 +164,109 @@ public class DateTimeFormatter extends AbstractFormatter<Date>
      */
     protected String parseDateToString(Date date, Context context, Arguments args)
     {
-        final DateFormat dateFormat = parseFormatter(context, args);
-        dateFormat.setTimeZone(context.get(Contexts.TIMEZONE));
+        final FormatKey key = formatKey(context, args);
+        final TimeZone timeZone = context.get(Contexts.TIMEZONE);
+        if (cached)
+        {
+            return cachedFormat(key, timeZone).format(date.getTime());
+        }
+        return formatWithThreadFormat(key, timeZone, date);
+    }
+
+    /**
+     * Formats the date with the {@link DateFormat} of the current thread.
+     *
+     * @param key The key of the {@link DateFormat}.
+     * @param timeZone The time zone.
+     * @param date The date.
+     *
+     * @return the formatted date.
+     */
+    private static String formatWithThreadFormat(FormatKey key, TimeZone timeZone, Date date)
+    {
+        final DateFormat dateFormat = FORMATS.get(key);
+        dateFormat.setTimeZone(timeZone);
         return dateFormat.format(date);
     }
 
     /**
-     * Parses the {@link DateFormat} to use from the context arguments.
+     * Returns the {@link CachedDateFormat} of the given format and time zone.
+     *
+     * @param key The key of the {@link DateFormat}.
+     * @param timeZone The time zone.
+     *
+     * @return the {@link CachedDateFormat}.
+     */
+    private static CachedDateFormat cachedFormat(final FormatKey key, final TimeZone timeZone)
+    {
+        final ZonedFormatKey zonedKey = new ZonedFormatKey(key, timeZone);
+        CachedDateFormat cachedFormat = CACHED.get(zonedKey);
+        if (cachedFormat == null)
+        {
+            cachedFormat = new CachedDateFormat()
+            {
+                @Override
+                protected String render(long millis)
+                {
+                    return formatWithThreadFormat(key, timeZone, new Date(millis));
+                }
+            };
+            if (CACHED.size() >= CACHED_CAPACITY)
+            {
+                CACHED.clear();
+            }
+            final CachedDateFormat existing = CACHED.putIfAbsent(zonedKey, cachedFormat);
+            if (existing != null)
+            {
+                cachedFormat = existing;
+            }
+        }
+        return cachedFormat;
+    }
+
+    /**
+     * Loads the key of the {@link DateFormat} to use from the context arguments.
      *
      * @param context The context.
      * @param args The arguments of the macro.
      *
-     * @return the {@link DateFormat}.
+     * @return the key of the {@link DateFormat}.
      */
-    private DateFormat parseFormatter(Context context, Arguments args)
+    private FormatKey formatKey(Context context, Arguments args)
     {
         final String format = args.get(FORMAT_PARAM_NAME);
         final Locale locale = context.get(LOCALE);
         if (format != null)
         {
-            return new SimpleDateFormat(format, locale);
+            return new FormatKey(format, null, -1, -1, locale);
         }
 
         final int defaultFormatStyle = parseDateFormatStyle(args);
         final int dateFormatStyle = parseDateFormatStyle(args.get(DATE_PARAM_NAME), defaultFormatStyle);
         final int timeFormatStyle = parseDateFormatStyle(args.get(TIME_PARAM_NAME), defaultFormatStyle);
 
+        return new FormatKey(null, mode, dateFormatStyle, timeFormatStyle, locale);
+    }
+
+    /**
+     * Creates the {@link DateFormat} for the given format pattern or mode and styles.
+     *
+     * @param format The format pattern, might be null.
+     * @param mode The mode.
+     * @param dateFormatStyle The style of the date part.
+     * @param timeFormatStyle The style of the time part.
+     * @param locale The locale.
+     *
+     * @return the {@link DateFormat}.
+     */
+    private static DateFormat createFormatter(String format, Mode mode, int dateFormatStyle, int timeFormatStyle,
+                                              Locale locale)
+    {
+        if (format != null)
+        {
+            return new SimpleDateFormat(format, locale);
+        }
+
         if (Mode.DATE_TIME.equals(mode))
         {
             return DateFormat.getDateTimeInstance(dateFormatStyle, timeFormatStyle, locale);
@@ -223,6 +344,107 @@ public class DateTimeFormatter extends AbstractFormatter<Date>
         return DateFormat.DEFAULT;
     }
 
+    @Override
+    protected boolean isPureFormat()
+    {
+        return true;
+    }
+
+    /**
+     * The key identifying a cached {@link DateFormat}.
+     */
+    private static final class FormatKey
+    {
+        private final String format;
+        private final Mode mode;
+        private final int dateStyle;
+        private final int timeStyle;
+        private final Locale locale;
+
+        private FormatKey(String format, Mode mode, int dateStyle, int timeStyle, Locale locale)
+        {
+            this.format = format;
+            this.mode = mode;
+            this.dateStyle = dateStyle;
+            this.timeStyle = timeStyle;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof FormatKey))
+            {
+                return false;
+            }
+
+            final FormatKey that = (FormatKey)o;
+
+            if (dateStyle != that.dateStyle || timeStyle != that.timeStyle || mode != that.mode)
+            {
+                return false;
+            }
+            if (format != null ? !format.equals(that.format) : that.format != null)
+            {
+                return false;
+            }
+            return locale.equals(that.locale);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = format != null ? format.hashCode() : 0;
+            result = 31 * result + (mode != null ? mode.hashCode() : 0);
+            result = 31 * result + dateStyle;
+            result = 31 * result + timeStyle;
+            result = 31 * result + locale.hashCode();
+            return result;
+        }
+    }
+
+    /**
+     * The key identifying a {@link CachedDateFormat}.
+     */
+    private static final class ZonedFormatKey
+    {
+        private final FormatKey key;
+        private final TimeZone timeZone;
+
+        private ZonedFormatKey(FormatKey key, TimeZone timeZone)
+        {
+            this.key = key;
+            this.timeZone = timeZone;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof ZonedFormatKey))
+            {
+                return false;
+            }
+
+            final ZonedFormatKey that = (ZonedFormatKey)o;
+
+            return key.equals(that.key) && timeZone.equals(that.timeZone);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * key.hashCode() + timeZone.hashCode();
+        }
+    }
+
     /**
      * The mode of the formatter.
      */
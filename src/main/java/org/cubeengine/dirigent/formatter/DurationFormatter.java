@@ -0,0 +1,330 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.component.Component;
+
+import static org.cubeengine.dirigent.context.Contexts.LOCALE;
+
+/**
+ * The duration formatter formats a {@link Number} of milliseconds as a duration or a {@link Date} or {@link Calendar}
+ * as the time relative to now. The output is controlled by the flags:
+ *
+ * "duration" formats the amount of the coarsest unit, e.g. "3 minutes". This is the default for numbers.
+ * "relative" formats the time relative to now, e.g. "3 minutes ago" or "in 3 minutes". This is the default for dates.
+ * Numbers are taken as the offset from now, negative numbers lie in the past.
+ * "clock" formats the duration like a clock, e.g. "04:59" or "1:04:59".
+ *
+ * The "precision" parameter sets the number of units of durations and relative times, e.g. "1 hour 5 minutes" with a
+ * precision of 2. The unit words depend on the language of the context locale.
+ *
+ * The output only depends on the amount of the finest shown unit, so it is cached per bucket of that unit, locale and
+ * style. All "ago" texts of the same minute are rendered only once for example.
+ */
+public class DurationFormatter extends AbstractFormatter<Object>
+{
+    /**
+     * The duration style flag label.
+     */
+    static final String DURATION_STYLE = "duration";
+    /**
+     * The relative style flag label.
+     */
+    static final String RELATIVE_STYLE = "relative";
+    /**
+     * The clock style flag label.
+     */
+    static final String CLOCK_STYLE = "clock";
+    /**
+     * The name of the precision parameter.
+     */
+    static final String PRECISION_PARAM_NAME = "precision";
+
+    private static final TimeUnitWords.Unit[] UNITS = TimeUnitWords.Unit.values();
+    private static final int CACHE_CAPACITY = 1024;
+
+    /**
+     * The rendered texts per bucket, locale and style.
+     */
+    private static final ConcurrentMap<Bucket, String> RENDERED = new ConcurrentHashMap<Bucket, String>();
+
+    /**
+     * The output styles.
+     */
+    private enum Style
+    {
+        DURATION,
+        RELATIVE,
+        CLOCK
+    }
+
+    /**
+     * Constructs this formatter with a few default names.
+     */
+    public DurationFormatter()
+    {
+        this("duration", "timespan");
+    }
+
+    /**
+     * Constructs this formatter with the given names.
+     *
+     * @param names The names triggering this formatter.
+     */
+    public DurationFormatter(String... names)
+    {
+        super(names);
+    }
+
+    @Override
+    public boolean isApplicable(Object input)
+    {
+        return input instanceof Number || input instanceof Date || input instanceof Calendar;
+    }
+
+    @Override
+    protected Component format(Object input, Context context, Arguments args)
+    {
+        final long millis;
+        Style style;
+        if (input instanceof Date)
+        {
+            millis = ((Date)input).getTime() - currentTimeMillis();
+            style = Style.RELATIVE;
+        }
+        else if (input instanceof Calendar)
+        {
+            millis = ((Calendar)input).getTimeInMillis() - currentTimeMillis();
+            style = Style.RELATIVE;
+        }
+        else
+        {
+            millis = ((Number)input).longValue();
+            style = Style.DURATION;
+        }
+        if (args.has(CLOCK_STYLE))
+        {
+            style = Style.CLOCK;
+        }
+        else if (args.has(RELATIVE_STYLE))
+        {
+            style = Style.RELATIVE;
+        }
+        else if (args.has(DURATION_STYLE))
+        {
+            style = Style.DURATION;
+        }
+        return new Text(render(style, context.get(LOCALE), millis, parsePrecision(args.get(PRECISION_PARAM_NAME))));
+    }
+
+    /**
+     * Returns the current time relative times are based on.
+     *
+     * @return the current time in milliseconds.
+     */
+    protected long currentTimeMillis()
+    {
+        return System.currentTimeMillis();
+    }
+
+    private static int parsePrecision(String text)
+    {
+        if (text == null)
+        {
+            return 1;
+        }
+        try
+        {
+            return Math.max(1, Math.min(UNITS.length, Integer.parseInt(text.trim())));
+        }
+        catch (NumberFormatException e)
+        {
+            return 1;
+        }
+    }
+
+    private static String render(Style style, Locale locale, long millis, int precision)
+    {
+        final boolean negative = millis < 0;
+        final long abs = negative ? (millis == Long.MIN_VALUE ? Long.MAX_VALUE : -millis) : millis;
+
+        final long unitMillis;
+        if (style == Style.CLOCK)
+        {
+            unitMillis = TimeUnitWords.Unit.SECOND.getMillis();
+            precision = 0;
+        }
+        else
+        {
+            unitMillis = UNITS[Math.min(coarsestUnit(abs) + precision - 1, UNITS.length - 1)].getMillis();
+        }
+
+        final long amount = abs / unitMillis;
+        final Bucket bucket = new Bucket(style, locale, precision, negative && amount > 0, amount, unitMillis);
+        String text = RENDERED.get(bucket);
+        if (text == null)
+        {
+            text = style == Style.CLOCK ? renderClock(bucket) : renderUnits(bucket, TimeUnitWords.forLocale(locale));
+            if (RENDERED.size() >= CACHE_CAPACITY)
+            {
+                RENDERED.clear();
+            }
+            RENDERED.put(bucket, text);
+        }
+        return text;
+    }
+
+    private static int coarsestUnit(long millis)
+    {
+        for (int i = 0; i < UNITS.length - 1; i++)
+        {
+            if (millis >= UNITS[i].getMillis())
+            {
+                return i;
+            }
+        }
+        return UNITS.length - 1;
+    }
+
+    private static String renderUnits(Bucket bucket, TimeUnitWords words)
+    {
+        final boolean relative = bucket.style == Style.RELATIVE;
+        if (relative && bucket.amount == 0)
+        {
+            return words.now();
+        }
+
+        final PluralRules rules = PluralRules.forLocale(bucket.locale);
+        long remaining = bucket.amount * bucket.unitMillis;
+        final StringBuilder builder = new StringBuilder();
+        int shown = 0;
+        for (int i = coarsestUnit(remaining); i < UNITS.length && shown < bucket.precision; i++)
+        {
+            final TimeUnitWords.Unit unit = UNITS[i];
+            final long amount = remaining / unit.getMillis();
+            remaining -= amount * unit.getMillis();
+            if (amount == 0 && shown > 0)
+            {
+                // skip empty units in the middle, e.g. "1 day 5 minutes"
+                shown++;
+                continue;
+            }
+            if (builder.length() > 0)
+            {
+                builder.append(' ');
+            }
+            builder.append(amount).append(' ').append(words.unit(unit, rules.select(amount), relative));
+            shown++;
+        }
+
+        if (!relative)
+        {
+            return bucket.negative ? "-" + builder : builder.toString();
+        }
+        return words.relative(builder.toString(), bucket.negative);
+    }
+
+    private static String renderClock(Bucket bucket)
+    {
+        final long seconds = bucket.amount;
+        final long hours = seconds / 3600;
+        final StringBuilder builder = new StringBuilder(9);
+        if (bucket.negative)
+        {
+            builder.append('-');
+        }
+        if (hours > 0)
+        {
+            builder.append(hours).append(':');
+        }
+        appendTwoDigits(builder, (int)(seconds / 60 % 60)).append(':');
+        return appendTwoDigits(builder, (int)(seconds % 60)).toString();
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder builder, int value)
+    {
+        return builder.append((char)('0' + value / 10)).append((char)('0' + value % 10));
+    }
+
+    /**
+     * Identifies a rendered text: the amount of the finest shown unit together with everything else affecting the
+     * output.
+     */
+    private static final class Bucket
+    {
+        private final Style style;
+        private final Locale locale;
+        private final int precision;
+        private final boolean negative;
+        private final long amount;
+        private final long unitMillis;
+
+        private Bucket(Style style, Locale locale, int precision, boolean negative, long amount, long unitMillis)
+        {
+            this.style = style;
+            this.locale = locale;
+            this.precision = precision;
+            this.negative = negative;
+            this.amount = amount;
+            this.unitMillis = unitMillis;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Bucket))
+            {
+                return false;
+            }
+
+            final Bucket that = (Bucket)o;
+
+            return style == that.style && precision == that.precision && negative == that.negative
+                && amount == that.amount && unitMillis == that.unitMillis && locale.equals(that.locale);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = style.hashCode();
+            result = 31 * result + locale.hashCode();
+            result = 31 * result + precision;
+            result = 31 * result + (negative ? 1 : 0);
+            result = 31 * result + (int)(amount ^ (amount >>> 32));
+            result = 31 * result + (int)(unitMillis ^ (unitMillis >>> 32));
+            return result;
+        }
+    }
+}
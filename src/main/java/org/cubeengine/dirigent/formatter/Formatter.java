@@ -34,7 +34,7 @@ import org.cubeengine.dirigent.context.Arguments;
  * type which is the generic type of this class.
  *
  * A {@link PostProcessor} can be added to a Formatter to run after the formatting process and manipulate the created
- * {@link Component}.
+ * {@link Component}. {@link SelectivePostProcessor}s only run for the component types they declare.
  *
  * @param <T> the object type to format
  */
@@ -79,14 +79,64 @@ public abstract class Formatter<T>
      */
     public final Component process(T input, Context context, Arguments args)
     {
-        Component result = format(input, context, args);
+        return postProcess(format(input, context, args), context, args);
+    }
+
+    /**
+     * Executes all attached {@link PostProcessor}s on the given formatting result.
+     *
+     * @param result the formatting result.
+     * @param context the compose context.
+     * @param args The arguments of the macro.
+     *
+     * @return the resulting processed Component
+     */
+    protected final Component postProcess(Component result, Context context, Arguments args)
+    {
         for (PostProcessor processor : postProcessors)
         {
-            result = processor.process(result, context, args);
+            if (PostProcessors.appliesTo(processor, result))
+            {
+                result = processor.process(result, context, args);
+            }
         }
         return result;
     }
 
+    /**
+     * Returns whether {@link #format(Object, Context, Arguments)} is a pure function of the input, the macro arguments
+     * and the properties of the {@link org.cubeengine.dirigent.context.ContextFingerprint} of the context. It must not
+     * depend on the current time, random numbers or other state. The default implementation returns false.
+     *
+     * @return whether the format is pure.
+     */
+    protected boolean isPureFormat()
+    {
+        return false;
+    }
+
+    /**
+     * Returns whether the processed results of this formatter can be cached, that is, whether its format and all
+     * attached post processors are pure.
+     *
+     * @return whether the formatter is pure.
+     */
+    public final boolean isPure()
+    {
+        if (!isPureFormat())
+        {
+            return false;
+        }
+        for (PostProcessor processor : postProcessors)
+        {
+            if (!PostProcessors.isPure(processor))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Adds a PostProcessor to this Formatter
      *
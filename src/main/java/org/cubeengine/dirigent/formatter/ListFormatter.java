@@ -0,0 +1,204 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import org.cubeengine.dirigent.Dirigent;
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.MacroResolutionResult;
+import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
+import org.cubeengine.dirigent.parser.component.ResolvedMacro;
+
+/**
+ * The list formatter joins the elements of an {@link Iterable}. Every element is formatted with the formatter of the
+ * {@link Dirigent} which is named by the "element" parameter, by default the default formatter is used. The macro
+ * arguments are passed to the element formatter as well.
+ *
+ * The elements are separated by the "separator" parameter, which defaults to ", ". The "last" parameter replaces the
+ * separator in front of the last element. The "limit" parameter restricts the number of elements in the output. The
+ * iteration stops as soon as the limit is reached, so the costs depend on the output and not on the size of the
+ * input. If elements were left out, the "more" text is added after the last separator. A "#" within that text is
+ * replaced by the number of left out elements if the input is a {@link Collection}.
+ */
+@SuppressWarnings("rawtypes")
+public class ListFormatter extends AbstractFormatter<Iterable>
+{
+    /**
+     * The name of the separator parameter.
+     */
+    static final String SEPARATOR_PARAM_NAME = "separator";
+    /**
+     * The name of the last separator parameter.
+     */
+    static final String LAST_PARAM_NAME = "last";
+    /**
+     * The name of the limit parameter.
+     */
+    static final String LIMIT_PARAM_NAME = "limit";
+    /**
+     * The name of the more parameter.
+     */
+    static final String MORE_PARAM_NAME = "more";
+    /**
+     * The name of the element formatter parameter.
+     */
+    static final String ELEMENT_PARAM_NAME = "element";
+
+    private static final String DEFAULT_SEPARATOR = ", ";
+    private static final String DEFAULT_MORE = "...";
+
+    /**
+     * The dirigent providing the element formatters.
+     */
+    private final Dirigent<?> dirigent;
+
+    /**
+     * Constructs this formatter with a few default names.
+     *
+     * @param dirigent The dirigent providing the element formatters.
+     */
+    public ListFormatter(Dirigent<?> dirigent)
+    {
+        this(dirigent, "list", "join");
+    }
+
+    /**
+     * Constructs this formatter with the given names.
+     *
+     * @param dirigent The dirigent providing the element formatters.
+     * @param names The names triggering this formatter.
+     */
+    public ListFormatter(Dirigent<?> dirigent, String... names)
+    {
+        super(names);
+        this.dirigent = dirigent;
+    }
+
+    @Override
+    protected Component format(Iterable input, Context context, Arguments args)
+    {
+        final Iterator<?> iterator = input.iterator();
+        if (!iterator.hasNext())
+        {
+            return Text.EMPTY;
+        }
+
+        final Text separator = new Text(args.getOrElse(SEPARATOR_PARAM_NAME, DEFAULT_SEPARATOR));
+        final Text last = new Text(args.getOrElse(LAST_PARAM_NAME, separator.getText()));
+        final String elementFormatter = args.get(ELEMENT_PARAM_NAME);
+        final int limit = parseLimit(args.get(LIMIT_PARAM_NAME));
+
+        final List<Component> components = new ArrayList<Component>();
+        int count = 0;
+        Object element = iterator.next();
+        while (true)
+        {
+            components.add(formatElement(elementFormatter, element, args));
+            count++;
+            if (!iterator.hasNext())
+            {
+                return new ComponentGroup(components);
+            }
+            if (count == limit)
+            {
+                components.add(last);
+                components.add(new Text(parseMore(args.getOrElse(MORE_PARAM_NAME, DEFAULT_MORE), input, count)));
+                return new ComponentGroup(components);
+            }
+            element = iterator.next();
+            components.add(iterator.hasNext() ? separator : last);
+        }
+    }
+
+    /**
+     * Creates the component of a single element.
+     *
+     * @param name The name of the element formatter, might be null.
+     * @param element The element.
+     * @param args The arguments of the macro.
+     *
+     * @return the component.
+     */
+    @SuppressWarnings("unchecked")
+    private Component formatElement(String name, Object element, Arguments args)
+    {
+        MacroResolutionResult res = dirigent.findFormatter(name, element);
+        if (!res.isOK() && name != null)
+        {
+            res = dirigent.findFormatter(null, element);
+        }
+        if (!res.isOK())
+        {
+            return new Text(String.valueOf(element));
+        }
+        return new ResolvedMacro((Formatter<Object>)res.getFormatter(), element, args);
+    }
+
+    /**
+     * Parses the limit parameter.
+     *
+     * @param text The parameter value.
+     *
+     * @return the limit or -1 if the output isn't limited.
+     */
+    private static int parseLimit(String text)
+    {
+        if (text == null)
+        {
+            return -1;
+        }
+        try
+        {
+            final int limit = Integer.parseInt(text.trim());
+            return limit > 0 ? limit : -1;
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Replaces the "#" of the more text with the number of left out elements if it is known.
+     *
+     * @param more The more text.
+     * @param input The input.
+     * @param count The number of elements in the output.
+     *
+     * @return the more text.
+     */
+    private static String parseMore(String more, Iterable input, int count)
+    {
+        if (input instanceof Collection && more.indexOf('#') >= 0)
+        {
+            return more.replace("#", String.valueOf(((Collection)input).size() - count));
+        }
+        return more;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.text.NumberFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the {@link NumberFormat}s of the number formatters. The numbers are formatted with a shared
+ * {@link CompiledNumberFormat}, the {@link NumberFormat}s cached per thread are only used if the compiled format
+ * doesn't support a number.
+ *
+ * @param <K> the type of the key identifying a format
+ */
+abstract class NumberFormatCache<K>
+{
+    private final ThreadLocalFormatCache<K, NumberFormat> formats;
+    private final ConcurrentMap<K, CompiledNumberFormat> compiled = new ConcurrentHashMap<K, CompiledNumberFormat>();
+    private final int compiledCapacity;
+
+    /**
+     * Constructor.
+     *
+     * @param compiledCapacity the maximum number of cached {@link CompiledNumberFormat}s.
+     */
+    NumberFormatCache(int compiledCapacity)
+    {
+        this.compiledCapacity = compiledCapacity;
+        this.formats = new ThreadLocalFormatCache<K, NumberFormat>(ThreadLocalFormatCache.DEFAULT_CAPACITY)
+        {
+            @Override
+            protected NumberFormat create(K key)
+            {
+                return NumberFormatCache.this.create(key);
+            }
+        };
+    }
+
+    /**
+     * Formats a {@code long} with the format of the given key.
+     *
+     * @param key the key
+     * @param number the number
+     *
+     * @return the formatted number
+     */
+    String format(K key, long number)
+    {
+        final String formatted = compiled(key).format(number);
+        return formatted != null ? formatted : formats.get(key).format(number);
+    }
+
+    /**
+     * Formats a {@code double} with the format of the given key.
+     *
+     * @param key the key
+     * @param number the number
+     *
+     * @return the formatted number
+     */
+    String format(K key, double number)
+    {
+        final String formatted = compiled(key).format(number);
+        return formatted != null ? formatted : formats.get(key).format(number);
+    }
+
+    /**
+     * Formats a {@link Number} with the format of the given key.
+     *
+     * @param key the key
+     * @param number the number
+     *
+     * @return the formatted number
+     */
+    String format(K key, Number number)
+    {
+        final String formatted = compiled(key).format(number);
+        return formatted != null ? formatted : formats.get(key).format(number);
+    }
+
+    private CompiledNumberFormat compiled(K key)
+    {
+        CompiledNumberFormat format = compiled.get(key);
+        if (format == null)
+        {
+            format = CompiledNumberFormat.compile(formats.get(key));
+            if (compiled.size() >= compiledCapacity)
+            {
+                compiled.clear();
+            }
+            compiled.putIfAbsent(key, format);
+        }
+        return format;
+    }
+
+    /**
+     * Creates the {@link NumberFormat} for the given key.
+     *
+     * @param key the key
+     *
+     * @return the format
+     */
+    protected abstract NumberFormat create(K key);
+}
@@ -70,6 +70,28 @@ public class NumberFormatter extends AbstractFormatter<Number>
      */
     static final String PERCENT_MODE_FLAG = "percent";
 
+    /**
+     * The maximum number of cached {@link CompiledNumberFormat}s.
+     */
+    private static final int COMPILED_CAPACITY = 256;
+
+    /**
+     * The cache of the {@link NumberFormat}s.
+     */
+    private static final NumberFormatCache<FormatKey> FORMATS = new NumberFormatCache<FormatKey>(COMPILED_CAPACITY)
+        {
+            @Override
+            protected NumberFormat create(FormatKey key)
+            {
+                final NumberFormat numberFormat = createFormatter(key.format, key.mode, key.locale);
+                if (key.currency != null)
+                {
+                    numberFormat.setCurrency(key.currency);
+                }
+                return numberFormat;
+            }
+        };
+
     /**
      * The default mode of this number formatter.
      */
@@ -101,6 +123,64 @@ public class NumberFormatter extends AbstractFormatter<Number>
         return new Text(parseNumberToString(input, context, args));
     }
 
+    /**
+     * Formats a {@code long} input parameter without boxing it and runs the attached {@link PostProcessor}s.
+     *
+     * @param input The message input parameter to format.
+     * @param context The compose context.
+     * @param args The arguments of the macro.
+     *
+     * @return the resulting processed Component
+     */
+    public final Component processLong(long input, Context context, Arguments args)
+    {
+        return postProcess(formatLong(input, context, args), context, args);
+    }
+
+    /**
+     * Formats a {@code double} input parameter without boxing it and runs the attached {@link PostProcessor}s.
+     *
+     * @param input The message input parameter to format.
+     * @param context The compose context.
+     * @param args The arguments of the macro.
+     *
+     * @return the resulting processed Component
+     */
+    public final Component processDouble(double input, Context context, Arguments args)
+    {
+        return postProcess(formatDouble(input, context, args), context, args);
+    }
+
+    /**
+     * Formats a {@code long} input parameter. Sub classes overwriting {@link #format(Number, Context, Arguments)}
+     * should overwrite this method as well.
+     *
+     * @param input The message input parameter to format.
+     * @param context The compose context.
+     * @param args The arguments of the macro.
+     *
+     * @return the resulting Component
+     */
+    protected Component formatLong(long input, Context context, Arguments args)
+    {
+        return new Text(FORMATS.format(formatKey(context, args), input));
+    }
+
+    /**
+     * Formats a {@code double} input parameter. Sub classes overwriting {@link #format(Number, Context, Arguments)}
+     * should overwrite this method as well.
+     *
+     * @param input The message input parameter to format.
+     * @param context The compose context.
+     * @param args The arguments of the macro.
+     *
+     * @return the resulting Component
+     */
+    protected Component formatDouble(double input, Context context, Arguments args)
+    {
+        return new Text(FORMATS.format(formatKey(context, args), input));
+    }
+
     /**
      * Parses the given number to a string depending on the context.
      *
@@ -112,35 +192,40 @@ public class NumberFormatter extends AbstractFormatter<Number>
      */
     protected String parseNumberToString(Number number, Context context, Arguments args)
     {
-        final NumberFormat numberFormat = parseFormatter(context, args);
-
-        final Currency currency = context.get(Contexts.CURRENCY);
-        if (currency != null)
-        {
-            numberFormat.setCurrency(currency);
-        }
-
-        return numberFormat.format(number);
+        return FORMATS.format(formatKey(context, args), number);
     }
 
     /**
-     * Parses the {@link NumberFormat} to use from the context arguments.
+     * Loads the key of the {@link NumberFormat} to use from the context arguments.
      *
      * @param context The context.
      * @param args The arguments of the macro.
      *
-     * @return the {@link NumberFormat}.
+     * @return the key of the {@link NumberFormat}.
      */
-    private NumberFormat parseFormatter(Context context, Arguments args)
+    private FormatKey formatKey(Context context, Arguments args)
     {
         final String format = args.get(FORMAT_PARAM_NAME);
-        final Locale locale = context.get(LOCALE);
+        final Mode mode = format == null ? Mode.loadFromContext(args, this.defaultMode) : null;
+        return new FormatKey(format, mode, context.get(LOCALE), context.get(Contexts.CURRENCY));
+    }
+
+    /**
+     * Creates the {@link NumberFormat} for the given format pattern or mode.
+     *
+     * @param format The format pattern, might be null.
+     * @param mode The mode, might be null.
+     * @param locale The locale.
+     *
+     * @return the {@link NumberFormat}.
+     */
+    private static NumberFormat createFormatter(String format, Mode mode, Locale locale)
+    {
         if (format != null)
         {
             return new DecimalFormat(format, DecimalFormatSymbols.getInstance(locale));
         }
 
-        final Mode mode = Mode.loadFromContext(args, this.defaultMode);
         if (Mode.INTEGER.equals(mode))
         {
             return NumberFormat.getIntegerInstance(locale);
@@ -156,6 +241,70 @@ public class NumberFormatter extends AbstractFormatter<Number>
         return NumberFormat.getInstance(locale);
     }
 
+    @Override
+    protected boolean isPureFormat()
+    {
+        return true;
+    }
+
+    /**
+     * The key identifying a cached {@link NumberFormat}.
+     */
+    private static final class FormatKey
+    {
+        private final String format;
+        private final Mode mode;
+        private final Locale locale;
+        private final Currency currency;
+
+        private FormatKey(String format, Mode mode, Locale locale, Currency currency)
+        {
+            this.format = format;
+            this.mode = mode;
+            this.locale = locale;
+            this.currency = currency;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof FormatKey))
+            {
+                return false;
+            }
+
+            final FormatKey that = (FormatKey)o;
+
+            if (format != null ? !format.equals(that.format) : that.format != null)
+            {
+                return false;
+            }
+            if (mode != that.mode)
+            {
+                return false;
+            }
+            if (!locale.equals(that.locale))
+            {
+                return false;
+            }
+            return currency != null ? currency.equals(that.currency) : that.currency == null;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = format != null ? format.hashCode() : 0;
+            result = 31 * result + (mode != null ? mode.hashCode() : 0);
+            result = 31 * result + locale.hashCode();
+            result = 31 * result + (currency != null ? currency.hashCode() : 0);
+            return result;
+        }
+    }
+
     /**
      * The mode of the number format.
      */
@@ -0,0 +1,251 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.component.Component;
+
+import static org.cubeengine.dirigent.context.Contexts.LOCALE;
+
+/**
+ * The plural formatter chooses a text depending on the plural category of a number, e.g.
+ * {@code {plural:one=# item:other=# items}}. The categories follow the CLDR plural rules of the language of the
+ * context locale: "zero", "one", "two", "few", "many" and "other". A parameter named like the exact number, e.g.
+ * {@code 0=no items}, takes precedence over the category. If neither is given, the "other" text is used. Without an
+ * "other" text, the number is formatted on its own like a {@code {number}} macro, so an incomplete translation doesn't
+ * break the message. A "#" within the chosen text is replaced by the number, which is formatted with the number format
+ * of the context locale.
+ *
+ * The texts are plain texts, nested macros like {@code {1}} aren't formatted. A message depending on further inputs
+ * uses a {@link SelectFormatter select macro} instead, whose parts are resolved like the message itself. Languages
+ * without known plural rules fall back to the English rules, which only distinguish "one" and "other".
+ *
+ * The plural rules are compiled into decision tables once per language and the texts are split at their "#"
+ * placeholders only once, so formatting a number is a table lookup and a concatenation.
+ */
+public class PluralFormatter extends AbstractFormatter<Number>
+{
+    /**
+     * The name of the fallback parameter.
+     */
+    static final String OTHER_PARAM_NAME = PluralRules.Category.OTHER.getKeyword();
+
+    private static final char PLACEHOLDER = '#';
+    private static final int BODIES_CAPACITY = 256;
+    private static final int COMPILED_CAPACITY = 64;
+
+    /**
+     * The texts of the branches split at their placeholders.
+     */
+    private static final ConcurrentMap<String, String[]> BODIES = new ConcurrentHashMap<String, String[]>();
+
+    /**
+     * The cache of the number formats of the locales.
+     */
+    private static final NumberFormatCache<Locale> FORMATS = new NumberFormatCache<Locale>(COMPILED_CAPACITY)
+        {
+            @Override
+            protected NumberFormat create(Locale key)
+            {
+                return NumberFormat.getInstance(key);
+            }
+        };
+
+    /**
+     * Constructs this formatter with a few default names.
+     */
+    public PluralFormatter()
+    {
+        this("plural", "choice");
+    }
+
+    /**
+     * Constructs this formatter with the given names.
+     *
+     * @param names The names triggering this formatter.
+     */
+    public PluralFormatter(String... names)
+    {
+        super(names);
+    }
+
+    @Override
+    protected Component format(Number input, Context context, Arguments args)
+    {
+        final Locale locale = context.get(LOCALE);
+        final PluralRules rules = PluralRules.forLocale(locale);
+
+        final String body;
+        final String number;
+        if (isIntegral(input))
+        {
+            final long value = input.longValue();
+            number = FORMATS.format(locale, value);
+            body = choose(args, args.get(Long.toString(value)), rules.select(value));
+        }
+        else
+        {
+            final double value = input.doubleValue();
+            number = FORMATS.format(locale, value);
+            body = choose(args, null, rules.selectFraction(value));
+        }
+        if (body == null)
+        {
+            return new Text(number);
+        }
+        return new Text(fill(compile(body), number));
+    }
+
+    /**
+     * Checks whether the given number is an integer.
+     *
+     * @param input The number.
+     *
+     * @return true if the number doesn't have fraction digits.
+     */
+    private static boolean isIntegral(Number input)
+    {
+        if (input instanceof Integer || input instanceof Long || input instanceof Short || input instanceof Byte
+            || input instanceof AtomicInteger || input instanceof AtomicLong)
+        {
+            return true;
+        }
+        if (input instanceof BigInteger)
+        {
+            return ((BigInteger)input).bitLength() < Long.SIZE;
+        }
+        if (input instanceof BigDecimal)
+        {
+            final BigDecimal decimal = (BigDecimal)input;
+            return decimal.signum() == 0 || decimal.stripTrailingZeros().scale() <= 0
+                && decimal.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) <= 0
+                && decimal.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) >= 0;
+        }
+        final double value = input.doubleValue();
+        return value == Math.rint(value) && Math.abs(value) < 0x1p63;
+    }
+
+    /**
+     * Chooses the text of the matching branch.
+     *
+     * @param args The arguments of the macro.
+     * @param exact The text for the exact number, might be null.
+     * @param category The plural category of the number.
+     *
+     * @return the text or null if neither the category nor "other" has a text.
+     */
+    private static String choose(Arguments args, String exact, PluralRules.Category category)
+    {
+        if (exact != null)
+        {
+            return exact;
+        }
+        String body = args.get(category.getKeyword());
+        if (body == null)
+        {
+            body = args.get(OTHER_PARAM_NAME);
+        }
+        return body;
+    }
+
+    /**
+     * Returns the text split at its placeholders.
+     *
+     * @param body The text.
+     *
+     * @return the parts between the placeholders.
+     */
+    private static String[] compile(String body)
+    {
+        String[] parts = BODIES.get(body);
+        if (parts == null)
+        {
+            parts = split(body);
+            if (BODIES.size() >= BODIES_CAPACITY)
+            {
+                BODIES.clear();
+            }
+            BODIES.putIfAbsent(body, parts);
+        }
+        return parts;
+    }
+
+    private static String[] split(String body)
+    {
+        final List<String> parts = new ArrayList<String>(2);
+        int start = 0;
+        int end;
+        while ((end = body.indexOf(PLACEHOLDER, start)) != -1)
+        {
+            parts.add(body.substring(start, end));
+            start = end + 1;
+        }
+        parts.add(body.substring(start));
+        return parts.toArray(new String[parts.size()]);
+    }
+
+    /**
+     * Joins the parts of a text with the number in between.
+     *
+     * @param parts The parts between the placeholders.
+     * @param number The formatted number.
+     *
+     * @return the text.
+     */
+    private static String fill(String[] parts, String number)
+    {
+        if (parts.length == 1)
+        {
+            return parts[0];
+        }
+        int length = number.length() * (parts.length - 1);
+        for (String part : parts)
+        {
+            length += part.length();
+        }
+        final StringBuilder builder = new StringBuilder(length).append(parts[0]);
+        for (int i = 1; i < parts.length; i++)
+        {
+            builder.append(number).append(parts[i]);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    protected boolean isPureFormat()
+    {
+        return true;
+    }
+}
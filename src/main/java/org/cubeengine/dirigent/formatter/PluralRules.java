@@ -0,0 +1,435 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cardinal plural rules of a language following the CLDR plural rules. The rules are compiled into two decision
+ * tables when they are loaded: one holding the category of every integer below 100 and one holding the category of
+ * larger integers by their last two digits. Selecting the category of an integer is a single array lookup then.
+ */
+final class PluralRules
+{
+    /**
+     * The CLDR plural categories.
+     */
+    enum Category
+    {
+        ZERO,
+        ONE,
+        TWO,
+        FEW,
+        MANY,
+        OTHER;
+
+        private final String keyword = name().toLowerCase(Locale.ENGLISH);
+
+        /**
+         * Returns the CLDR keyword of this category, e.g. "one".
+         *
+         * @return the keyword.
+         */
+        String getKeyword()
+        {
+            return keyword;
+        }
+    }
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final int TABLE_SIZE = 100;
+
+    /**
+     * The rules of languages without plural forms.
+     */
+    static final PluralRules OTHER_ONLY = new PluralRules(new Rule()
+    {
+        @Override
+        Category select(long i, boolean fraction)
+        {
+            return Category.OTHER;
+        }
+    });
+
+    /**
+     * The rules of English and most Germanic and Romance languages: one for 1, other for everything else.
+     */
+    static final PluralRules ONE_OTHER = new PluralRules(new Rule()
+    {
+        @Override
+        Category select(long i, boolean fraction)
+        {
+            return i == 1 && !fraction ? Category.ONE : Category.OTHER;
+        }
+    });
+
+    /**
+     * The rules of French and Portuguese: one for 0 and 1 including fractions, other for everything else.
+     */
+    static final PluralRules ONE_BELOW_TWO = new PluralRules(new Rule()
+    {
+        @Override
+        Category select(long i, boolean fraction)
+        {
+            return i == 0 || i == 1 ? Category.ONE : Category.OTHER;
+        }
+    });
+
+    private static final Map<String, PluralRules> RULES = new HashMap<String, PluralRules>();
+
+    static
+    {
+        register(OTHER_ONLY, "id", "ja", "km", "ko", "lo", "ms", "my", "th", "vi", "zh");
+        register(ONE_OTHER, "af", "bg", "ca", "da", "de", "el", "en", "es", "et", "eu", "fi", "gl", "hu", "it", "nb",
+                 "nl", "nn", "no", "sq", "sv", "sw", "tr", "ur");
+        register(ONE_BELOW_TWO, "fr", "hy", "pt");
+        register(new PluralRules(new Rule()
+        {
+            @Override
+            Category select(long i, boolean fraction)
+            {
+                if (fraction)
+                {
+                    return Category.OTHER;
+                }
+                final long mod10 = i % 10;
+                final long mod100 = i % 100;
+                if (mod10 == 1 && mod100 != 11)
+                {
+                    return Category.ONE;
+                }
+                if (mod10 >= 2 && mod10 <= 4 && (mod100 < 12 || mod100 > 14))
+                {
+                    return Category.FEW;
+                }
+                return Category.MANY;
+            }
+        }), "be", "ru", "uk");
+        register(new PluralRules(new Rule()
+        {
+            @Override
+            Category select(long i, boolean fraction)
+            {
+                if (fraction)
+                {
+                    return Category.OTHER;
+                }
+                if (i == 1)
+                {
+                    return Category.ONE;
+                }
+                final long mod10 = i % 10;
+                final long mod100 = i % 100;
+                if (mod10 >= 2 && mod10 <= 4 && (mod100 < 12 || mod100 > 14))
+                {
+                    return Category.FEW;
+                }
+                return Category.MANY;
+            }
+        }), "pl");
+        register(new PluralRules(new Rule()
+        {
+            @Override
+            Category select(long i, boolean fraction)
+            {
+                if (fraction)
+                {
+                    return Category.MANY;
+                }
+                if (i == 1)
+                {
+                    return Category.ONE;
+                }
+                return i >= 2 && i <= 4 ? Category.FEW : Category.OTHER;
+            }
+        }), "cs", "sk");
+        register(new PluralRules(new Rule()
+        {
+            @Override
+            Category select(long i, boolean fraction)
+            {
+                if (fraction)
+                {
+                    return Category.FEW;
+                }
+                if (i == 1)
+                {
+                    return Category.ONE;
+                }
+                // few: n = 0 or n != 1 and n % 100 = 1..19, i == 1 is handled above
+                final long mod100 = i % 100;
+                return i == 0 || (mod100 >= 1 && mod100 <= 19) ? Category.FEW : Category.OTHER;
+            }
+        }), "ro");
+        register(new PluralRules(new Rule()
+        {
+            @Override
+            Category select(long i, boolean fraction)
+            {
+                if (fraction)
+                {
+                    return Category.OTHER;
+                }
+                if (i <= 2)
+                {
+                    return CATEGORIES[(int)i];
+                }
+                final long mod100 = i % 100;
+                if (mod100 >= 3 && mod100 <= 10)
+                {
+                    return Category.FEW;
+                }
+                return mod100 >= 11 ? Category.MANY : Category.OTHER;
+            }
+        }), "ar");
+        register(new PluralRules(new Rule()
+        {
+            @Override
+            Category select(long i, boolean fraction)
+            {
+                if (fraction)
+                {
+                    return Category.OTHER;
+                }
+                final long mod10 = i % 10;
+                final long mod100 = i % 100;
+                if (mod10 == 1 && mod100 != 11)
+                {
+                    return Category.ONE;
+                }
+                if (mod10 >= 2 && mod10 <= 4 && (mod100 < 12 || mod100 > 14))
+                {
+                    return Category.FEW;
+                }
+                return Category.OTHER;
+            }
+        }), "bs", "hr", "sh", "sr");
+        register(new PluralRules(new Rule()
+        {
+            @Override
+            Category select(long i, boolean fraction)
+            {
+                if (fraction)
+                {
+                    return Category.MANY;
+                }
+                final long mod10 = i % 10;
+                final long mod100 = i % 100;
+                if (mod100 >= 11 && mod100 <= 19)
+                {
+                    return Category.OTHER;
+                }
+                if (mod10 == 1)
+                {
+                    return Category.ONE;
+                }
+                return mod10 >= 2 ? Category.FEW : Category.OTHER;
+            }
+        }), "lt");
+        register(new PluralRules(new Rule()
+        {
+            @Override
+            Category select(long i, boolean fraction)
+            {
+                if (fraction)
+                {
+                    return Category.OTHER;
+                }
+                final long mod10 = i % 10;
+                final long mod100 = i % 100;
+                if (mod10 == 0 || (mod100 >= 11 && mod100 <= 19))
+                {
+                    return Category.ZERO;
+                }
+                return mod10 == 1 ? Category.ONE : Category.OTHER;
+            }
+        }), "lv");
+        register(new PluralRules(new Rule()
+        {
+            @Override
+            Category select(long i, boolean fraction)
+            {
+                if (fraction)
+                {
+                    return i == 0 ? Category.ONE : Category.OTHER;
+                }
+                if (i == 1)
+                {
+                    return Category.ONE;
+                }
+                return i == 2 ? Category.TWO : Category.OTHER;
+            }
+        }), "he", "iw");
+        register(new PluralRules(new Rule()
+        {
+            @Override
+            Category select(long i, boolean fraction)
+            {
+                if (fraction)
+                {
+                    return Category.FEW;
+                }
+                final long mod100 = i % 100;
+                if (mod100 == 1)
+                {
+                    return Category.ONE;
+                }
+                if (mod100 == 2)
+                {
+                    return Category.TWO;
+                }
+                return mod100 == 3 || mod100 == 4 ? Category.FEW : Category.OTHER;
+            }
+        }), "sl");
+        register(new PluralRules(new Rule()
+        {
+            @Override
+            Category select(long i, boolean fraction)
+            {
+                if (fraction)
+                {
+                    return Category.OTHER;
+                }
+                switch ((int)Math.min(i, 7))
+                {
+                    case 0:
+                        return Category.ZERO;
+                    case 1:
+                        return Category.ONE;
+                    case 2:
+                        return Category.TWO;
+                    case 3:
+                        return Category.FEW;
+                    case 6:
+                        return Category.MANY;
+                    default:
+                        return Category.OTHER;
+                }
+            }
+        }), "cy");
+        register(new PluralRules(new Rule()
+        {
+            @Override
+            Category select(long i, boolean fraction)
+            {
+                if (fraction || i == 0 || i > 10)
+                {
+                    return Category.OTHER;
+                }
+                if (i <= 2)
+                {
+                    return CATEGORIES[(int)i];
+                }
+                return i <= 6 ? Category.FEW : Category.MANY;
+            }
+        }), "ga");
+    }
+
+    /**
+     * The categories of the integers 0 to 99.
+     */
+    private final byte[] small = new byte[TABLE_SIZE];
+    /**
+     * The categories of integers from 100 on by their last two digits.
+     */
+    private final byte[] large = new byte[TABLE_SIZE];
+    /**
+     * The rule, which is still needed for fractions.
+     */
+    private final Rule rule;
+
+    private PluralRules(Rule rule)
+    {
+        this.rule = rule;
+        for (int n = 0; n < TABLE_SIZE; n++)
+        {
+            small[n] = (byte)rule.select(n, false).ordinal();
+            large[n] = (byte)rule.select(TABLE_SIZE + n, false).ordinal();
+        }
+    }
+
+    private static void register(PluralRules rules, String... languages)
+    {
+        for (String language : languages)
+        {
+            RULES.put(language, rules);
+        }
+    }
+
+    /**
+     * Returns the plural rules of the language of the given locale. Languages without known rules get the English
+     * rules, which only distinguish "one" and "other".
+     *
+     * @param locale the locale.
+     *
+     * @return the plural rules.
+     */
+    static PluralRules forLocale(Locale locale)
+    {
+        final PluralRules rules = RULES.get(locale.getLanguage());
+        return rules == null ? ONE_OTHER : rules;
+    }
+
+    /**
+     * Selects the category of an integer.
+     *
+     * @param n the integer.
+     *
+     * @return the category.
+     */
+    Category select(long n)
+    {
+        if (n < 0)
+        {
+            n = n == Long.MIN_VALUE ? Long.MAX_VALUE : -n;
+        }
+        if (n < TABLE_SIZE)
+        {
+            return CATEGORIES[small[(int)n]];
+        }
+        return CATEGORIES[large[(int)(n % TABLE_SIZE)]];
+    }
+
+    /**
+     * Selects the category of a number with visible fraction digits.
+     *
+     * @param n the number.
+     *
+     * @return the category.
+     */
+    Category selectFraction(double n)
+    {
+        return rule.select((long)Math.abs(n), true);
+    }
+
+    /**
+     * The actual rule deciding the category of a number by its integer digits and whether it has visible fraction
+     * digits. The rules are only evaluated to fill the decision tables, except for fractions.
+     */
+    private static abstract class Rule
+    {
+        abstract Category select(long i, boolean fraction);
+    }
+}
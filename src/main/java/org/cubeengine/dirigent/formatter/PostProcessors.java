@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.util.Set;
+import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.component.Component;
+
+/**
+ * Evaluates the declarations of {@link SelectivePostProcessor}s. Plain {@link PostProcessor}s apply to all
+ * components and are never pure.
+ */
+public final class PostProcessors
+{
+    private PostProcessors()
+    {
+    }
+
+    /**
+     * Checks whether a post processor is pure.
+     *
+     * @param postProcessor The post processor.
+     *
+     * @return whether it is pure.
+     */
+    public static boolean isPure(PostProcessor postProcessor)
+    {
+        return postProcessor instanceof SelectivePostProcessor && ((SelectivePostProcessor)postProcessor).isPure();
+    }
+
+    /**
+     * Checks whether a post processor applies to the given component.
+     *
+     * @param postProcessor The post processor.
+     * @param component The component.
+     *
+     * @return whether it applies.
+     */
+    public static boolean appliesTo(PostProcessor postProcessor, Component component)
+    {
+        if (!(postProcessor instanceof SelectivePostProcessor))
+        {
+            return true;
+        }
+        final Set<Class<? extends Component>> types = ((SelectivePostProcessor)postProcessor).getComponentTypes();
+        if (types.isEmpty())
+        {
+            return true;
+        }
+        for (Class<? extends Component> type : types)
+        {
+            if (type.isInstance(component))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a post processor applies to the macros of the given name.
+     *
+     * @param postProcessor The post processor.
+     * @param name The name of the macro, null for macros without a name.
+     *
+     * @return whether it applies.
+     */
+    public static boolean appliesToMacro(PostProcessor postProcessor, String name)
+    {
+        if (!(postProcessor instanceof SelectivePostProcessor))
+        {
+            return true;
+        }
+        final Set<String> names = ((SelectivePostProcessor)postProcessor).getMacroNames();
+        return names.isEmpty() || (name != null && names.contains(name));
+    }
+
+    /**
+     * Checks whether a post processor applies to the literal texts of messages.
+     *
+     * @param postProcessor The post processor.
+     *
+     * @return whether it applies.
+     */
+    public static boolean appliesToLiterals(PostProcessor postProcessor)
+    {
+        if (!(postProcessor instanceof SelectivePostProcessor))
+        {
+            return true;
+        }
+        final SelectivePostProcessor selective = (SelectivePostProcessor)postProcessor;
+        if (!selective.getMacroNames().isEmpty())
+        {
+            return false;
+        }
+        if (selective.getComponentTypes().isEmpty())
+        {
+            return true;
+        }
+        for (Class<? extends Component> type : selective.getComponentTypes())
+        {
+            if (type.isAssignableFrom(Text.class))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.cubeengine.dirigent.Dirigent;
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.MacroResolutionResult;
+import org.cubeengine.dirigent.parser.Parser;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
+import org.cubeengine.dirigent.parser.component.ResolvedMacro;
+import org.cubeengine.dirigent.parser.component.TextComponent;
+import org.cubeengine.dirigent.parser.component.UnresolvableMacro;
+import org.cubeengine.dirigent.parser.element.Element;
+import org.cubeengine.dirigent.parser.element.Macro;
+import org.cubeengine.dirigent.parser.element.NamedMacro;
+
+/**
+ * The select formatter chooses a message part by the value of the input, e.g.
+ * {@code {0:select:online=\{1\} is online:offline=\{1\} is away:other=unknown}}. The parameter named like the input
+ * is chosen, which is the lower case name of an enum constant, "true" or "false" for booleans and the lower case
+ * string representation of other values. If no parameter matches, the "other" part is used, which is required then.
+ *
+ * The parts are messages themselves and are parsed once per macro. Macros within the chosen part are resolved against
+ * the same message inputs as the select macro itself by the {@link Dirigent}. Only if the formatter is used outside
+ * of a message, e.g. as the element formatter of a list, the macros are resolved against the select input. Macros
+ * without a formatter stay unresolved in both cases. The
+ * characters ":" and "}" within a part have to be escaped with "\".
+ *
+ * Enum constants are mapped to their parts with a table indexed by their ordinal, all other values with a hash
+ * lookup, so choosing a part doesn't depend on the number of parts.
+ */
+public class SelectFormatter extends AbstractFormatter<Object>
+{
+    /**
+     * The name of the fallback parameter.
+     */
+    static final String OTHER_PARAM_NAME = "other";
+
+    private static final int COMPILED_CAPACITY = 256;
+    /**
+     * Marks missing parts, it must not be identical with the result of parsing an empty part.
+     */
+    private static final List<Element> MISSING = Collections.unmodifiableList(new ArrayList<Element>(0));
+
+    private static final ConcurrentMap<Arguments, CompiledSelect> COMPILED =
+        new ConcurrentHashMap<Arguments, CompiledSelect>();
+
+    /**
+     * The dirigent providing the formatters of nested macros if the formatter is used outside of a message.
+     */
+    private final Dirigent<?> dirigent;
+
+    /**
+     * Constructs this formatter with a few default names.
+     *
+     * @param dirigent The dirigent providing the formatters of nested macros.
+     */
+    public SelectFormatter(Dirigent<?> dirigent)
+    {
+        this(dirigent, "select", "case");
+    }
+
+    /**
+     * Constructs this formatter with the given names.
+     *
+     * @param dirigent The dirigent providing the formatters of nested macros.
+     * @param names The names triggering this formatter.
+     */
+    public SelectFormatter(Dirigent<?> dirigent, String... names)
+    {
+        super(names);
+        this.dirigent = dirigent;
+    }
+
+    /**
+     * Selects the parsed message part for the given input.
+     *
+     * @param input The input of the macro.
+     * @param args The arguments of the macro.
+     *
+     * @return the elements of the chosen part.
+     */
+    public List<Element> select(Object input, Arguments args)
+    {
+        return compiled(args).select(input);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Component format(Object input, Context context, Arguments args)
+    {
+        final List<Element> elements = select(input, args);
+        final List<Component> components = new ArrayList<Component>(elements.size());
+        for (Element element : elements)
+        {
+            if (element instanceof TextComponent)
+            {
+                components.add((Component)element);
+            }
+            else
+            {
+                final Macro macro = (Macro)element;
+                final NamedMacro named = macro instanceof NamedMacro ? (NamedMacro)macro : null;
+                final MacroResolutionResult res = dirigent.findFormatter(named == null ? null : named.getName(), input);
+                if (res.isOK())
+                {
+                    components.add(new ResolvedMacro((Formatter<Object>)res.getFormatter(), input,
+                                                     named == null ? Arguments.NONE : named.getArgs()));
+                }
+                else
+                {
+                    components.add(new UnresolvableMacro(macro, input, res.getState()));
+                }
+            }
+        }
+        return new ComponentGroup(components);
+    }
+
+    private static CompiledSelect compiled(Arguments args)
+    {
+        CompiledSelect compiled = COMPILED.get(args);
+        if (compiled == null)
+        {
+            compiled = new CompiledSelect(args);
+            if (COMPILED.size() >= COMPILED_CAPACITY)
+            {
+                COMPILED.clear();
+            }
+            final CompiledSelect existing = COMPILED.putIfAbsent(args, compiled);
+            if (existing != null)
+            {
+                compiled = existing;
+            }
+        }
+        return compiled;
+    }
+
+    @Override
+    protected boolean isPureFormat()
+    {
+        return true;
+    }
+
+    /**
+     * The parsed parts of a select macro. The parts are parsed on their first use, so only the parameters of the
+     * macro are cached and the cache doesn't grow with the number of distinct inputs.
+     */
+    private static final class CompiledSelect
+    {
+        private final Arguments args;
+        private final ConcurrentMap<String, List<Element>> parts = new ConcurrentHashMap<String, List<Element>>();
+        private volatile OrdinalTable ordinals;
+        private volatile List<Element> other;
+
+        private CompiledSelect(Arguments args)
+        {
+            this.args = args;
+        }
+
+        List<Element> select(Object input)
+        {
+            if (input instanceof Enum)
+            {
+                return selectEnum((Enum<?>)input);
+            }
+            return orOther(part(keyOf(input)));
+        }
+
+        private List<Element> selectEnum(Enum<?> input)
+        {
+            OrdinalTable table = ordinals;
+            final Class<?> type = input.getDeclaringClass();
+            if (table == null || table.type != type)
+            {
+                table = new OrdinalTable(type);
+                ordinals = table;
+            }
+            final int ordinal = input.ordinal();
+            List<Element> part = table.parts.get(ordinal);
+            if (part == null)
+            {
+                part = orOther(part(keyOf(input)));
+                table.parts.set(ordinal, part);
+            }
+            return part;
+        }
+
+        private List<Element> orOther(List<Element> part)
+        {
+            if (part != MISSING)
+            {
+                return part;
+            }
+            List<Element> fallback = other;
+            if (fallback == null)
+            {
+                fallback = part(OTHER_PARAM_NAME);
+                if (fallback == MISSING)
+                {
+                    throw new IllegalArgumentException("The select macro requires an '" + OTHER_PARAM_NAME + "' part!");
+                }
+                other = fallback;
+            }
+            return fallback;
+        }
+
+        private List<Element> part(String key)
+        {
+            List<Element> part = parts.get(key);
+            if (part == null)
+            {
+                final String source = args.get(key);
+                if (source == null)
+                {
+                    // unknown keys aren't cached, the inputs might be arbitrary values like player names
+                    return MISSING;
+                }
+                part = Parser.parse(source);
+                parts.put(key, part);
+            }
+            return part;
+        }
+
+        private static String keyOf(Object input)
+        {
+            if (input instanceof Enum)
+            {
+                return ((Enum<?>)input).name().toLowerCase(Locale.ENGLISH);
+            }
+            return String.valueOf(input).toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * The parts of the constants of an enum indexed by their ordinal.
+     */
+    private static final class OrdinalTable
+    {
+        private final Class<?> type;
+        private final AtomicReferenceArray<List<Element>> parts;
+
+        private OrdinalTable(Class<?> type)
+        {
+            this.type = type;
+            this.parts = new AtomicReferenceArray<List<Element>>(type.getEnumConstants().length);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.util.Set;
+import org.cubeengine.dirigent.parser.component.Component;
+
+/**
+ * A {@link PostProcessor} declaring which components it applies to. Post processors which don't apply to a component
+ * are skipped without calling them.
+ * <p>
+ * Pure post processors are applied to the literal texts of a message once, when the message is compiled, instead of
+ * on every composition. They also allow the {@link org.cubeengine.dirigent.ResultCache} to cache the messages.
+ */
+public interface SelectivePostProcessor extends PostProcessor
+{
+    /**
+     * Returns the types of components this post processor applies to, e.g. {@link org.cubeengine.dirigent.parser.Text}
+     * for texts or {@link org.cubeengine.dirigent.parser.component.ResolvedMacro} for the macros of registered
+     * formatters. An empty set matches all components.
+     *
+     * @return the component types.
+     */
+    Set<Class<? extends Component>> getComponentTypes();
+
+    /**
+     * Returns the names of the macros this post processor applies to when it is added to a
+     * {@link org.cubeengine.dirigent.Dirigent}. Post processors with macro names don't apply to the literal texts and
+     * the macros without a name. An empty set matches all macros and texts.
+     *
+     * @return the macro names.
+     */
+    Set<String> getMacroNames();
+
+    /**
+     * Returns whether the result only depends on the given component and arguments, but neither on the context nor on
+     * any other state. A pure post processor must not format the {@link
+     * org.cubeengine.dirigent.parser.component.ResolvedMacro}s it is given itself.
+     *
+     * @return whether the post processor is pure.
+     */
+    boolean isPure();
+}
@@ -76,4 +76,10 @@ public class StaticTextFormatter extends ConstantFormatter
     {
         return names;
     }
+
+    @Override
+    protected boolean isPureFormat()
+    {
+        return true;
+    }
 }
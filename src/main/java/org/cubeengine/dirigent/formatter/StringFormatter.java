@@ -26,13 +26,16 @@ import java.util.Locale;
 import org.cubeengine.dirigent.parser.component.Component;
 import org.cubeengine.dirigent.context.Context;
 import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.parser.CharSequenceText;
+import org.cubeengine.dirigent.parser.CharSequenceText.CaseConversion;
 import org.cubeengine.dirigent.parser.Text;
 
 import static org.cubeengine.dirigent.context.Contexts.LOCALE;
 
 /**
  * The string formatter formats an {@link Object} with {@link String#valueOf(Object)}. It is possible to control this
- * output with one of the flags "lowercase" or "uppercase" which lowercase or uppercase the string.
+ * output with one of the flags "lowercase" or "uppercase" which lowercase or uppercase the string. {@link CharSequence}
+ * inputs are used as they are and converted while the message is built, see {@link CharSequenceText}.
  */
 public class StringFormatter extends AbstractFormatter<Object>
 {
@@ -66,7 +69,45 @@ public class StringFormatter extends AbstractFormatter<Object>
     @Override
     protected Component format(Object input, Context context, Arguments args)
     {
-        return new Text(parseObjectToString(input, context.get(LOCALE), args));
+        if (!keepsCharSequences())
+        {
+            return new Text(parseObjectToString(input, context.get(LOCALE), args));
+        }
+
+        final CharSequence text = input instanceof CharSequence ? (CharSequence)input : String.valueOf(input);
+        return new CharSequenceText(text, parseCaseConversion(args), context.get(LOCALE));
+    }
+
+    /**
+     * Loads the case conversion from the macro arguments.
+     *
+     * @param args The arguments of the macro.
+     *
+     * @return the case conversion.
+     */
+    private static CaseConversion parseCaseConversion(Arguments args)
+    {
+        if (args.has(LOWERCASE_FLAG))
+        {
+            return CaseConversion.LOWERCASE;
+        }
+        if (args.has(UPPERCASE_FLAG))
+        {
+            return CaseConversion.UPPERCASE;
+        }
+        return CaseConversion.NONE;
+    }
+
+    /**
+     * Whether the input is kept as a {@link CharSequenceText}, which is converted while the message is built, instead
+     * of being converted by {@link #parseObjectToString(Object, Locale, Arguments)}. Only the string formatter itself
+     * does so by default, sub classes which don't customize the conversion may overwrite this method to opt in.
+     *
+     * @return whether the input is kept as a {@link CharSequenceText}.
+     */
+    protected boolean keepsCharSequences()
+    {
+        return getClass() == StringFormatter.class;
     }
 
     /**
@@ -90,4 +131,10 @@ public class StringFormatter extends AbstractFormatter<Object>
         }
         return string;
     }
+
+    @Override
+    protected boolean isPureFormat()
+    {
+        return true;
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.Style;
+import org.cubeengine.dirigent.parser.StyledText;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
+import org.cubeengine.dirigent.parser.component.ResolvedMacro;
+import org.cubeengine.dirigent.parser.component.TextComponent;
+
+/**
+ * This post processor styles the input component, e.g. to make macro components bold. Unlike the
+ * {@link WrappingPostProcessor} it doesn't nest the component but flattens it into a single {@link StyledText}, so
+ * styles applied by several post processors are merged into the runs of the text with {@link Style#merge(int, int)}.
+ *
+ * Components which can't be flattened, i.e. groups containing custom or unresolvable components, are returned
+ * unchanged.
+ */
+public class StylingPostProcessor implements PostProcessor
+{
+    private final int style;
+
+    /**
+     * Constructor.
+     *
+     * @param style The {@link Style} to apply.
+     */
+    public StylingPostProcessor(int style)
+    {
+        this.style = style;
+    }
+
+    @Override
+    public Component process(Component component, Context context, Arguments arguments)
+    {
+        final StyledText.Builder builder = new StyledText.Builder();
+        if (append(builder, component, context))
+        {
+            return builder.build();
+        }
+        return component;
+    }
+
+    private boolean append(StyledText.Builder builder, Component component, Context context)
+    {
+        if (component instanceof StyledText)
+        {
+            builder.append((StyledText)component, style);
+        }
+        else if (component instanceof TextComponent)
+        {
+            builder.append(((TextComponent)component).getText(), style);
+        }
+        else if (component instanceof ComponentGroup)
+        {
+            for (Component c : ((ComponentGroup)component).getComponents())
+            {
+                if (!append(builder, c, context))
+                {
+                    return false;
+                }
+            }
+        }
+        else if (component instanceof ResolvedMacro)
+        {
+            return append(builder, ((ResolvedMacro)component).process(context), context);
+        }
+        else
+        {
+            return false;
+        }
+        return true;
+    }
+}
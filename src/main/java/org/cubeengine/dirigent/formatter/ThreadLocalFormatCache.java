@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.text.Format;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Caches {@link Format} instances per thread. The formats of {@code java.text} are expensive to create and not thread
+ * safe, so every thread gets its own bounded set of instances. This lets formatters be used by many threads at once
+ * without contention.
+ *
+ * @param <K> the type of the key identifying a format
+ * @param <F> the type of the format
+ */
+abstract class ThreadLocalFormatCache<K, F extends Format>
+{
+    /**
+     * The default number of formats cached per thread.
+     */
+    static final int DEFAULT_CAPACITY = 32;
+
+    private final ThreadLocal<Map<K, F>> formats;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the maximum number of formats cached per thread.
+     */
+    ThreadLocalFormatCache(final int capacity)
+    {
+        this.formats = new ThreadLocal<Map<K, F>>()
+        {
+            @Override
+            protected Map<K, F> initialValue()
+            {
+                return new LruMap<K, F>(capacity);
+            }
+        };
+    }
+
+    /**
+     * Returns the format of the current thread for the given key. The format is created if it isn't cached yet.
+     *
+     * @param key the key
+     *
+     * @return the format
+     */
+    F get(K key)
+    {
+        final Map<K, F> cache = formats.get();
+        F format = cache.get(key);
+        if (format == null)
+        {
+            format = create(key);
+            cache.put(key, format);
+        }
+        return format;
+    }
+
+    /**
+     * Creates the format for the given key.
+     *
+     * @param key the key
+     *
+     * @return the format
+     */
+    protected abstract F create(K key);
+
+    /**
+     * A map evicting the least recently used entry once it exceeds its capacity.
+     */
+    private static final class LruMap<K, V> extends LinkedHashMap<K, V>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private LruMap(int capacity)
+        {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Entry<K, V> eldest)
+        {
+            return size() > capacity;
+        }
+    }
+}
@@ -45,4 +45,15 @@ public class TimeFormatter extends DateTimeFormatter
     {
         super(Mode.TIME, names);
     }
+
+    /**
+     * Constructs this formatter with the given names.
+     *
+     * @param cached Whether the last formatted second is cached per format and time zone.
+     * @param names The names triggering this formatter.
+     */
+    public TimeFormatter(boolean cached, String... names)
+    {
+        super(Mode.TIME, cached, names);
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The words of the time units of a language, used to format durations like "3 minutes" and relative times like
+ * "3 minutes ago". The words are chosen by the plural category of the amount.
+ */
+final class TimeUnitWords
+{
+    /**
+     * The time units from coarse to fine.
+     */
+    enum Unit
+    {
+        DAY(86400000L),
+        HOUR(3600000L),
+        MINUTE(60000L),
+        SECOND(1000L);
+
+        private final long millis;
+
+        Unit(long millis)
+        {
+            this.millis = millis;
+        }
+
+        /**
+         * Returns the length of the unit.
+         *
+         * @return the milliseconds of the unit.
+         */
+        long getMillis()
+        {
+            return millis;
+        }
+    }
+
+    private static final Map<String, TimeUnitWords> WORDS = new HashMap<String, TimeUnitWords>();
+
+    /**
+     * The English words, which are used for languages without known words.
+     */
+    static final TimeUnitWords ENGLISH = new TimeUnitWords("now", "%s ago", "in %s",
+                                                           new String[]{"day", "days", "hour", "hours", "minute",
+                                                               "minutes", "second", "seconds"}, null);
+
+    static
+    {
+        WORDS.put("en", ENGLISH);
+        WORDS.put("de", new TimeUnitWords("jetzt", "vor %s", "in %s",
+                                          new String[]{"Tag", "Tage", "Stunde", "Stunden", "Minute", "Minuten",
+                                              "Sekunde", "Sekunden"},
+                                          new String[]{"Tag", "Tagen", "Stunde", "Stunden", "Minute", "Minuten",
+                                              "Sekunde", "Sekunden"}));
+        WORDS.put("fr", new TimeUnitWords("maintenant", "il y a %s", "dans %s",
+                                          new String[]{"jour", "jours", "heure", "heures", "minute", "minutes",
+                                              "seconde", "secondes"}, null));
+        WORDS.put("es", new TimeUnitWords("ahora", "hace %s", "dentro de %s",
+                                          new String[]{"día", "días", "hora", "horas", "minuto", "minutos",
+                                              "segundo", "segundos"}, null));
+    }
+
+    private final String now;
+    private final String past;
+    private final String future;
+    /**
+     * The singular and plural words of the units in the order of the units.
+     */
+    private final String[] words;
+    /**
+     * The words used within relative times, which differ by grammatical case in some languages.
+     */
+    private final String[] relativeWords;
+
+    private TimeUnitWords(String now, String past, String future, String[] words, String[] relativeWords)
+    {
+        this.now = now;
+        this.past = past;
+        this.future = future;
+        this.words = words;
+        this.relativeWords = relativeWords == null ? words : relativeWords;
+    }
+
+    /**
+     * Returns the words of the language of the given locale.
+     *
+     * @param locale the locale.
+     *
+     * @return the words.
+     */
+    static TimeUnitWords forLocale(Locale locale)
+    {
+        final TimeUnitWords words = WORDS.get(locale.getLanguage());
+        return words == null ? ENGLISH : words;
+    }
+
+    /**
+     * Returns the word of a unit.
+     *
+     * @param unit the unit.
+     * @param category the plural category of the amount.
+     * @param relative whether the word is used within a relative time.
+     *
+     * @return the word.
+     */
+    String unit(Unit unit, PluralRules.Category category, boolean relative)
+    {
+        final int plural = category == PluralRules.Category.ONE ? 0 : 1;
+        return (relative ? relativeWords : words)[unit.ordinal() * 2 + plural];
+    }
+
+    /**
+     * Returns the text of a relative time close to the present.
+     *
+     * @return the text.
+     */
+    String now()
+    {
+        return now;
+    }
+
+    /**
+     * Places the given duration into a relative time text.
+     *
+     * @param duration the formatted duration.
+     * @param inPast whether the time is in the past.
+     *
+     * @return the relative time text.
+     */
+    String relative(String duration, boolean inPast)
+    {
+        final String pattern = inPast ? past : future;
+        final int placeholder = pattern.indexOf("%s");
+        return pattern.substring(0, placeholder) + duration + pattern.substring(placeholder + 2);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.parser;
+
+import java.util.Locale;
+
+/**
+ * A {@link Text} backed by a {@link CharSequence} which is optionally converted to lower or upper case. The text isn't
+ * copied into a {@link String} unless {@link #getText()} is called, builders can stream it with
+ * {@link #appendTo(StringBuilder)} instead. ASCII texts are converted character by character, respecting the dotless
+ * i of the Turkish and Azerbaijani locales. Other texts are converted with the locale rules of {@link String}.
+ */
+public class CharSequenceText extends Text
+{
+    /**
+     * The case conversion applied to the text.
+     */
+    public enum CaseConversion
+    {
+        /**
+         * Keeps the text as it is.
+         */
+        NONE,
+        /**
+         * Converts the text to lower case.
+         */
+        LOWERCASE,
+        /**
+         * Converts the text to upper case.
+         */
+        UPPERCASE
+    }
+
+    private final CharSequence text;
+    private final CaseConversion conversion;
+    private final Locale locale;
+
+    /**
+     * The converted text. It is created on first request.
+     */
+    private String string;
+
+    /**
+     * Constructor.
+     *
+     * @param text The text.
+     * @param conversion The case conversion.
+     * @param locale The locale of the case conversion.
+     */
+    public CharSequenceText(CharSequence text, CaseConversion conversion, Locale locale)
+    {
+        super("");
+        this.text = text;
+        this.conversion = conversion;
+        this.locale = locale;
+    }
+
+    @Override
+    public String getText()
+    {
+        if (string == null)
+        {
+            if (conversion == CaseConversion.NONE)
+            {
+                string = text.toString();
+            }
+            else
+            {
+                final StringBuilder builder = new StringBuilder(text.length());
+                string = appendAscii(builder) ? builder.toString() : convert();
+            }
+        }
+        return string;
+    }
+
+    /**
+     * Appends the converted text to the given builder.
+     *
+     * @param builder The builder.
+     */
+    public void appendTo(StringBuilder builder)
+    {
+        if (string != null)
+        {
+            builder.append(string);
+        }
+        else if (conversion == CaseConversion.NONE)
+        {
+            builder.append(text);
+        }
+        else if (!appendAscii(builder))
+        {
+            string = convert();
+            builder.append(string);
+        }
+    }
+
+    /**
+     * Appends the converted text to the given builder if it is an ASCII text. The text is checked while it is
+     * converted, so it is only scanned once. If it contains other characters, the builder is reset.
+     *
+     * @param builder The builder.
+     *
+     * @return whether the text was appended.
+     */
+    private boolean appendAscii(StringBuilder builder)
+    {
+        final String language = locale.getLanguage();
+        final boolean dotlessI = "tr".equals(language) || "az".equals(language);
+        final int start = builder.length();
+        final int length = text.length();
+        if (conversion == CaseConversion.LOWERCASE)
+        {
+            for (int i = 0; i < length; i++)
+            {
+                final char c = text.charAt(i);
+                if (c >= 0x80)
+                {
+                    builder.setLength(start);
+                    return false;
+                }
+                if (c >= 'A' && c <= 'Z')
+                {
+                    builder.append(dotlessI && c == 'I' ? 'ı' : (char)(c + ('a' - 'A')));
+                }
+                else
+                {
+                    builder.append(c);
+                }
+            }
+        }
+        else
+        {
+            for (int i = 0; i < length; i++)
+            {
+                final char c = text.charAt(i);
+                if (c >= 0x80)
+                {
+                    builder.setLength(start);
+                    return false;
+                }
+                if (c >= 'a' && c <= 'z')
+                {
+                    builder.append(dotlessI && c == 'i' ? 'İ' : (char)(c - ('a' - 'A')));
+                }
+                else
+                {
+                    builder.append(c);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts a text which isn't an ASCII text with the locale rules of {@link String}.
+     *
+     * @return the converted text.
+     */
+    private String convert()
+    {
+        if (conversion == CaseConversion.LOWERCASE)
+        {
+            return text.toString().toLowerCase(locale);
+        }
+        return text.toString().toUpperCase(locale);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CharSequenceText{" + "text='" + text + '\'' + ", conversion=" + conversion + '}';
+    }
+}
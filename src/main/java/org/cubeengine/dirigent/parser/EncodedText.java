@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A {@link Text} which additionally holds its encoded bytes. Compiled templates keep their literal texts encoded, so
+ * builders writing bytes don't have to encode them on every composition.
+ */
+public class EncodedText extends Text
+{
+    private final Charset charset;
+    private final byte[] bytes;
+
+    /**
+     * Constructor.
+     *
+     * @param string The actual text.
+     * @param charset The charset to encode the text with.
+     */
+    public EncodedText(String string, Charset charset)
+    {
+        super(string);
+        this.charset = charset;
+        this.bytes = getText().getBytes(charset);
+    }
+
+    /**
+     * Returns the charset of the encoded bytes.
+     *
+     * @return the charset.
+     */
+    public Charset getCharset()
+    {
+        return charset;
+    }
+
+    /**
+     * Returns the number of encoded bytes.
+     *
+     * @return the number of bytes.
+     */
+    public int getByteCount()
+    {
+        return bytes.length;
+    }
+
+    /**
+     * Writes the encoded bytes into the given buffer.
+     *
+     * @param target the target buffer.
+     */
+    public void putBytes(ByteBuffer target)
+    {
+        target.put(bytes);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.parser;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.cubeengine.dirigent.parser.ParserHelper.inArray;
+
+/**
+ * Escapes user input so that it is safe to be used within a part of a macro. If nothing needs to be escaped, the input
+ * is returned unchanged, otherwise the escaped text is written in one pass in chunks between the escaped characters,
+ * without intermediate strings.
+ */
+public enum Escaper
+{
+    /**
+     * Escapes positional argument values.
+     */
+    ARGUMENT_VALUE(Parser.SECTION_SEP, Parser.VALUE_SEP, Parser.MACRO_END),
+    /**
+     * Escapes named parameter names.
+     */
+    PARAMETER_NAME(Parser.SECTION_SEP, Parser.VALUE_SEP, Parser.MACRO_END),
+    /**
+     * Escapes named parameter values.
+     */
+    PARAMETER_VALUE(Parser.SECTION_SEP, Parser.MACRO_END);
+
+    /**
+     * The characters to escape.
+     */
+    private final char[] chars;
+
+    Escaper(char... chars)
+    {
+        this.chars = chars;
+    }
+
+    /**
+     * Escapes the given string.
+     *
+     * @param s the string to be escaped
+     *
+     * @return the escaped string or the given string if nothing needs to be escaped
+     */
+    public String escape(String s)
+    {
+        final int[] next = indicesOfEscaped(s);
+        if (next == null)
+        {
+            return s;
+        }
+        return escape(s, next, new StringBuilder(s.length() + 8)).toString();
+    }
+
+    /**
+     * Escapes the given text and appends it to the given builder.
+     *
+     * @param s the text to be escaped
+     * @param out the builder
+     *
+     * @return the builder
+     */
+    public StringBuilder escape(CharSequence s, StringBuilder out)
+    {
+        if (s instanceof String)
+        {
+            final int[] next = indicesOfEscaped((String)s);
+            if (next == null)
+            {
+                return out.append(s);
+            }
+            return escape((String)s, next, out);
+        }
+        int start = 0;
+        int next;
+        while ((next = indexOfEscaped(s, start)) != -1)
+        {
+            out.append(s, start, next).append(Parser.ESCAPE).append(s.charAt(next));
+            start = next + 1;
+        }
+        return out.append(s, start, s.length());
+    }
+
+    /**
+     * Escapes the given text and appends it to the given {@link Appendable}.
+     *
+     * @param s the text to be escaped
+     * @param out the appendable
+     *
+     * @throws IOException if the appendable fails
+     */
+    public void escape(CharSequence s, Appendable out) throws IOException
+    {
+        int start = 0;
+        int next;
+        while ((next = indexOfEscaped(s, start)) != -1)
+        {
+            out.append(s, start, next).append(Parser.ESCAPE).append(s.charAt(next));
+            start = next + 1;
+        }
+        out.append(s, start, s.length());
+    }
+
+    /**
+     * Escapes many texts into one builder. The texts are separated by the given separator, which isn't escaped.
+     *
+     * @param texts the texts to be escaped
+     * @param separator the separator
+     * @param out the builder
+     *
+     * @return the builder
+     */
+    public StringBuilder escapeAll(Iterable<? extends CharSequence> texts, CharSequence separator, StringBuilder out)
+    {
+        boolean first = true;
+        for (CharSequence text : texts)
+        {
+            if (!first)
+            {
+                out.append(separator);
+            }
+            escape(text, out);
+            first = false;
+        }
+        return out;
+    }
+
+    /**
+     * Escapes a string given the next indices of the characters to escape.
+     */
+    private StringBuilder escape(String s, int[] next, StringBuilder out)
+    {
+        int start = 0;
+        int index;
+        int which;
+        while (true)
+        {
+            index = -1;
+            which = -1;
+            for (int i = 0; i < next.length; i++)
+            {
+                if (next[i] != -1 && (index == -1 || next[i] < index))
+                {
+                    index = next[i];
+                    which = i;
+                }
+            }
+            if (index == -1)
+            {
+                return out.append(s, start, s.length());
+            }
+            out.append(s, start, index).append(Parser.ESCAPE).append(chars[which]);
+            start = index + 1;
+            next[which] = s.indexOf(chars[which], start);
+        }
+    }
+
+    /**
+     * Finds the first index of every character to escape in a string. {@link String#indexOf(int)} is intrinsified by
+     * the JVM and scans a string much faster than a loop over its characters.
+     *
+     * @return the indices by character or null if nothing needs to be escaped
+     */
+    private int[] indicesOfEscaped(String s)
+    {
+        int[] next = null;
+        int index;
+        for (int i = 0; i < chars.length; i++)
+        {
+            index = s.indexOf(chars[i]);
+            if (index != -1)
+            {
+                if (next == null)
+                {
+                    next = new int[chars.length];
+                    Arrays.fill(next, 0, i, -1);
+                }
+                next[i] = index;
+            }
+            else if (next != null)
+            {
+                next[i] = -1;
+            }
+        }
+        return next;
+    }
+
+    private int indexOfEscaped(CharSequence s, int start)
+    {
+        final int length = s.length();
+        for (int i = start; i < length; i++)
+        {
+            if (inArray(chars, s.charAt(i)))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
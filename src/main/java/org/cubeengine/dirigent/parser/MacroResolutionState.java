@@ -38,5 +38,9 @@ public enum MacroResolutionState
     /**
      * Formatters were found, but none of them were applicable to the given input.
      */
-    NONE_APPLICABLE
+    NONE_APPLICABLE,
+    /**
+     * The property path of the macro refers to a property which doesn't exist in the input.
+     */
+    UNKNOWN_PROPERTY
 }
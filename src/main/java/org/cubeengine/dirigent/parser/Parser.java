@@ -23,6 +23,7 @@
 package org.cubeengine.dirigent.parser;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +33,7 @@ import org.cubeengine.dirigent.parser.element.DefaultMacro;
 import org.cubeengine.dirigent.parser.element.Element;
 import org.cubeengine.dirigent.parser.element.IndexedDefaultMacro;
 import org.cubeengine.dirigent.parser.element.NamedMacro;
+import org.cubeengine.dirigent.parser.element.PropertyPathMacro;
 
 import static java.util.Collections.emptyList;
 import static org.cubeengine.dirigent.parser.ParserHelper.inArray;
@@ -44,7 +46,7 @@ import static org.cubeengine.dirigent.parser.ParserHelper.inArray;
  * part      := text | macro
  * macro     := '{' body? '}'
  * body      := indexed | named
- * indexed   := index (':' named)?
+ * indexed   := index ('.' path)? (':' named)?
  * named     := name label? arguments
  * label     := '#' string
  * arguments := (':' argument)*
@@ -53,21 +55,31 @@ import static org.cubeengine.dirigent.parser.ParserHelper.inArray;
  * value     := string
  * name      := string
  * index     := NUMBER
+ * path      := string
  * string    := PLAIN_STRING | ESCAPED_STRING | NUMBER
  */
 public class Parser
 {
+    /**
+     * The name of the parameter holding the property path of a macro. Both {@code {0.stats.kills:number}} and
+     * {@code {0:number:@path=stats.kills}} end up with this parameter. The name is reserved, so it doesn't clash with
+     * the parameters of formatters.
+     */
+    public static final String PATH_PARAM = "@path";
+
     private static final char MACRO_BEGIN = '{';
-    private static final char MACRO_END = '}';
+    static final char MACRO_END = '}';
     private static final char LABEL_SEP = '#';
-    private static final char SECTION_SEP = ':';
-    private static final char VALUE_SEP = '=';
-    private static final char ESCAPE = '\\';
+    private static final char PATH_SEP = '.';
+    static final char SECTION_SEP = ':';
+    static final char VALUE_SEP = '=';
+    static final char ESCAPE = '\\';
 
     // these sets are in ascending char order as per int code
     private static final char[] TEXT_FOLLOW = {MACRO_BEGIN};
     private static final char[] SECTION_FOLLOW = {SECTION_SEP, MACRO_END};
-    private static final char[] INDEX_FOLLOW = SECTION_FOLLOW;
+    private static final char[] INDEX_FOLLOW = {PATH_SEP, SECTION_SEP, MACRO_END};
+    private static final char[] PATH_FOLLOW = SECTION_FOLLOW;
     private static final char[] MACRO_NAME_FOLLOW = {LABEL_SEP, SECTION_SEP, MACRO_END};
     private static final char[] LABEL_FOLLOW = SECTION_FOLLOW;
     private static final char[] PARAM_NAME_FOLLOW = {SECTION_SEP, VALUE_SEP, MACRO_END};
@@ -243,9 +255,23 @@ public class Parser
         }
         else
         {
+            String path = null;
+            if (is(s, PATH_SEP))
+            {
+                // skip PATH_SEP
+                ++s.offset;
+                path = readUntil(s, PATH_FOLLOW, false);
+                if (path.isEmpty() || s.outOfInput())
+                {
+                    // backtrack
+                    s.offset = start;
+                    parseText(s, true);
+                    return;
+                }
+            }
             if (is(s, MACRO_END))
             {
-                s.out.add(new IndexedDefaultMacro(index));
+                s.out.add(path == null ? new IndexedDefaultMacro(index) : new PropertyPathMacro(index, path));
                 // skip MACRO_END
                 ++s.offset;
             }
@@ -253,7 +279,7 @@ public class Parser
             {
                 // skip SECTION_SEP
                 ++s.offset;
-                parseNamedMacroWithIndex(s, start, index);
+                parseNamedMacroWithIndex(s, start, index, path);
             }
         }
     }
@@ -287,10 +313,10 @@ public class Parser
 
     private static void parseNamedMacro(State s, int start)
     {
-        parseNamedMacroWithIndex(s, start, -1);
+        parseNamedMacroWithIndex(s, start, -1, null);
     }
 
-    private static void parseNamedMacroWithIndex(State s, int start, int index)
+    private static void parseNamedMacroWithIndex(State s, int start, int index, String path)
     {
         String name = readUntil(s, MACRO_NAME_FOLLOW, true);
         if (is(s, LABEL_SEP))
@@ -309,7 +335,7 @@ public class Parser
         final Arguments args;
         if (is(s, SECTION_SEP))
         {
-            args = parseArguments(s);
+            args = parseArguments(s, path);
             if (args == null)
             {
                 // parsing arguments failed, backtrack
@@ -318,6 +344,10 @@ public class Parser
                 return;
             }
         }
+        else if (path != null)
+        {
+            args = Arguments.create(null, Collections.singletonMap(PATH_PARAM, path));
+        }
         else
         {
             args = Arguments.NONE;
@@ -342,10 +372,15 @@ public class Parser
         }
     }
 
-    private static Arguments parseArguments(State s)
+    private static Arguments parseArguments(State s, String path)
     {
         List<String> values = null;
         Map<String, String> params = null;
+        if (path != null)
+        {
+            params = new HashMap<String, String>(2);
+            params.put(PATH_PARAM, path);
+        }
         while (is(s, SECTION_SEP))
         {
             // skip SECTION_SEP
@@ -390,34 +425,29 @@ public class Parser
      * Escapes the given string so that it is safe to be used as a positional argument value.
      *
      * @param s the string to be escaped
-     * @return the escaped string
+     * @return the escaped string or the given string if nothing needs to be escaped
      */
     public static String escapeArgumentValue(String s) {
-        return s.replace("" + SECTION_SEP, "" + ESCAPE + SECTION_SEP)
-                .replace("" + VALUE_SEP, "" + ESCAPE + VALUE_SEP)
-                .replace("" + MACRO_END, "" + ESCAPE + MACRO_END);
+        return Escaper.ARGUMENT_VALUE.escape(s);
     }
 
     /**
      * Escapes the given string so that it is safe to be used as a named parameter name.
      *
      * @param s the string to be escaped
-     * @return the escaped string
+     * @return the escaped string or the given string if nothing needs to be escaped
      */
     public static String escapeParameterName(String s) {
-        return s.replace("" + SECTION_SEP, "" + ESCAPE + SECTION_SEP)
-                .replace("" + VALUE_SEP, "" + ESCAPE + VALUE_SEP)
-                .replace("" + MACRO_END, "" + ESCAPE + MACRO_END);
+        return Escaper.PARAMETER_NAME.escape(s);
     }
 
     /**
      * Escapes the given string so that it is safe to be used as a named parameter value.
      *
      * @param s the string to be escaped
-     * @return the escaped string
+     * @return the escaped string or the given string if nothing needs to be escaped
      */
     public static String escapeParameterValue(String s) {
-        return s.replace("" + SECTION_SEP, "" + ESCAPE + SECTION_SEP)
-                .replace("" + MACRO_END, "" + ESCAPE + MACRO_END);
+        return Escaper.PARAMETER_VALUE.escape(s);
     }
 }
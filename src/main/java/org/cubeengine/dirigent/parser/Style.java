@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.parser;
+
+/**
+ * Styles of {@link StyledText} runs packed into an {@code int}: decoration flags in the lower bits and an optional color
+ * index of the 16 classic chat colors (0 black to 15 white) above. {@code 0} is the plain style.
+ */
+public final class Style
+{
+    public static final int PLAIN = 0;
+    public static final int BOLD = 1;
+    public static final int ITALIC = 1 << 1;
+    public static final int UNDERLINED = 1 << 2;
+    public static final int STRIKETHROUGH = 1 << 3;
+    public static final int OBFUSCATED = 1 << 4;
+
+    /**
+     * The number of available colors.
+     */
+    public static final int COLOR_COUNT = 16;
+
+    private static final int DECORATIONS = (1 << 5) - 1;
+    private static final int COLOR_SHIFT = 8;
+    private static final int COLOR_MASK = 0x1F << COLOR_SHIFT;
+
+    private Style()
+    {
+    }
+
+    /**
+     * Returns the style of the given color.
+     *
+     * @param index The index of the color, 0 to 15.
+     *
+     * @return the style.
+     */
+    public static int color(int index)
+    {
+        if (index < 0 || index >= COLOR_COUNT)
+        {
+            throw new IllegalArgumentException("Invalid color index: " + index);
+        }
+        return (index + 1) << COLOR_SHIFT;
+    }
+
+    /**
+     * Returns the color index of the given style.
+     *
+     * @param style The style.
+     *
+     * @return the color index or -1 if the style has no color.
+     */
+    public static int getColor(int style)
+    {
+        return ((style & COLOR_MASK) >> COLOR_SHIFT) - 1;
+    }
+
+    /**
+     * Checks whether the style contains all of the given decoration flags.
+     *
+     * @param style The style.
+     * @param flags The decoration flags.
+     *
+     * @return whether all flags are set.
+     */
+    public static boolean has(int style, int flags)
+    {
+        return (style & flags) == flags;
+    }
+
+    /**
+     * Merges a style into the style of an enclosing component. The decorations are combined, the color of the inner
+     * style wins.
+     *
+     * @param outer The enclosing style.
+     * @param inner The inner style.
+     *
+     * @return the merged style.
+     */
+    public static int merge(int outer, int inner)
+    {
+        final int color = (inner & COLOR_MASK) != 0 ? inner & COLOR_MASK : outer & COLOR_MASK;
+        return ((outer | inner) & DECORATIONS) | color;
+    }
+}
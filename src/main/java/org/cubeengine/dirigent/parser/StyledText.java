@@ -0,0 +1,222 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.parser;
+
+import java.util.Arrays;
+
+/**
+ * A styled text: a single string with a run-length list of {@link Style}s. This is a flat alternative to nested
+ * {@link org.cubeengine.dirigent.parser.component.ComponentGroup}s wrapping texts with style components, a styled
+ * message consists of three objects regardless of the number of styled parts and builders walk the runs linearly.
+ *
+ * Builders not knowing about styles simply use the plain text. Instances are created with a {@link Builder}.
+ */
+public final class StyledText extends Text
+{
+    private final int[] runEnds;
+    private final int[] runStyles;
+
+    private StyledText(String string, int[] runEnds, int[] runStyles)
+    {
+        super(string);
+        this.runEnds = runEnds;
+        this.runStyles = runStyles;
+    }
+
+    /**
+     * Creates a styled text with a single run.
+     *
+     * @param text The text.
+     * @param style The style.
+     *
+     * @return the styled text.
+     */
+    public static StyledText of(String text, int style)
+    {
+        return new Builder().append(text, style).build();
+    }
+
+    /**
+     * Returns the number of runs.
+     *
+     * @return the number of runs.
+     */
+    public int getRunCount()
+    {
+        return runEnds.length;
+    }
+
+    /**
+     * Returns the index of the first character of the given run.
+     *
+     * @param run The run.
+     *
+     * @return the start index.
+     */
+    public int getRunStart(int run)
+    {
+        return run == 0 ? 0 : runEnds[run - 1];
+    }
+
+    /**
+     * Returns the index after the last character of the given run.
+     *
+     * @param run The run.
+     *
+     * @return the end index.
+     */
+    public int getRunEnd(int run)
+    {
+        return runEnds[run];
+    }
+
+    /**
+     * Returns the style of the given run.
+     *
+     * @param run The run.
+     *
+     * @return the style.
+     */
+    public int getRunStyle(int run)
+    {
+        return runStyles[run];
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof StyledText))
+        {
+            return false;
+        }
+
+        final StyledText that = (StyledText)o;
+
+        return getText().equals(that.getText()) && Arrays.equals(runEnds, that.runEnds) && Arrays.equals(runStyles,
+                                                                                                        that.runStyles);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * getText().hashCode() + Arrays.hashCode(runStyles);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "StyledText{" + "string='" + getText() + '\'' + ", runEnds=" + Arrays.toString(runEnds)
+            + ", runStyles=" + Arrays.toString(runStyles) + '}';
+    }
+
+    /**
+     * Builds {@link StyledText}s. Adjacent parts with the same style are merged into a single run and empty parts are
+     * skipped.
+     */
+    public static final class Builder
+    {
+        private final StringBuilder chars = new StringBuilder();
+        private int[] runEnds = new int[4];
+        private int[] runStyles = new int[4];
+        private int runCount = 0;
+
+        /**
+         * Appends a text with the given style.
+         *
+         * @param text The text.
+         * @param style The style.
+         *
+         * @return fluent interface.
+         */
+        public Builder append(CharSequence text, int style)
+        {
+            return append(text, 0, text.length(), style);
+        }
+
+        /**
+         * Appends a part of a text with the given style.
+         *
+         * @param text The text.
+         * @param start The index of the first character.
+         * @param end The index after the last character.
+         * @param style The style.
+         *
+         * @return fluent interface.
+         */
+        public Builder append(CharSequence text, int start, int end, int style)
+        {
+            if (start == end)
+            {
+                return this;
+            }
+            chars.append(text, start, end);
+            if (runCount > 0 && runStyles[runCount - 1] == style)
+            {
+                runEnds[runCount - 1] = chars.length();
+                return this;
+            }
+            if (runCount == runEnds.length)
+            {
+                runEnds = Arrays.copyOf(runEnds, runCount * 2);
+                runStyles = Arrays.copyOf(runStyles, runCount * 2);
+            }
+            runEnds[runCount] = chars.length();
+            runStyles[runCount] = style;
+            ++runCount;
+            return this;
+        }
+
+        /**
+         * Appends the runs of a styled text, each merged into the given style with {@link Style#merge(int, int)}.
+         *
+         * @param text The styled text.
+         * @param style The enclosing style.
+         *
+         * @return fluent interface.
+         */
+        public Builder append(StyledText text, int style)
+        {
+            final String string = text.getText();
+            for (int run = 0; run < text.getRunCount(); ++run)
+            {
+                append(string, text.getRunStart(run), text.getRunEnd(run), Style.merge(style, text.getRunStyle(run)));
+            }
+            return this;
+        }
+
+        /**
+         * Creates the styled text.
+         *
+         * @return the styled text.
+         */
+        public StyledText build()
+        {
+            return new StyledText(chars.toString(), Arrays.copyOf(runEnds, runCount),
+                                  Arrays.copyOf(runStyles, runCount));
+        }
+    }
+}
@@ -64,7 +64,8 @@ public class Text implements Element, TextComponent
         {
             return true;
         }
-        if (!(o instanceof Text))
+        // styled texts are only equal to styled texts, see StyledText#equals
+        if (!(o instanceof Text) || o instanceof StyledText)
         {
             return false;
         }
@@ -22,6 +22,7 @@
  */
 package org.cubeengine.dirigent.parser.component;
 
+import org.cubeengine.dirigent.context.Context;
 import org.cubeengine.dirigent.formatter.Formatter;
 import org.cubeengine.dirigent.context.Arguments;
 
@@ -87,6 +88,18 @@ public class ResolvedMacro implements Component
         return arguments;
     }
 
+    /**
+     * Formats the messages input parameter with the {@link Formatter} of this macro.
+     *
+     * @param context The compose context.
+     *
+     * @return the resulting processed Component.
+     */
+    public Component process(Context context)
+    {
+        return formatter.process(input, context, arguments);
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.parser.component;
+
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.formatter.Formatter;
+import org.cubeengine.dirigent.formatter.NumberFormatter;
+
+/**
+ * A {@link ResolvedMacro} holding a primitive message input parameter. A {@link NumberFormatter} formats the value
+ * without boxing, any other formatter gets the boxed value.
+ */
+public final class ResolvedPrimitiveMacro extends ResolvedMacro
+{
+    /**
+     * The type of the primitive value.
+     */
+    private enum Type
+    {
+        INT,
+        LONG,
+        DOUBLE
+    }
+
+    private final Type type;
+    private final long longValue;
+    private final double doubleValue;
+
+    private ResolvedPrimitiveMacro(Formatter<Object> formatter, Type type, long longValue, double doubleValue,
+                                   Arguments arguments)
+    {
+        super(formatter, null, arguments);
+        this.type = type;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+    }
+
+    /**
+     * Creates a macro holding an {@code int} value.
+     *
+     * @param formatter The formatter which is responsible of formatting the messages input parameter.
+     * @param input The messages input parameter.
+     * @param arguments The macro arguments.
+     *
+     * @return the macro.
+     */
+    public static ResolvedPrimitiveMacro ofInt(Formatter<Object> formatter, int input, Arguments arguments)
+    {
+        return new ResolvedPrimitiveMacro(formatter, Type.INT, input, 0, arguments);
+    }
+
+    /**
+     * Creates a macro holding a {@code long} value.
+     *
+     * @param formatter The formatter which is responsible of formatting the messages input parameter.
+     * @param input The messages input parameter.
+     * @param arguments The macro arguments.
+     *
+     * @return the macro.
+     */
+    public static ResolvedPrimitiveMacro ofLong(Formatter<Object> formatter, long input, Arguments arguments)
+    {
+        return new ResolvedPrimitiveMacro(formatter, Type.LONG, input, 0, arguments);
+    }
+
+    /**
+     * Creates a macro holding a {@code double} value.
+     *
+     * @param formatter The formatter which is responsible of formatting the messages input parameter.
+     * @param input The messages input parameter.
+     * @param arguments The macro arguments.
+     *
+     * @return the macro.
+     */
+    public static ResolvedPrimitiveMacro ofDouble(Formatter<Object> formatter, double input, Arguments arguments)
+    {
+        return new ResolvedPrimitiveMacro(formatter, Type.DOUBLE, 0, input, arguments);
+    }
+
+    /**
+     * Returns the boxed messages input parameter.
+     *
+     * @return the input parameter.
+     */
+    @Override
+    public Object getInput()
+    {
+        switch (type)
+        {
+            case INT:
+                return (int)longValue;
+            case LONG:
+                return longValue;
+            default:
+                return doubleValue;
+        }
+    }
+
+    @Override
+    public Component process(Context context)
+    {
+        Formatter<?> formatter = getFormatter();
+        if (!(formatter instanceof NumberFormatter))
+        {
+            return getFormatter().process(getInput(), context, getArguments());
+        }
+
+        NumberFormatter numberFormatter = (NumberFormatter)formatter;
+        if (type == Type.DOUBLE)
+        {
+            return numberFormatter.processDouble(doubleValue, context, getArguments());
+        }
+        return numberFormatter.processLong(longValue, context, getArguments());
+    }
+}
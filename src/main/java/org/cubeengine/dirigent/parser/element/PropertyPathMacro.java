@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.parser.element;
+
+/**
+ * A macro with position and a property path, but no name. It formats a property of the message input parameter
+ * with the default formatter, e.g. {@code {0.stats.kills}}.
+ */
+public class PropertyPathMacro implements Indexed
+{
+    /**
+     * The position index of the message input parameter which shall be formatted with this macro.
+     */
+    private final int index;
+    /**
+     * The dot separated property path.
+     */
+    private final String path;
+
+    /**
+     * Constructor.
+     *
+     * @param index The position index of the message input parameter which shall be formatted with this macro.
+     * @param path  The dot separated property path.
+     */
+    public PropertyPathMacro(int index, String path)
+    {
+        this.index = index;
+        this.path = path;
+    }
+
+    @Override
+    public int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Returns the dot separated property path.
+     *
+     * @return the property path.
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof PropertyPathMacro))
+        {
+            return false;
+        }
+
+        final PropertyPathMacro that = (PropertyPathMacro)o;
+
+        return getIndex() == that.getIndex() && getPath().equals(that.getPath());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * getIndex() + getPath().hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PropertyPathMacro{" + "index=" + index + ", path='" + path + "'}";
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.util.Locale;
+import org.cubeengine.dirigent.builder.StringBuilderDirigent;
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.formatter.SelectFormatter;
+import org.cubeengine.dirigent.formatter.StaticTextFormatter;
+import org.cubeengine.dirigent.formatter.StringFormatter;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link BoundMessage}.
+ */
+public class BoundMessageTest
+{
+    private static final String SELECT = "{0:select:online={1\\} is online:other={1\\} is away}";
+
+    private enum Status
+    {
+        ONLINE, OFFLINE
+    }
+
+    private final Context context = createContext(Locale.US);
+    private StringBuilderDirigent dirigent;
+    private int calls;
+
+    @Before
+    public void setUp()
+    {
+        calls = 0;
+        dirigent = new StringBuilderDirigent();
+        dirigent.registerFormatter(new StaticTextFormatter());
+        dirigent.registerFormatter(new StringFormatter("counting")
+        {
+            @Override
+            protected Component format(Object input, Context context, Arguments args)
+            {
+                calls++;
+                return super.format(input, context, args);
+            }
+        });
+    }
+
+    @Test
+    public void testBoundSlotsAreFormattedOnce()
+    {
+        final BoundMessage<String> message = dirigent.bind(context, "{counting} killed {counting}!", "Steve");
+        Assert.assertEquals(1, calls);
+        Assert.assertEquals(1, message.getOpenInputCount());
+
+        Assert.assertEquals("Steve killed Alex!", message.compose("Alex"));
+        Assert.assertEquals("Steve killed Herobrine!", message.compose("Herobrine"));
+        Assert.assertEquals(3, calls);
+    }
+
+    @Test
+    public void testUnboundInputs()
+    {
+        final BoundMessage<String> message = dirigent.bind(context, "{counting} {2:counting} {counting}",
+                                                           BoundMessage.UNBOUND, "b", BoundMessage.UNBOUND);
+        Assert.assertEquals(2, message.getOpenInputCount());
+        Assert.assertEquals("a c b", message.compose("a", "c"));
+    }
+
+    @Test
+    public void testConstantMacrosAreNoSlots()
+    {
+        final BoundMessage<String> message = dirigent.bind(context, "{text:Hello} {counting}{text:!}");
+        Assert.assertEquals(1, message.getOpenInputCount());
+        Assert.assertEquals("Hello World!", message.compose("World"));
+        Assert.assertEquals("Hello {{unresolved: counting}}!", message.compose());
+    }
+
+    @Test
+    public void testSelectPartsUseMessageInputs()
+    {
+        dirigent.registerFormatter(new SelectFormatter(dirigent));
+        Assert.assertEquals("Steve is online", dirigent.compose(context, SELECT, Status.ONLINE, "Steve"));
+
+        Assert.assertEquals("Steve is online", dirigent.bind(context, SELECT, Status.ONLINE, "Steve").compose());
+
+        BoundMessage<String> message = dirigent.bind(context, SELECT, Status.ONLINE);
+        Assert.assertEquals(1, message.getOpenInputCount());
+        Assert.assertEquals("Alex is online", message.compose("Alex"));
+
+        message = dirigent.bind(context, SELECT, BoundMessage.UNBOUND, "Steve");
+        Assert.assertEquals(1, message.getOpenInputCount());
+        Assert.assertEquals("Steve is away", message.compose(Status.OFFLINE));
+
+        message = dirigent.bind(context, SELECT);
+        Assert.assertEquals(2, message.getOpenInputCount());
+        Assert.assertEquals("Alex is online", message.compose(Status.ONLINE, "Alex"));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.util.Locale;
+import org.cubeengine.dirigent.builder.StringBuilderDirigent;
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.formatter.StringFormatter;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link LazyMessage}.
+ */
+public class LazyMessageTest
+{
+    private final Context context = createContext(Locale.US);
+    private StringBuilderDirigent dirigent;
+    private int calls;
+
+    @Before
+    public void setUp()
+    {
+        calls = 0;
+        dirigent = new StringBuilderDirigent();
+        dirigent.registerFormatter(new StringFormatter("counting")
+        {
+            @Override
+            protected Component format(Object input, Context context, Arguments args)
+            {
+                calls++;
+                return super.format(input, context, args);
+            }
+        });
+    }
+
+    @Test
+    public void testComposesOnFirstUseOnly()
+    {
+        final LazyMessage<String> message = dirigent.defer(context, "Hello {counting}!", "World");
+        Assert.assertFalse(message.isComposed());
+        Assert.assertEquals(0, calls);
+
+        Assert.assertEquals("Hello World!", message.toString());
+        Assert.assertEquals("Hello World!", message.get());
+        Assert.assertEquals(12, message.length());
+        Assert.assertEquals('W', message.charAt(6));
+        Assert.assertEquals("World", message.subSequence(6, 11));
+        Assert.assertTrue(message.isComposed());
+        Assert.assertEquals(1, calls);
+    }
+
+    @Test
+    public void testStringIsCreatedOnce()
+    {
+        final AbstractDirigent<StringBuilder> builderDirigent = new AbstractDirigent<StringBuilder>()
+        {
+            @Override
+            protected StringBuilder compose(ComponentGroup componentGroup, Context context)
+            {
+                return new StringBuilder("message");
+            }
+        };
+        final LazyMessage<StringBuilder> message = builderDirigent.defer(context, "message");
+        final String string = message.toString();
+        Assert.assertEquals("message", string);
+        Assert.assertEquals('s', message.charAt(2));
+        Assert.assertSame(string, message.toString());
+    }
+
+    @Test
+    public void testCapturesInputsByReference()
+    {
+        final StringBuilder name = new StringBuilder("Steve");
+        final LazyMessage<String> message = dirigent.defer(context, "Hello {counting}!", name);
+        name.append(" Jobs");
+        Assert.assertEquals("Hello Steve Jobs!", message.get());
+    }
+
+    @Test
+    public void testSnapshotFormatsInputsImmediately()
+    {
+        final StringBuilder name = new StringBuilder("Steve");
+        final LazyMessage<String> message = dirigent.deferSnapshot(context, "Hello {counting}!", name);
+        Assert.assertEquals(1, calls);
+        name.append(" Jobs");
+        Assert.assertEquals("Hello Steve!", message.get());
+        Assert.assertEquals(1, calls);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.util.BitSet;
+import java.util.Locale;
+import org.cubeengine.dirigent.builder.StringBuilderDirigent;
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.formatter.IntegerFormatter;
+import org.cubeengine.dirigent.formatter.SelectFormatter;
+import org.cubeengine.dirigent.formatter.StaticTextFormatter;
+import org.cubeengine.dirigent.formatter.StringFormatter;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link LiveMessage}.
+ */
+public class LiveMessageTest
+{
+    private final Context context = createContext(Locale.US);
+    private StringBuilderDirigent dirigent;
+    private int calls;
+
+    @Before
+    public void setUp()
+    {
+        calls = 0;
+        dirigent = new StringBuilderDirigent();
+        dirigent.registerFormatter(new StaticTextFormatter());
+        dirigent.registerFormatter(new IntegerFormatter());
+        dirigent.registerFormatter(new StringFormatter("counting")
+        {
+            @Override
+            protected Component format(Object input, Context context, Arguments args)
+            {
+                calls++;
+                return super.format(input, context, args);
+            }
+        });
+    }
+
+    @Test
+    public void testOnlyChangedSlotsAreFormatted()
+    {
+        final LiveMessage<String> message = dirigent.live(context, "{counting}: {counting} {text:!}", "Steve", 1);
+        Assert.assertEquals(2, message.getInputCount());
+        Assert.assertTrue(message.isDirty());
+        Assert.assertEquals("Steve: 1 !", message.compose());
+        Assert.assertEquals(2, calls);
+        Assert.assertEquals(4, message.getSegments().size());
+
+        Assert.assertFalse(message.isDirty());
+        final String composed = message.compose();
+        Assert.assertSame(composed, message.compose());
+        Assert.assertEquals(2, calls);
+        Assert.assertTrue(message.getChangedSegments().isEmpty());
+
+        Assert.assertFalse(message.update(0, "Steve"));
+        Assert.assertTrue(message.update(1, 2));
+        Assert.assertTrue(message.isDirty());
+        Assert.assertEquals("Steve: 2 !", message.compose());
+        Assert.assertEquals(3, calls);
+        final BitSet changed = new BitSet();
+        changed.set(2);
+        Assert.assertEquals(changed, message.getChangedSegments());
+    }
+
+    @Test
+    public void testUnchangedSegmentKeepsMessage()
+    {
+        final LiveMessage<String> message = dirigent.live(context, "Players: {integer}/{1:counting}", 5, "20");
+        final String composed = message.compose();
+        Assert.assertEquals("Players: 5/20", composed);
+        message.update(1, new StringBuilder("20"));
+        Assert.assertSame(composed, message.compose());
+        Assert.assertTrue(message.getChangedSegments().isEmpty());
+
+        final StringBuilder mutable = new StringBuilder("20");
+        message.update(1, mutable);
+        Assert.assertEquals("Players: 5/20", message.compose());
+        mutable.append("0");
+        Assert.assertEquals("Players: 5/20", message.compose());
+        message.invalidate(1);
+        Assert.assertEquals("Players: 5/200", message.compose());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIndex()
+    {
+        dirigent.live(context, "{}", "a").update(1, "b");
+    }
+
+    @Test
+    public void testSelectPartsUseMessageInputs()
+    {
+        dirigent.registerFormatter(new SelectFormatter(dirigent));
+        final LiveMessage<String> message = dirigent.live(context, "{select:online={1\\} is online:other={1\\} is away}",
+                                                          Status.ONLINE, "Steve");
+        Assert.assertEquals("Steve is online", message.compose());
+
+        message.update(1, "Alex");
+        Assert.assertTrue(message.isDirty());
+        Assert.assertEquals("Alex is online", message.compose());
+
+        message.update(0, Status.OFFLINE);
+        Assert.assertEquals("Alex is away", message.compose());
+    }
+
+    private enum Status
+    {
+        ONLINE, OFFLINE
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.cubeengine.dirigent.builder.StringBuilderDirigent;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.formatter.IntegerFormatter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.TestHelper.elems;
+import static org.cubeengine.dirigent.TestHelper.indexed;
+import static org.cubeengine.dirigent.TestHelper.txt;
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link MessageCatalog} and message references.
+ */
+public class MessageCatalogTest
+{
+    private final Context context = createContext(Locale.GERMANY);
+    private final Map<String, String> messages = new HashMap<String, String>();
+    private int lookups;
+    private StringBuilderDirigent dirigent;
+
+    @Before
+    public void setUp()
+    {
+        lookups = 0;
+        messages.put("server", "Cube");
+        messages.put("prefix", "[{msg:server}] ");
+        messages.put("welcome", "{msg:prefix}Welcome {0}!");
+        messages.put("kills", "{msg:prefix}{0:integer} kills");
+        dirigent = new StringBuilderDirigent();
+        dirigent.registerFormatter(new IntegerFormatter());
+        dirigent.setMessageSource(new MessageSource()
+        {
+            @Override
+            public String getMessage(String key)
+            {
+                lookups++;
+                return messages.get(key);
+            }
+        });
+    }
+
+    @Test
+    public void testInlining()
+    {
+        Assert.assertEquals(elems(txt("[Cube] Welcome "), indexed(0), txt("!")),
+                            dirigent.getMessageCatalog().getTemplate("welcome"));
+        Assert.assertEquals("[Cube] Welcome Steve!", dirigent.composeMessage(context, "welcome", "Steve"));
+        Assert.assertEquals("[Cube] 1.000 kills", dirigent.composeMessage(context, "kills", 1000));
+        Assert.assertEquals(4, lookups);
+
+        Assert.assertEquals("[Cube] Welcome Alex!", dirigent.composeMessage(context, "welcome", "Alex"));
+        Assert.assertEquals(4, lookups);
+    }
+
+    @Test
+    public void testReferenceInSource()
+    {
+        Assert.assertEquals("[Cube] hi", dirigent.compose(context, "{msg:prefix}hi"));
+        Assert.assertEquals("no references", dirigent.compose(context, "no references"));
+        Assert.assertEquals(2, lookups);
+    }
+
+    @Test
+    public void testImplicitIndices()
+    {
+        messages.put("tag", "[{}] ");
+        messages.put("chat", "{}: {msg:tag}{}");
+        Assert.assertEquals("Steve: [VIP] Hi", dirigent.composeMessage(context, "chat", "Steve", "VIP", "Hi"));
+        messages.put("tagged", "{msg:tag}{}: {1}");
+        Assert.assertEquals("[VIP] Steve: Steve", dirigent.composeMessage(context, "tagged", "VIP", "Steve"));
+    }
+
+    @Test
+    public void testInvalidation()
+    {
+        Assert.assertEquals("[Cube] Welcome Steve!", dirigent.composeMessage(context, "welcome", "Steve"));
+        Assert.assertEquals("[Cube] 5 kills", dirigent.composeMessage(context, "kills", 5));
+
+        messages.put("server", "Sphere");
+        dirigent.getMessageCatalog().invalidate("server");
+
+        Assert.assertEquals("[Sphere] Welcome Steve!", dirigent.composeMessage(context, "welcome", "Steve"));
+        Assert.assertEquals("[Sphere] 5 kills", dirigent.composeMessage(context, "kills", 5));
+    }
+
+    @Test
+    public void testCycle()
+    {
+        messages.put("a", "a{msg:b}");
+        messages.put("b", "b{msg:c}");
+        messages.put("c", "c{msg:a}");
+        try
+        {
+            dirigent.composeMessage(context, "a");
+            Assert.fail("The cycle wasn't detected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("a -> b -> c -> a"));
+        }
+
+        messages.put("c", "c");
+        dirigent.getMessageCatalog().invalidate("c");
+        Assert.assertEquals("abc", dirigent.composeMessage(context, "a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownKey()
+    {
+        dirigent.composeMessage(context, "unknown");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoMessageSource()
+    {
+        new StringBuilderDirigent().composeMessage(context, "welcome");
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.cubeengine.dirigent.builder.StringBuilderDirigent;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.formatter.StringFormatter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests property path macros and the {@link PropertyPath}.
+ */
+public class PropertyPathTest
+{
+    private final Context context = createContext(Locale.US);
+    private StringBuilderDirigent dirigent;
+
+    @Before
+    public void setUp()
+    {
+        dirigent = new StringBuilderDirigent();
+        dirigent.registerFormatter(new StringFormatter("player"));
+    }
+
+    @Test
+    public void testGetterPaths()
+    {
+        final Player player = new Player("Steve", new Stats(42));
+        Assert.assertEquals("Steve", PropertyPath.of("name").get(player));
+        Assert.assertEquals(42, PropertyPath.of("stats.kills").get(player));
+        Assert.assertEquals(true, PropertyPath.of("stats.alive").get(player));
+        Assert.assertSame(PropertyPath.UNKNOWN_PROPERTY, PropertyPath.of("mode").get(player));
+        Assert.assertEquals(1, PropertyPath.of("stats.deaths").get(player));
+    }
+
+    @Test
+    public void testNullWithinPath()
+    {
+        Assert.assertNull(PropertyPath.of("stats.kills").get(new Player("Alex", null)));
+        Assert.assertNull(PropertyPath.of("name").get(null));
+    }
+
+    @Test
+    public void testNonPublicImplementation()
+    {
+        final List<String> list = Collections.unmodifiableList(Collections.singletonList("a"));
+        Assert.assertEquals(false, PropertyPath.of("empty").get(list));
+        Assert.assertSame(PropertyPath.UNKNOWN_PROPERTY, PropertyPath.of("size").get(list));
+    }
+
+    @Test
+    public void testUnknownProperty()
+    {
+        final Player player = new Player("Steve", new Stats(1));
+        Assert.assertSame(PropertyPath.UNKNOWN_PROPERTY, PropertyPath.of("stats.unknown").get(player));
+        Assert.assertSame(PropertyPath.UNKNOWN_PROPERTY, PropertyPath.of("stats..kills").get(player));
+        Assert.assertEquals("{{unresolved}} has 1 kills",
+                            dirigent.compose(context, "{0.missing} has {0.stats.kills} kills", player));
+    }
+
+    @Test
+    public void testMethodsWithSideEffects()
+    {
+        final AtomicInteger counter = new AtomicInteger(1);
+        final ArrayDeque<String> queue = new ArrayDeque<String>(Collections.singleton("a"));
+        Assert.assertSame(PropertyPath.UNKNOWN_PROPERTY, PropertyPath.of("incrementAndGet").get(counter));
+        Assert.assertSame(PropertyPath.UNKNOWN_PROPERTY, PropertyPath.of("poll").get(queue));
+        Assert.assertSame(PropertyPath.UNKNOWN_PROPERTY, PropertyPath.of("iterator").get(queue));
+        Assert.assertSame(PropertyPath.UNKNOWN_PROPERTY, PropertyPath.of("class").get(queue));
+        Assert.assertSame(PropertyPath.UNKNOWN_PROPERTY, PropertyPath.of("class.classLoader").get(queue));
+        Assert.assertEquals("{{unresolved}} {{unresolved}}",
+                            dirigent.compose(context, "{0.incrementAndGet} {1.poll}", counter, queue));
+        Assert.assertEquals(1, counter.get());
+        Assert.assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void testCompose()
+    {
+        final Player player = new Player("Steve", new Stats(42));
+        Assert.assertEquals("Steve has 42 kills",
+                            dirigent.compose(context, "{0.name} has {0.stats.kills} kills", player));
+        Assert.assertEquals("Steve has 42 kills",
+                            dirigent.compose(context, "{player:@path=name} has {0.stats.kills:player} kills", player));
+        Assert.assertEquals("Steve: 42", dirigent.compose(context, "{player:@path=name}: {player:@path=stats.kills}",
+                                                          player, player));
+    }
+
+    @Test
+    public void testPlainPathParameter()
+    {
+        final Player player = new Player("Steve", new Stats(42));
+        Assert.assertEquals("Steve", dirigent.compose(context, "{player:path=stats.kills}", "Steve"));
+        Assert.assertEquals("42", dirigent.compose(context, "{0.stats.kills:player:path=name}", player));
+    }
+
+    @Test
+    public void testBind()
+    {
+        final BoundMessage<String> message = dirigent.bind(context, "{0.name} killed {1.name}", new Player("Steve", null),
+                                                           BoundMessage.UNBOUND);
+        Assert.assertEquals("Steve killed Alex", message.compose(new Player("Alex", null)));
+    }
+
+    public static class Player
+    {
+        private final String name;
+        private final Stats stats;
+
+        public Player(String name, Stats stats)
+        {
+            this.name = name;
+            this.stats = stats;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public Stats getStats()
+        {
+            return stats;
+        }
+
+        public String mode()
+        {
+            return "survival";
+        }
+    }
+
+    public static class Stats
+    {
+        public final int deaths = 1;
+        private final int kills;
+
+        public Stats(int kills)
+        {
+            this.kills = kills;
+        }
+
+        public int getKills()
+        {
+            return kills;
+        }
+
+        public boolean isAlive()
+        {
+            return true;
+        }
+    }
+}
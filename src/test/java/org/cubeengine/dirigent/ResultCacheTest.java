@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import org.cubeengine.dirigent.builder.StringBuilderDirigent;
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.formatter.AbstractFormatter;
+import org.cubeengine.dirigent.formatter.IntegerFormatter;
+import org.cubeengine.dirigent.formatter.StringFormatter;
+import org.cubeengine.dirigent.formatter.WrappingPostProcessor;
+import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link ResultCache}.
+ */
+public class ResultCacheTest
+{
+    private final Context context = createContext(Locale.US);
+    private StringBuilderDirigent dirigent;
+    private ResultCache<String> cache;
+    private int calls;
+
+    @Before
+    public void setUp()
+    {
+        calls = 0;
+        cache = new ResultCache<String>(100);
+        dirigent = new StringBuilderDirigent();
+        dirigent.setResultCache(cache);
+        dirigent.registerFormatter(new IntegerFormatter());
+        dirigent.registerFormatter(new StringFormatter("counting")
+        {
+            @Override
+            protected Component format(Object input, Context context, Arguments args)
+            {
+                calls++;
+                return super.format(input, context, args);
+            }
+        });
+        dirigent.registerFormatter(new AbstractFormatter<Object>("impure")
+        {
+            @Override
+            protected Component format(Object input, Context context, Arguments args)
+            {
+                calls++;
+                return new Text(String.valueOf(input));
+            }
+        });
+    }
+
+    @Test
+    public void testPureCompositionsAreCached()
+    {
+        final String message = dirigent.compose(context, "Rank: {counting} {integer}", "Admin", 3);
+        Assert.assertEquals("Rank: Admin 3", message);
+        Assert.assertSame(message, dirigent.compose(context, "Rank: {counting} {integer}", "Admin", 3));
+        Assert.assertSame(message, dirigent.compose(context, new String("Rank: {counting} {integer}"), "Admin", 3));
+        Assert.assertEquals(1, calls);
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(2 / 3d, cache.getHitRate(), 0.0001);
+
+        Assert.assertEquals("Rank: Admin 4", dirigent.compose(context, "Rank: {counting} {integer}", "Admin", 4));
+        Assert.assertEquals("Rank: Admin 3", dirigent.compose(createContext(Locale.GERMANY),
+                                                              "Rank: {counting} {integer}", "Admin", 3));
+        Assert.assertEquals(3, calls);
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(39, cache.getWeight());
+    }
+
+    @Test
+    public void testImpureCompositionsAreNotCached()
+    {
+        dirigent.compose(context, "{impure}", "a");
+        dirigent.compose(context, "{impure}", "a");
+        Assert.assertEquals(2, calls);
+
+        final StringBuilder mutable = new StringBuilder("a");
+        dirigent.compose(context, "{counting}", mutable);
+        dirigent.compose(context, "{counting}", mutable);
+        Assert.assertEquals(4, calls);
+
+        dirigent.compose(context, "{counting}", new Date(0));
+        dirigent.compose(context, "{counting}", new Date(0));
+        Assert.assertEquals(6, calls);
+        Assert.assertEquals(0, cache.size());
+
+        dirigent.addPostProcessor(new WrappingPostProcessor("[", "]"));
+        Assert.assertEquals("[a]", dirigent.compose(context, "{counting}", "a"));
+        Assert.assertEquals("[a]", dirigent.compose(context, "{counting}", "a"));
+        Assert.assertEquals(8, calls);
+    }
+
+    @Test
+    public void testEviction()
+    {
+        for (int i = 0; i < 20; i++)
+        {
+            dirigent.compose(context, "0123456789{integer}", i);
+        }
+        Assert.assertTrue(cache.getWeight() <= 100);
+        Assert.assertEquals(8, cache.size());
+        Assert.assertEquals(12, cache.getEvictionCount());
+
+        // the least recently used message is evicted first
+        dirigent.compose(context, "0123456789{integer}", 12);
+        Assert.assertEquals(1, cache.getHitCount());
+        dirigent.compose(context, "0123456789{integer}", 0);
+        dirigent.compose(context, "0123456789{integer}", 12);
+        Assert.assertEquals(2, cache.getHitCount());
+        dirigent.compose(context, "0123456789{integer}", 13);
+        Assert.assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void testCompiledTemplates()
+    {
+        dirigent.setMessageSource(new MessageSource()
+        {
+            @Override
+            public String getMessage(String key)
+            {
+                return key + ": {counting}";
+            }
+        });
+        Assert.assertEquals("rank: Admin", dirigent.composeMessage(context, "rank", "Admin"));
+        Assert.assertEquals("rank: Admin", dirigent.composeMessage(context, "rank", "Admin"));
+        Assert.assertEquals(1, calls);
+        dirigent.getMessageCatalog().invalidate("rank");
+        Assert.assertEquals("rank: Admin", dirigent.composeMessage(context, "rank", "Admin"));
+        Assert.assertEquals(2, calls);
+        Assert.assertTrue(ResultCache.isCacheable(Arrays.asList(1).get(0)));
+        Assert.assertFalse(ResultCache.isCacheable(new Object()));
+    }
+}
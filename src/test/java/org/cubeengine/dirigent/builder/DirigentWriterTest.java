@@ -0,0 +1,189 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Locale;
+import org.cubeengine.dirigent.context.Context;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link DirigentWriter}.
+ */
+public class DirigentWriterTest
+{
+    private final Context context = createContext(Locale.US);
+    private Utf8Dirigent dirigent;
+
+    @Before
+    public void setUp()
+    {
+        dirigent = new Utf8Dirigent();
+    }
+
+    private static String expected(int count)
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++)
+        {
+            builder.append("message ").append(i).append(" → ").append("x").append('\n');
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testWriteToFile() throws IOException
+    {
+        final File file = File.createTempFile("dirigent", ".log");
+        file.deleteOnExit();
+        final RandomAccessFile access = new RandomAccessFile(file, "rw");
+        final DirigentWriter writer = new DirigentWriter(dirigent, access.getChannel(), 3, 64, 1000, 50);
+        for (int i = 0; i < 1000; i++)
+        {
+            writer.write(context, "message {} → {}", i, "x");
+        }
+        writer.close();
+
+        final byte[] bytes = new byte[(int)file.length()];
+        final FileInputStream in = new FileInputStream(file);
+        try
+        {
+            Assert.assertEquals(bytes.length, in.read(bytes));
+        }
+        finally
+        {
+            in.close();
+        }
+        Assert.assertEquals(expected(1000), new String(bytes, Utf8Output.UTF_8));
+        Assert.assertEquals(1000, writer.getMessageCount());
+        Assert.assertEquals(bytes.length, writer.getByteCount());
+        Assert.assertTrue(writer.getMessagesPerSecond() > 0);
+        Assert.assertTrue(writer.getBytesPerSecond() > 0);
+    }
+
+    @Test
+    public void testMessagesOutgrowingBuffers() throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final DirigentWriter writer = new DirigentWriter(dirigent, Channels.newChannel(out), 2, 8, Long.MAX_VALUE,
+                                                         Long.MAX_VALUE).setSeparator("|");
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20; i++)
+        {
+            final String value = i % 3 == 0 ? "a long value exceeding the buffers " + i : "v" + i;
+            writer.write(context, "<{}>", value);
+            expected.append('<').append(value).append(">|");
+        }
+        writer.flush();
+        Assert.assertEquals(expected.toString(), new String(out.toByteArray(), Utf8Output.UTF_8));
+    }
+
+    @Test
+    public void testMessagesAcrossBufferBoundaries() throws IOException
+    {
+        final int[] allocations = {0, 0};
+        dirigent = new Utf8Dirigent(new Utf8MessageBuilder(new ByteBufferAllocator()
+        {
+            @Override
+            public ByteBuffer allocate(int capacity)
+            {
+                allocations[0]++;
+                return ByteBuffer.allocate(capacity);
+            }
+
+            @Override
+            public void release(ByteBuffer buffer)
+            {
+                allocations[1]++;
+            }
+        }, 16));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final DirigentWriter writer = new DirigentWriter(dirigent, Channels.newChannel(out), 3, 64, Long.MAX_VALUE,
+                                                         Long.MAX_VALUE);
+        final StringBuilder expected = new StringBuilder();
+        final StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+        {
+            value.append(i % 2 == 0 ? 'x' : 'ä');
+            if (value.length() > 30)
+            {
+                value.setLength(0);
+            }
+            writer.write(context, "message {} → {}", i, value.toString());
+            expected.append("message ").append(i).append(" → ").append(value).append('\n');
+        }
+        writer.close();
+        Assert.assertEquals(expected.toString(), new String(out.toByteArray(), Utf8Output.UTF_8));
+        Assert.assertTrue(allocations[0] > 0);
+        Assert.assertEquals(allocations[0], allocations[1]);
+    }
+
+    @Test
+    public void testFlushThreshold() throws IOException
+    {
+        final int[] writes = {0};
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final WritableByteChannel delegate = Channels.newChannel(out);
+        final DirigentWriter writer = new DirigentWriter(dirigent, new WritableByteChannel()
+        {
+            @Override
+            public int write(ByteBuffer src) throws IOException
+            {
+                writes[0]++;
+                return delegate.write(src);
+            }
+
+            @Override
+            public boolean isOpen()
+            {
+                return delegate.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+                delegate.close();
+            }
+        }, 4, 1024, Long.MAX_VALUE, 10);
+        for (int i = 0; i < 25; i++)
+        {
+            writer.write(context, "message {} → {}", i, "x");
+        }
+        Assert.assertEquals(2, writes[0]);
+        writer.close();
+        Assert.assertEquals(3, writes[0]);
+        Assert.assertEquals(expected(25), new String(out.toByteArray(), Utf8Output.UTF_8));
+    }
+}
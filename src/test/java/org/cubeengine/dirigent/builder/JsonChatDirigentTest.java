@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Locale;
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.formatter.AbstractFormatter;
+import org.cubeengine.dirigent.formatter.IntegerFormatter;
+import org.cubeengine.dirigent.formatter.StringFormatter;
+import org.cubeengine.dirigent.formatter.StylingPostProcessor;
+import org.cubeengine.dirigent.parser.Style;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link JsonChatDirigent} and the {@link JsonChatMessageBuilder}.
+ */
+public class JsonChatDirigentTest
+{
+    private final Context context = createContext(Locale.US);
+    private JsonChatDirigent dirigent;
+
+    @Before
+    public void setUp()
+    {
+        dirigent = new JsonChatDirigent();
+        dirigent.registerFormatter(new IntegerFormatter());
+        dirigent.registerFormatter(new AbstractFormatter<String>("bold")
+        {
+            @Override
+            protected Component format(String input, Context context, Arguments args)
+            {
+                return new Bold(input);
+            }
+        });
+    }
+
+    @Test
+    public void testMergesTexts()
+    {
+        Assert.assertEquals("{\"text\":\"Hello World, you have 5 points!\"}",
+                            dirigent.compose(context, "Hello {}, you have {integer} points!", "World", 5));
+        Assert.assertEquals("{\"text\":\"\"}", dirigent.compose(context, ""));
+        Assert.assertEquals("{\"text\":\"{{unresolved: missing}}\"}", dirigent.compose(context, "{missing}", 1));
+    }
+
+    @Test
+    public void testEscapes()
+    {
+        Assert.assertEquals("{\"text\":\"a \\\"quote\\\" \\\\ \\n\\t\\u0001\\u2028 ü\"}",
+                            dirigent.compose(context, "a {} ü", "\"quote\" \\ \n\t\u0001 "));
+    }
+
+    @Test
+    public void testCustomComponents()
+    {
+        Assert.assertEquals("{\"text\":\"Hi \",\"extra\":[{\"text\":\"you\",\"bold\":true},\"!\"]}",
+                            dirigent.compose(context, "Hi {bold}!", "you"));
+        Assert.assertEquals("{\"text\":\"\",\"extra\":[{\"text\":\"a\",\"bold\":true},{\"text\":\"b\",\"bold\":true}]}",
+                            dirigent.compose(context, "{bold}{bold}", "a", "b"));
+    }
+
+    @Test
+    public void testComposeInto()
+    {
+        final StringWriter writer = new StringWriter();
+        dirigent.composeInto(writer, context, "{} {bold}", "x", "y");
+        Assert.assertEquals("{\"text\":\"x \",\"extra\":[{\"text\":\"y\",\"bold\":true}]}", writer.toString());
+    }
+
+    @Test
+    public void testStyledText()
+    {
+        final StringFormatter formatter = new StringFormatter();
+        formatter.addPostProcessor(new StylingPostProcessor(Style.color(12)));
+        formatter.addPostProcessor(new StylingPostProcessor(Style.BOLD));
+        final JsonChatDirigent dirigent = new JsonChatDirigent();
+        dirigent.registerFormatter(formatter);
+        Assert.assertEquals("{\"text\":\"Hi \",\"extra\":[{\"text\":\"\\\"you\\\"\",\"bold\":true,\"color\":\"red\"},\"!\"]}",
+                            dirigent.compose(context, "Hi {string}!", "\"you\""));
+    }
+
+    private static class Bold implements JsonChatComponent
+    {
+        private final String text;
+
+        private Bold(String text)
+        {
+            this.text = text;
+        }
+
+        @Override
+        public void writeJson(Appendable out) throws IOException
+        {
+            out.append("{\"text\":");
+            JsonChatOutput.writeString(text, out);
+            out.append(",\"bold\":true}");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import java.util.Locale;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.EncodedText;
+import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the component dispatch of the {@link MessageBuilder}.
+ */
+public class MessageBuilderTest
+{
+    private final Context context = createContext(Locale.US);
+
+    private String build(MessageBuilder<String, StringBuilder> messageBuilder, Component... components)
+    {
+        final StringBuilder builder = messageBuilder.newBuilder();
+        messageBuilder.buildGroup(new ComponentGroup(components), builder, context);
+        return messageBuilder.finalize(builder, context);
+    }
+
+    @Test
+    public void testCustomComponents()
+    {
+        final StringMessageBuilder messageBuilder = new StringMessageBuilder();
+        messageBuilder.registerHandler(Named.class, new ComponentHandler<Named, StringBuilder>()
+        {
+            @Override
+            public void build(Named component, StringBuilder builder, Context context)
+            {
+                builder.append('<').append(component.name).append('>');
+            }
+        });
+        Assert.assertEquals("a <b> <c>", build(messageBuilder, new Text("a "), new Named("b"), new Text(" "),
+                                                new ComponentGroup(new Named("c") { })));
+    }
+
+    @Test
+    public void testHandlersTakePrecedence()
+    {
+        final StringMessageBuilder messageBuilder = new StringMessageBuilder();
+        Assert.assertEquals("ab", build(messageBuilder, new Text("a"), new EncodedText("b", Utf8Output.UTF_8)));
+        messageBuilder.registerHandler(EncodedText.class, new ComponentHandler<Text, StringBuilder>()
+        {
+            @Override
+            public void build(Text component, StringBuilder builder, Context context)
+            {
+                builder.append(component.getText().toUpperCase());
+            }
+        });
+        Assert.assertEquals("aB", build(messageBuilder, new Text("a"), new EncodedText("b", Utf8Output.UTF_8)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownComponent()
+    {
+        build(new StringMessageBuilder(), new Named("a"));
+    }
+
+    @Test
+    public void testIterativeMatchesRecursive()
+    {
+        final Component[] components = {new Text("a"), new ComponentGroup(new Text("b"), new ComponentGroup(
+            new Text("c"), new ComponentGroup()), new Text("d")), new ComponentGroup(), new Text("e")};
+        final StringMessageBuilder messageBuilder = new StringMessageBuilder();
+        final String recursive = build(messageBuilder, components);
+        Assert.assertEquals("abcde", recursive);
+        Assert.assertEquals(recursive, build(messageBuilder.setIterative(true), components));
+    }
+
+    @Test
+    public void testIterativeDeepTree()
+    {
+        Component component = new Text("x");
+        for (int i = 0; i < 100000; i++)
+        {
+            component = new ComponentGroup(new Text("<"), component, new Text(">"));
+        }
+        final String built = build(new StringMessageBuilder().setIterative(true).setMaxDepth(200000), component);
+        Assert.assertEquals(200001, built.length());
+        Assert.assertEquals('x', built.charAt(100000));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIterativeMaxDepth()
+    {
+        Component component = new Text("x");
+        for (int i = 0; i < 10; i++)
+        {
+            component = new ComponentGroup(component);
+        }
+        build(new StringMessageBuilder().setIterative(true).setMaxDepth(10), component);
+    }
+
+    @Test
+    public void testIterativeStopsWhenComplete()
+    {
+        final BoundedMessageBuilder messageBuilder = new BoundedMessageBuilder();
+        messageBuilder.setIterative(true);
+        final BoundedStringBuilder builder = BoundedStringBuilder.truncating(5, "");
+        messageBuilder.buildGroup(new ComponentGroup(new Text("abc"), new ComponentGroup(new Text("def")),
+                                                     new Named("unknown")), builder, context);
+        Assert.assertEquals("abcde", messageBuilder.finalize(builder, context));
+    }
+
+    private static class Named implements Component
+    {
+        private final String name;
+
+        private Named(String name)
+        {
+            this.name = name;
+        }
+    }
+}
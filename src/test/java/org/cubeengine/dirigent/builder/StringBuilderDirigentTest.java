@@ -22,12 +22,23 @@
  */
 package org.cubeengine.dirigent.builder;
 
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.cubeengine.dirigent.Dirigent;
+import org.cubeengine.dirigent.Inputs;
+import org.cubeengine.dirigent.MessageSink;
+import org.cubeengine.dirigent.context.Context;
 import org.cubeengine.dirigent.context.Contexts;
+import org.cubeengine.dirigent.formatter.AbstractFormatter;
 import org.cubeengine.dirigent.formatter.CurrencyFormatter;
 import org.cubeengine.dirigent.formatter.DateFormatter;
 import org.cubeengine.dirigent.formatter.DateTimeFormatter;
@@ -42,6 +53,8 @@ import org.cubeengine.dirigent.formatter.WrappingPostProcessor;
 import org.cubeengine.dirigent.parser.MacroResolutionResult;
 import org.cubeengine.dirigent.parser.MacroResolutionState;
 import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.context.Arguments;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -300,4 +313,192 @@ public class StringBuilderDirigentTest
         Assert.assertEquals(MacroResolutionState.UNKNOWN_NAME, resolutionResult.getState());
         Assert.assertNull(resolutionResult.getFormatter());
     }
+
+    @Test
+    public void testComposeAllGroupsByContext() throws Exception
+    {
+        final int[] calls = {0};
+        Formatter<?> countingFormatter = new StringFormatter("counting")
+        {
+            @Override
+            protected Component format(Object input, Context context, Arguments args)
+            {
+                calls[0]++;
+                return super.format(input, context, args);
+            }
+        };
+        dirigent.registerFormatter(countingFormatter);
+
+        final Context german1 = createContext(Locale.GERMANY);
+        final Context german2 = createContext(Locale.GERMANY);
+        final Context us = createContext(Locale.US);
+
+        Map<Context, String> messages = dirigent.composeAll(Arrays.asList(german1, us, german2),
+                                                            "{counting} has {number}", "Steve", 1234.5);
+
+        assertEquals(3, messages.size());
+        assertEquals("Steve has 1.234,5", messages.get(german1));
+        assertEquals("Steve has 1.234,5", messages.get(german2));
+        assertEquals("Steve has 1,234.5", messages.get(us));
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    public void testComposeBatchKeepsOrder() throws Exception
+    {
+        final List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 1000; i++)
+        {
+            rows.add(new Object[]{i, i * 1000});
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            final List<String> messages = new ArrayList<String>();
+            dirigent.composeBatch(createContext(Locale.GERMANY), "row {}: {integer}", rows, executor,
+                                  new MessageSink<String>()
+                                  {
+                                      @Override
+                                      public void accept(String message)
+                                      {
+                                          messages.add(message);
+                                      }
+                                  });
+
+            assertEquals(rows.size(), messages.size());
+            assertEquals("row 0: 0", messages.get(0));
+            assertEquals("row 12: 12.000", messages.get(12));
+            assertEquals("row 999: 999.000", messages.get(999));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testComposeBatchWithoutExecutor() throws Exception
+    {
+        final List<String> messages = new ArrayList<String>();
+        dirigent.composeBatch(createContext(Locale.GERMANY), "{} {}", Arrays.asList(new Object[]{"a", 1},
+                                                                                   new Object[]{"b", 2}), null,
+                              new MessageSink<String>()
+                              {
+                                  @Override
+                                  public void accept(String message)
+                                  {
+                                      messages.add(message);
+                                  }
+                              });
+        assertEquals(Arrays.asList("a 1", "b 2"), messages);
+    }
+
+    @Test
+    public void testComposeFixedArity() throws Exception
+    {
+        final Context context = createContext(Locale.GERMANY);
+        assertEquals("a", dirigent.compose(context, "{}", "a"));
+        assertEquals("a b", dirigent.compose(context, "{} {}", "a", "b"));
+        assertEquals("a b c", dirigent.compose(context, "{} {} {}", "a", "b", "c"));
+        assertEquals("a b", dirigent.compose(context, "{} {}", new Object[]{"a", "b"}));
+    }
+
+    @Test
+    public void testComposeInputs() throws Exception
+    {
+        final Context context = createContext(Locale.GERMANY);
+        final Inputs inputs = new Inputs(1);
+        inputs.add("Steve").addInt(1234).addLong(5000000000L).addDouble(0.43);
+
+        final String percent = NumberFormat.getPercentInstance(Locale.GERMANY).format(0.43);
+        assertEquals("Steve: 1.234 5.000.000.000 " + percent + " 0,43 1234",
+                     dirigent.composeInputs(context, "{}: {integer} {integer} {percent} {3:number} {1}", inputs));
+        assertEquals(Integer.valueOf(1234), inputs.get(1));
+        assertEquals(Long.valueOf(5000000000L), inputs.get(2));
+        assertEquals(Double.valueOf(0.43), inputs.get(3));
+
+        inputs.clear().addDouble(42.4);
+        final String currency = NumberFormat.getCurrencyInstance(Locale.GERMANY).format(42.4);
+        assertEquals("msg: 42,4 " + currency + " {{unresolved: date}}",
+                     dirigent.composeInputs(context, "msg: {decimal} {0:currency} {0:date}", inputs));
+    }
+
+    @Test
+    public void testComposeTruncated()
+    {
+        final Context context = createContext(Locale.US);
+        final int[] calls = {0};
+        dirigent.registerFormatter(new AbstractFormatter<String>("counted")
+        {
+            @Override
+            protected Component format(String input, Context context, Arguments args)
+            {
+                calls[0]++;
+                return new Text(input);
+            }
+        });
+
+        assertEquals("Hello World", dirigent.composeTruncated(context, 11, "...", "Hello {counted}", "World"));
+        assertEquals("Hello Wo...", dirigent.composeTruncated(context, 11, "...", "Hello {counted}!", "World"));
+        assertEquals("Hello...", dirigent.composeTruncated(context, 8, "...", "Hello {counted}", "World"));
+        assertEquals(3, calls[0]);
+
+        calls[0] = 0;
+        assertEquals("Hel…", dirigent.composeTruncated(context, 4, "…", "Hello {counted}", "World"));
+        assertEquals(0, calls[0]);
+
+        assertEquals("a…", dirigent.composeTruncated(context, 3, "…", "a{}", "\uD83D\uDE00b"));
+    }
+
+    @Test
+    public void testComposeTruncatedWithHandler()
+    {
+        final Context context = createContext(Locale.US);
+        dirigent.registerFormatter(new AbstractFormatter<String>("shout")
+        {
+            @Override
+            protected Component format(String input, Context context, Arguments args)
+            {
+                return new Shout(input);
+            }
+        });
+        dirigent.getMessageBuilder().registerHandler(Shout.class, new ComponentHandler<Shout, StringBuilder>()
+        {
+            @Override
+            public void build(Shout component, StringBuilder builder, Context context)
+            {
+                builder.append(component.text.toUpperCase()).append('!');
+            }
+        });
+
+        assertEquals("Hello WORLD!", dirigent.composeTruncated(context, 20, "...", "Hello {shout}", "World"));
+        assertEquals("Hello WO...", dirigent.composeTruncated(context, 11, "...", "Hello {shout}", "World"));
+        assertEquals(Arrays.asList("Hello", "WORLD!"), dirigent.composeSplit(context, 6, 2, "Hello {shout}", "World"));
+
+        dirigent.getMessageBuilder().setIterative(true);
+        assertEquals("Hello WO...", dirigent.composeTruncated(context, 11, "...", "Hello {shout}", "World"));
+    }
+
+    @Test
+    public void testComposeSplit()
+    {
+        final Context context = createContext(Locale.US);
+        assertEquals(Arrays.asList("The quick", "brown fox", "jumps over", "the lazy", "dog"),
+                     dirigent.composeSplit(context, 10, 10, "The quick {} jumps over the lazy {}", "brown fox", "dog"));
+        assertEquals(Arrays.asList("abcd", "efgh", "ij"), dirigent.composeSplit(context, 4, 10, "{}", "abcdefghij"));
+        assertEquals(Arrays.asList("abc", "\uD83D\uDE00"), dirigent.composeSplit(context, 4, 10, "abc{}", "\uD83D\uDE00"));
+        assertEquals(Arrays.asList("abcd", "efgh"), dirigent.composeSplit(context, 4, 2, "{}{}", "abcdefghij", "k"));
+        assertEquals(Arrays.asList(""), dirigent.composeSplit(context, 4, 2, ""));
+    }
+
+    private static class Shout implements Component
+    {
+        private final String text;
+
+        private Shout(String text)
+        {
+            this.text = text;
+        }
+    }
 }
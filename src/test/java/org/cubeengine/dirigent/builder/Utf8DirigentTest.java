@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.builder;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Locale;
+import org.cubeengine.dirigent.MessageSource;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.formatter.IntegerFormatter;
+import org.cubeengine.dirigent.parser.EncodedText;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link Utf8Dirigent} and the {@link Utf8MessageBuilder}.
+ */
+public class Utf8DirigentTest
+{
+    private final Context context = createContext(Locale.GERMANY);
+    private Utf8Dirigent dirigent;
+
+    @Before
+    public void setUp()
+    {
+        dirigent = new Utf8Dirigent(new Utf8MessageBuilder(ByteBufferAllocator.DIRECT, 4));
+        dirigent.registerFormatter(new IntegerFormatter());
+        dirigent.setMessageSource(new MessageSource()
+        {
+            @Override
+            public String getMessage(String key)
+            {
+                return "Grüße {}, du hast {integer} Punkte! 🎉";
+            }
+        });
+    }
+
+    private static String decode(ByteBuffer buffer)
+    {
+        return Utf8Output.UTF_8.decode(buffer).toString();
+    }
+
+    @Test
+    public void testCompose()
+    {
+        final String[] inputs = {"plain", "äöü", "€", "😀", "broken \uD800 surrogate", ""};
+        for (String input : inputs)
+        {
+            final ByteBuffer buffer = dirigent.compose(context, "[{}] ", input);
+            Assert.assertTrue(buffer.isDirect());
+            Assert.assertEquals(0, buffer.position());
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            Assert.assertArrayEquals(("[" + input + "] ").getBytes(Utf8Output.UTF_8), bytes);
+        }
+    }
+
+    @Test
+    public void testComposeMessage()
+    {
+        Assert.assertTrue(dirigent.getMessageCatalog().getTemplate("key").get(0) instanceof EncodedText);
+        Assert.assertEquals("Grüße Steve, du hast 1.000 Punkte! 🎉",
+                            decode(dirigent.composeMessage(context, "key", "Steve", 1000)));
+    }
+
+    @Test
+    public void testComposeInto()
+    {
+        final ByteBuffer target = ByteBuffer.allocate(64);
+        target.put((byte)42);
+        final ByteBuffer result = dirigent.composeMessageInto(target, context, "key", "Alex", 7);
+        Assert.assertSame(target, result);
+        Assert.assertEquals(42, result.get());
+        Assert.assertEquals("Grüße Alex, du hast 7 Punkte! 🎉", decode(result));
+    }
+
+    @Test
+    public void testComposeIntoExactFit()
+    {
+        final String value = "0123456789012345678901234567890123456789";
+        final ByteBuffer target = ByteBuffer.allocate(64);
+        final ByteBuffer result = dirigent.composeInto(target, context, "{}", value);
+        Assert.assertSame(target, result);
+        Assert.assertEquals(value, decode(result));
+
+        final ByteBuffer exact = ByteBuffer.allocate(value.length() + 8);
+        Assert.assertSame(exact, dirigent.composeInto(exact, context, "{}: ä🎉", value));
+        Assert.assertEquals(exact.capacity(), exact.limit());
+    }
+
+    @Test
+    public void testComposeIntoGrows()
+    {
+        final ByteBuffer target = ByteBuffer.allocate(2);
+        final ByteBuffer result = dirigent.composeInto(target, context, "{} and {}", "Steve", "Alex");
+        Assert.assertNotSame(target, result);
+        Assert.assertEquals("Steve and Alex", decode(result));
+    }
+
+    @Test
+    public void testSurrogatePairsAcrossWrites()
+    {
+        final Utf8MessageBuilder builder = new Utf8MessageBuilder(ByteBufferAllocator.DIRECT, 4);
+        final Utf8Output output = builder.newBuilder();
+        for (char c : "a\uD83D\uDE00b\uD83C\uDF89".toCharArray())
+        {
+            output.write(String.valueOf(c));
+        }
+        output.write("\uD83D").write("c").write("\uD83D");
+        Assert.assertEquals("a\uD83D\uDE00b\uD83C\uDF89?c?", decode(builder.finalize(output, context)));
+
+        Assert.assertEquals("\uD83D\uDE00!", decode(dirigent.compose(context, "{}{}!", "\uD83D", "\uDE00")));
+    }
+
+    @Test
+    public void testUnresolvable()
+    {
+        Assert.assertEquals("{{unresolved: unknown}}",
+                            decode(dirigent.compose(context, "{unknown}", Collections.emptyList())));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link CachedDateFormat}.
+ */
+public class CachedDateFormatTest
+{
+    private static final long START = 1495725201000L;
+
+    @Test
+    public void testPatchesMilliseconds()
+    {
+        final CountingFormat format = new CountingFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        for (long millis = START - 1500; millis < START + 1500; millis += 7)
+        {
+            Assert.assertEquals(format.expected(millis), format.format(millis));
+        }
+        // three probes for the first second and a single render for the others
+        Assert.assertEquals(6, format.renders);
+    }
+
+    @Test
+    public void testChangingLayout()
+    {
+        // 09:59:59 to 10:00:00 in Berlin, the hour gets wider
+        final long start = 1495785599000L;
+        final CountingFormat format = new CountingFormat("H:mm:ss.SSS");
+        for (long millis = start - 1000; millis < start + 3000; millis += 7)
+        {
+            Assert.assertEquals(format.expected(millis), format.format(millis));
+        }
+        // three probes for the first second, a single render for the others and two probes at the change
+        Assert.assertEquals(3 + 3 + 2, format.renders);
+    }
+
+    @Test
+    public void testWithoutMilliseconds()
+    {
+        final CountingFormat format = new CountingFormat("EEEE, d. MMMM yyyy HH:mm:ss");
+        for (long millis = START; millis < START + 3000; millis++)
+        {
+            Assert.assertEquals(format.expected(millis), format.format(millis));
+        }
+        Assert.assertEquals(3 + 2, format.renders);
+    }
+
+    @Test
+    public void testUncacheablePatterns()
+    {
+        for (String pattern : new String[]{"HH:mm:ss.S", "SSSS", "ss.SS"})
+        {
+            final CountingFormat format = new CountingFormat(pattern);
+            for (long millis = START; millis < START + 2000; millis += 3)
+            {
+                Assert.assertEquals(pattern, format.expected(millis), format.format(millis));
+            }
+        }
+    }
+
+    @Test
+    public void testNegativeTimestamps()
+    {
+        final CountingFormat format = new CountingFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        for (long millis = -2500; millis < 500; millis += 13)
+        {
+            Assert.assertEquals(format.expected(millis), format.format(millis));
+        }
+    }
+
+    private static final class CountingFormat extends CachedDateFormat
+    {
+        private final SimpleDateFormat format;
+        private int renders;
+
+        private CountingFormat(String pattern)
+        {
+            this.format = new SimpleDateFormat(pattern, Locale.GERMANY);
+            this.format.setTimeZone(TimeZone.getTimeZone("Europe/Berlin"));
+        }
+
+        private String expected(long millis)
+        {
+            return format.format(new Date(millis));
+        }
+
+        @Override
+        protected String render(long millis)
+        {
+            renders++;
+            return format.format(new Date(millis));
+        }
+    }
+}
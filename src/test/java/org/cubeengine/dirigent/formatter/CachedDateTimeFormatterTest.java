@@ -0,0 +1,49 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.util.Date;
+import org.junit.Test;
+
+/**
+ * Tests the {@link DateTimeFormatter} caching the last formatted second.
+ */
+public class CachedDateTimeFormatterTest extends AbstractDateTimeFormatterTest
+{
+    public CachedDateTimeFormatterTest()
+    {
+        super(new DateTimeFormatter(DateTimeFormatter.Mode.DATE_TIME, true, "datetime"));
+    }
+
+    @Test
+    public void testFormat()
+    {
+        final Date date = createDate();
+        final long second = date.getTime() / 1000 * 1000;
+
+        checkFormat("2017-05-25 15:13:21.000", new Date(second), "yyyy-MM-dd HH:mm:ss.SSS");
+        checkFormat("2017-05-25 15:13:21.042", new Date(second + 42), "yyyy-MM-dd HH:mm:ss.SSS");
+        checkFormat("2017-05-25 15:13:22.999", new Date(second + 1999), "yyyy-MM-dd HH:mm:ss.SSS");
+        checkFormat("15:13:21", new Date(second + 500), "HH:mm:ss");
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.math.RoundingMode;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link CompiledNumberFormat} against the {@link DecimalFormat} it was compiled from.
+ */
+public class CompiledNumberFormatTest
+{
+    private static final long[] LONGS = {0, 1, -1, 7, 12, -12, 999, 1000, 12345, -12345, 1234567, 1234567890123L,
+        Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE / 100};
+
+    private static final double[] DOUBLES = {0.0, -0.0, 0.5, 1.5, 2.5, -2.5, 0.125, 0.375, 0.0005, 0.00049, 1e-7,
+        0.29, 0.42, 1.005, 2.675, 12345.6789, -0.001, -12345.12, 36.4567, 45.258, 123456789.987654321, 1e15, 1e20,
+        1.7976931348623157E308, Double.MIN_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    private static final String[] PATTERNS = {"#,###.0", ",000.0", "##%", "0.00", "#.##########", "000000",
+        "#,##0.###;(#,##0.###)", ".##", "#", "¤#,##0.00", "#,##0.0#‰"};
+
+    @Test
+    public void testLocaleFormats()
+    {
+        for (Locale locale : Locale.getAvailableLocales())
+        {
+            check(NumberFormat.getInstance(locale), true);
+            check(NumberFormat.getIntegerInstance(locale), true);
+            check(NumberFormat.getCurrencyInstance(locale), true);
+            check(NumberFormat.getPercentInstance(locale), true);
+        }
+    }
+
+    @Test
+    public void testPatterns()
+    {
+        for (String pattern : PATTERNS)
+        {
+            for (Locale locale : new Locale[]{Locale.US, Locale.GERMANY, Locale.FRANCE, new Locale("ar", "EG")})
+            {
+                check(new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(locale)), true);
+            }
+        }
+    }
+
+    @Test
+    public void testUnsupportedFormats()
+    {
+        check(new DecimalFormat("0.###E0"), false);
+        check(new DecimalFormat("##0.#####E0", DecimalFormatSymbols.getInstance(Locale.GERMANY)), false);
+        final DecimalFormat halfUp = new DecimalFormat("#,##0.##");
+        halfUp.setRoundingMode(RoundingMode.HALF_UP);
+        check(halfUp, false);
+    }
+
+    private static void check(NumberFormat format, boolean supported)
+    {
+        final CompiledNumberFormat compiled = CompiledNumberFormat.compile(format);
+        final String name = format instanceof DecimalFormat ? ((DecimalFormat)format).toPattern() : format.toString();
+
+        for (double number : samples())
+        {
+            final String actual = compiled.format(number);
+            if (supported)
+            {
+                Assert.assertNotNull(name + ": " + number, actual);
+                Assert.assertEquals(name + ": " + number, format.format(number), actual);
+            }
+            else
+            {
+                Assert.assertNull(name + ": " + number, actual);
+            }
+        }
+        for (long number : LONGS)
+        {
+            final String actual = compiled.format(number);
+            if (!supported)
+            {
+                Assert.assertNull(name + ": " + number, actual);
+                Assert.assertNull(name + ": " + number, compiled.format((Number)(int)number));
+                continue;
+            }
+            if (actual != null)
+            {
+                Assert.assertEquals(name + ": " + number, format.format(number), actual);
+            }
+            Assert.assertEquals(name + ": " + number, format.format((Object)(int)number),
+                                compiled.format((Number)(int)number));
+        }
+    }
+
+    private static List<Double> samples()
+    {
+        final List<Double> samples = new ArrayList<Double>();
+        for (double number : DOUBLES)
+        {
+            samples.add(number);
+        }
+        final Random random = new Random(42);
+        for (int i = 0; i < 50; i++)
+        {
+            samples.add((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(16) - 4));
+            samples.add((random.nextInt(200000) - 100000) / 1000d);
+            samples.add((random.nextInt(200000) - 100000) / 10000d);
+            samples.add((random.nextInt(2000) * 2 + 1) / 2000d);
+        }
+        return samples;
+    }
+}
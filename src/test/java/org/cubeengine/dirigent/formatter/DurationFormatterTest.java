@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import org.cubeengine.dirigent.builder.StringBuilderDirigent;
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.Text;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.TestHelper.toArgs;
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link DurationFormatter}.
+ */
+public class DurationFormatterTest
+{
+    private static final long NOW = 1500000000000L;
+    private static final long SECOND = 1000L;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private static final Arguments RELATIVE = toArgs(DurationFormatter.RELATIVE_STYLE);
+
+    private StringBuilderDirigent dirigent;
+
+    @Before
+    public void setUp()
+    {
+        dirigent = new StringBuilderDirigent();
+        dirigent.registerFormatter(new DurationFormatter()
+        {
+            @Override
+            protected long currentTimeMillis()
+            {
+                return NOW;
+            }
+        });
+    }
+
+    private String compose(Locale locale, String source, Object input)
+    {
+        return dirigent.compose(createContext(locale), source, input);
+    }
+
+    @Test
+    public void testDuration()
+    {
+        Assert.assertEquals("0 seconds", compose(Locale.ENGLISH, "{duration}", 999));
+        Assert.assertEquals("1 second", compose(Locale.ENGLISH, "{duration}", SECOND));
+        Assert.assertEquals("3 minutes", compose(Locale.ENGLISH, "{duration}", 3 * MINUTE + 59 * SECOND));
+        Assert.assertEquals("1 hour", compose(Locale.ENGLISH, "{duration}", HOUR + 5 * MINUTE));
+        Assert.assertEquals("1 hour 5 minutes", compose(Locale.ENGLISH, "{duration:precision=2}", HOUR + 5 * MINUTE));
+        Assert.assertEquals("2 days 5 minutes", compose(Locale.ENGLISH, "{duration:precision=3}", 2 * DAY + 5 * MINUTE));
+        Assert.assertEquals("-2 days", compose(Locale.ENGLISH, "{duration}", -2 * DAY));
+        Assert.assertEquals("3 Tage", compose(Locale.GERMAN, "{duration}", 3 * DAY));
+    }
+
+    @Test
+    public void testRelative()
+    {
+        Assert.assertEquals("3 minutes ago", compose(Locale.ENGLISH, "{duration}", new Date(NOW - 3 * MINUTE - 10)));
+        Assert.assertEquals("in 1 hour", compose(Locale.ENGLISH, "{duration}", new Date(NOW + HOUR)));
+        Assert.assertEquals("now", compose(Locale.ENGLISH, "{duration}", new Date(NOW - 500)));
+        Assert.assertEquals("vor 2 Tagen", compose(Locale.GERMAN, "{duration}", new Date(NOW - 2 * DAY)));
+        Assert.assertEquals("in 1 Tag", compose(Locale.GERMAN, "{duration}", new Date(NOW + DAY)));
+        Assert.assertEquals("il y a 1 minute", compose(Locale.FRENCH, "{duration}", new Date(NOW - MINUTE)));
+        Assert.assertEquals("hace 5 segundos", compose(new Locale("es"), "{duration}", new Date(NOW - 5 * SECOND)));
+        Assert.assertEquals("in 4 minutes", compose(Locale.ENGLISH, "{duration:relative}", 4 * MINUTE + 59 * SECOND));
+
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(NOW - 2 * HOUR);
+        Assert.assertEquals("2 hours ago", compose(Locale.ENGLISH, "{duration}", calendar));
+    }
+
+    @Test
+    public void testClock()
+    {
+        Assert.assertEquals("04:59", compose(Locale.ENGLISH, "{duration:clock}", 4 * MINUTE + 59 * SECOND + 999));
+        Assert.assertEquals("1:00:05", compose(Locale.ENGLISH, "{duration:clock}", HOUR + 5 * SECOND));
+        Assert.assertEquals("-00:10", compose(Locale.ENGLISH, "{duration:clock}", -10 * SECOND));
+    }
+
+    @Test
+    public void testBucketsAreShared()
+    {
+        final DurationFormatter formatter = new DurationFormatter();
+        final Context context = createContext(Locale.ENGLISH);
+        final Text first = (Text)formatter.format(-3 * MINUTE, context, RELATIVE);
+        final Text second = (Text)formatter.format(-3 * MINUTE - 30 * SECOND, context, RELATIVE);
+        Assert.assertEquals("3 minutes ago", first.getText());
+        Assert.assertSame(first.getText(), second.getText());
+    }
+}
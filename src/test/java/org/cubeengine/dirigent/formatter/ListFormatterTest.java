@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Locale;
+import org.cubeengine.dirigent.builder.StringBuilderDirigent;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link ListFormatter}.
+ */
+public class ListFormatterTest
+{
+    private StringBuilderDirigent dirigent;
+
+    @Before
+    public void setUp()
+    {
+        dirigent = new StringBuilderDirigent();
+        dirigent.registerFormatter(new ListFormatter(dirigent));
+        dirigent.registerFormatter(new IntegerFormatter());
+        dirigent.registerFormatter(new StringFormatter());
+    }
+
+    private String compose(String source, Object input)
+    {
+        return dirigent.compose(createContext(Locale.GERMANY), source, input);
+    }
+
+    @Test
+    public void testJoin()
+    {
+        Assert.assertEquals("", compose("{list}", Collections.emptyList()));
+        Assert.assertEquals("a", compose("{list}", Arrays.asList("a")));
+        Assert.assertEquals("a, b, c", compose("{list}", Arrays.asList("a", "b", "c")));
+        Assert.assertEquals("a; b and c", compose("{list:separator=; :last= and }", Arrays.asList("a", "b", "c")));
+    }
+
+    @Test
+    public void testElementFormatter()
+    {
+        Assert.assertEquals("1.000, 2.000", compose("{list:element=integer}", Arrays.asList(1000, 2000)));
+        Assert.assertEquals("A, B", compose("{list:element=string:uppercase}", Arrays.asList("a", "b")));
+        Assert.assertEquals("a, b", compose("{list:element=integer}", Arrays.asList("a", "b")));
+    }
+
+    @Test
+    public void testLimit()
+    {
+        Assert.assertEquals("a, b, c", compose("{list:limit=3}", Arrays.asList("a", "b", "c")));
+        Assert.assertEquals("a, b, ...", compose("{list:limit=2}", Arrays.asList("a", "b", "c")));
+        Assert.assertEquals("a, b and 2 more",
+                            compose("{list:limit=2:last= and :more=# more}", Arrays.asList("a", "b", "c", "d")));
+    }
+
+    @Test
+    public void testStopsAtLimit()
+    {
+        final int[] next = {0};
+        final Iterable<Integer> players = new Iterable<Integer>()
+        {
+            @Override
+            public Iterator<Integer> iterator()
+            {
+                return new Iterator<Integer>()
+                {
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return true;
+                    }
+
+                    @Override
+                    public Integer next()
+                    {
+                        return next[0]++;
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+
+        Assert.assertEquals("0, 1, 2, # more", compose("{list:limit=3:more=# more}", players));
+        Assert.assertEquals(3, next[0]);
+    }
+}
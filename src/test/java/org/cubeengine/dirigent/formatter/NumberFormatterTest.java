@@ -48,6 +48,9 @@ public class NumberFormatterTest
         checkFormat("36,5", 36.4567, Locale.GERMANY, NumberFormatter.FORMAT_PARAM_NAME, "#,###.0");
         checkFormat("036,5", 36.4567, Locale.GERMANY, NumberFormatter.FORMAT_PARAM_NAME, ",000.0");
         checkFormat("12%", 0.12, Locale.GERMANY, NumberFormatter.FORMAT_PARAM_NAME, "##%");
+        // not supported by the compiled format, formatted by the DecimalFormat
+        checkFormat("1,234E4", 12345, Locale.GERMANY, NumberFormatter.FORMAT_PARAM_NAME, "0.###E0");
+        checkFormat("3,646E1", 36.4567, Locale.GERMANY, NumberFormatter.FORMAT_PARAM_NAME, "0.###E0");
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -110,6 +113,17 @@ public class NumberFormatterTest
 
         Assert.assertTrue(component instanceof Text);
         Assert.assertEquals(expected, ((Text)component).getText());
+
+        final Component primitive;
+        if (number instanceof Double)
+        {
+            primitive = numberFormatter.processDouble(number.doubleValue(), context, args);
+        }
+        else
+        {
+            primitive = numberFormatter.processLong(number.longValue(), context, args);
+        }
+        Assert.assertEquals(component, primitive);
     }
 
     private Arguments args(final String paramName, final String paramValue)
@@ -0,0 +1,216 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import org.cubeengine.dirigent.builder.StringBuilderDirigent;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link PluralFormatter}.
+ */
+public class PluralFormatterTest
+{
+    private static final String SLAVIC = "{plural:one=# one:few=# few:many=# many:other=# other}";
+
+    private StringBuilderDirigent dirigent;
+
+    @Before
+    public void setUp()
+    {
+        dirigent = new StringBuilderDirigent();
+        dirigent.registerFormatter(new PluralFormatter());
+    }
+
+    private String compose(Locale locale, String source, Object input)
+    {
+        return dirigent.compose(createContext(locale), source, input);
+    }
+
+    @Test
+    public void testEnglish()
+    {
+        final String source = "{plural:one=# item:other=# items}";
+        Assert.assertEquals("0 items", compose(Locale.ENGLISH, source, 0));
+        Assert.assertEquals("1 item", compose(Locale.ENGLISH, source, 1));
+        Assert.assertEquals("2 items", compose(Locale.ENGLISH, source, 2L));
+        Assert.assertEquals("101 items", compose(Locale.ENGLISH, source, 101));
+        Assert.assertEquals("1.5 items", compose(Locale.ENGLISH, source, 1.5));
+        Assert.assertEquals("12,345 items", compose(Locale.ENGLISH, source, 12345));
+        Assert.assertEquals("12.345 items", compose(Locale.GERMANY, source, 12345));
+        Assert.assertEquals("1.234,5 items", compose(Locale.GERMANY, source, 1234.5));
+        Assert.assertEquals("1 item", compose(Locale.ENGLISH, source, 1.0));
+        Assert.assertEquals("1 item", compose(Locale.ENGLISH, source, new BigDecimal("1.00")));
+    }
+
+    @Test
+    public void testExactMatch()
+    {
+        final String source = "{choice:0=no items:one=an item:other=# items}";
+        Assert.assertEquals("no items", compose(Locale.ENGLISH, source, 0));
+        Assert.assertEquals("an item", compose(Locale.ENGLISH, source, 1));
+        Assert.assertEquals("3 items", compose(Locale.ENGLISH, source, 3));
+    }
+
+    @Test
+    public void testFallbackToOther()
+    {
+        Assert.assertEquals("1 things", compose(Locale.ENGLISH, "{plural:other=# things}", 1));
+        Assert.assertEquals("1 Dinge", compose(new Locale("ja"), "{plural:one=# Ding:other=# Dinge}", 1));
+    }
+
+    @Test
+    public void testFrench()
+    {
+        final String source = "{plural:one=# jour:other=# jours}";
+        Assert.assertEquals("0 jour", compose(Locale.FRENCH, source, 0));
+        Assert.assertEquals("1,5 jour", compose(Locale.FRENCH, source, 1.5));
+        Assert.assertEquals("2 jours", compose(Locale.FRENCH, source, 2));
+    }
+
+    @Test
+    public void testRussian()
+    {
+        final Locale locale = new Locale("ru");
+        Assert.assertEquals("1 one", compose(locale, SLAVIC, 1));
+        Assert.assertEquals("21 one", compose(locale, SLAVIC, 21));
+        Assert.assertEquals("11 many", compose(locale, SLAVIC, 11));
+        Assert.assertEquals("3 few", compose(locale, SLAVIC, 3));
+        Assert.assertEquals("112 many", compose(locale, SLAVIC, 112));
+        Assert.assertEquals("1\u00A0022 few", compose(locale, SLAVIC, 1022));
+        Assert.assertEquals("-5 many", compose(locale, SLAVIC, -5));
+    }
+
+    @Test
+    public void testPolish()
+    {
+        final Locale locale = new Locale("pl");
+        Assert.assertEquals("1 one", compose(locale, SLAVIC, 1));
+        Assert.assertEquals("21 many", compose(locale, SLAVIC, 21));
+        Assert.assertEquals("22 few", compose(locale, SLAVIC, 22));
+        Assert.assertEquals("101 many", compose(locale, SLAVIC, 101));
+    }
+
+    @Test
+    public void testCzech()
+    {
+        final Locale locale = new Locale("cs");
+        Assert.assertEquals("1 one", compose(locale, SLAVIC, 1));
+        Assert.assertEquals("4 few", compose(locale, SLAVIC, 4));
+        Assert.assertEquals("5 other", compose(locale, SLAVIC, 5));
+        Assert.assertEquals("1,5 many", compose(locale, SLAVIC, 1.5));
+    }
+
+    @Test
+    public void testRomanian()
+    {
+        final Locale locale = new Locale("ro");
+        final String source = "{plural:one=one:few=few:other=other}";
+        Assert.assertEquals("few", compose(locale, source, 0));
+        Assert.assertEquals("one", compose(locale, source, 1));
+        Assert.assertEquals("few", compose(locale, source, 2));
+        Assert.assertEquals("few", compose(locale, source, 19));
+        Assert.assertEquals("other", compose(locale, source, 20));
+        Assert.assertEquals("other", compose(locale, source, 100));
+        Assert.assertEquals("few", compose(locale, source, 101));
+        Assert.assertEquals("few", compose(locale, source, 219));
+        Assert.assertEquals("few", compose(locale, source, 1.5));
+    }
+
+    @Test
+    public void testMoreLanguages()
+    {
+        final String source = "{plural:zero=zero:one=one:two=two:few=few:many=many:other=other}";
+        final Locale croatian = new Locale("hr");
+        Assert.assertEquals("one", compose(croatian, source, 21));
+        Assert.assertEquals("few", compose(croatian, source, 22));
+        Assert.assertEquals("other", compose(croatian, source, 12));
+        Assert.assertEquals("other", compose(croatian, source, 25));
+        final Locale lithuanian = new Locale("lt");
+        Assert.assertEquals("one", compose(lithuanian, source, 21));
+        Assert.assertEquals("few", compose(lithuanian, source, 9));
+        Assert.assertEquals("other", compose(lithuanian, source, 11));
+        Assert.assertEquals("other", compose(lithuanian, source, 10));
+        final Locale latvian = new Locale("lv");
+        Assert.assertEquals("zero", compose(latvian, source, 10));
+        Assert.assertEquals("zero", compose(latvian, source, 111));
+        Assert.assertEquals("one", compose(latvian, source, 21));
+        Assert.assertEquals("other", compose(latvian, source, 2));
+        final Locale hebrew = new Locale("he");
+        Assert.assertEquals("one", compose(hebrew, source, 1));
+        Assert.assertEquals("two", compose(hebrew, source, 2));
+        Assert.assertEquals("other", compose(hebrew, source, 20));
+        final Locale slovenian = new Locale("sl");
+        Assert.assertEquals("one", compose(slovenian, source, 101));
+        Assert.assertEquals("two", compose(slovenian, source, 102));
+        Assert.assertEquals("few", compose(slovenian, source, 4));
+        Assert.assertEquals("other", compose(slovenian, source, 5));
+        final Locale welsh = new Locale("cy");
+        Assert.assertEquals("zero", compose(welsh, source, 0));
+        Assert.assertEquals("few", compose(welsh, source, 3));
+        Assert.assertEquals("many", compose(welsh, source, 6));
+        Assert.assertEquals("other", compose(welsh, source, 106));
+        final Locale irish = new Locale("ga");
+        Assert.assertEquals("two", compose(irish, source, 2));
+        Assert.assertEquals("few", compose(irish, source, 5));
+        Assert.assertEquals("many", compose(irish, source, 10));
+        Assert.assertEquals("other", compose(irish, source, 11));
+    }
+
+    @Test
+    public void testArabic()
+    {
+        final Locale locale = new Locale("ar");
+        final String source = "{plural:zero=zero:one=one:two=two:few=few:many=many:other=other}";
+        Assert.assertEquals("zero", compose(locale, source, 0));
+        Assert.assertEquals("one", compose(locale, source, 1));
+        Assert.assertEquals("two", compose(locale, source, 2));
+        Assert.assertEquals("few", compose(locale, source, 103));
+        Assert.assertEquals("many", compose(locale, source, 111));
+        Assert.assertEquals("other", compose(locale, source, 100));
+    }
+
+    @Test
+    public void testMissingOther()
+    {
+        Assert.assertEquals("1 item", compose(Locale.ENGLISH, "{plural:one=# item}", 1));
+        Assert.assertEquals("2", compose(Locale.ENGLISH, "{plural:one=# item}", 2));
+        Assert.assertEquals("1,000", compose(Locale.ENGLISH, "{plural:one=# item}", 1000));
+        Assert.assertEquals("2.5", compose(Locale.ENGLISH, "{plural:one=# item}", 2.5));
+    }
+
+    @Test
+    public void testRuleTables()
+    {
+        for (long n = 0; n < 1000; n++)
+        {
+            Assert.assertEquals(PluralRules.forLocale(new Locale("ru")).select(n),
+                                PluralRules.forLocale(new Locale("ru")).select(n + 100000));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.util.Arrays;
+import java.util.Locale;
+import org.cubeengine.dirigent.builder.StringBuilderDirigent;
+import org.cubeengine.dirigent.context.Context;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link SelectFormatter}.
+ */
+public class SelectFormatterTest
+{
+    private final Context context = createContext(Locale.GERMANY);
+    private StringBuilderDirigent dirigent;
+
+    private enum Status
+    {
+        ONLINE,
+        OFFLINE,
+        AWAY
+    }
+
+    @Before
+    public void setUp()
+    {
+        dirigent = new StringBuilderDirigent();
+        dirigent.registerFormatter(new SelectFormatter(dirigent));
+        dirigent.registerFormatter(new IntegerFormatter());
+        dirigent.registerFormatter(new ListFormatter(dirigent));
+    }
+
+    @Test
+    public void testEnum()
+    {
+        final String source = "{select:online=is online:offline=is offline:other=is somewhere}";
+        Assert.assertEquals("is online", dirigent.compose(context, source, Status.ONLINE));
+        Assert.assertEquals("is offline", dirigent.compose(context, source, Status.OFFLINE));
+        Assert.assertEquals("is somewhere", dirigent.compose(context, source, Status.AWAY));
+        Assert.assertEquals("is online", dirigent.compose(context, source, Status.ONLINE));
+    }
+
+    @Test
+    public void testValues()
+    {
+        Assert.assertEquals("yes", dirigent.compose(context, "{select:true=yes:false=no}", true));
+        Assert.assertEquals("no", dirigent.compose(context, "{select:true=yes:false=no}", false));
+        Assert.assertEquals("Madam", dirigent.compose(context, "{select:female=Madam:other=Sir}", "FEMALE"));
+        Assert.assertEquals("Sir", dirigent.compose(context, "{select:female=Madam:other=Sir}", "male"));
+        Assert.assertEquals("", dirigent.compose(context, "{select:female=:other=Sir}", "female"));
+    }
+
+    @Test
+    public void testNestedMacros()
+    {
+        final String source = "{0:select:online={1\\} is online with {2\\:integer\\} kills:other={1\\} is away}!";
+        Assert.assertEquals("Steve is online with 1.000 kills!",
+                            dirigent.compose(context, source, Status.ONLINE, "Steve", 1000));
+        Assert.assertEquals("Alex is away!", dirigent.compose(context, source, Status.OFFLINE, "Alex", 0));
+        Assert.assertEquals("Steve is online with 5 kills!",
+                            dirigent.compose(context, source, Status.ONLINE, "Steve", 5));
+    }
+
+    @Test
+    public void testOutsideOfAMessage()
+    {
+        Assert.assertEquals("[ONLINE], OFFLINE",
+                            dirigent.compose(context, "{list:element=select:online=[{\\}]:other={\\}}",
+                                             Arrays.asList(Status.ONLINE, Status.OFFLINE)));
+    }
+
+    @Test
+    public void testUnresolvableNestedMacros()
+    {
+        Assert.assertEquals("{{unresolved: unknown}}!",
+                            dirigent.compose(context, "{select:online={unknown\\}:other=off}!", Status.ONLINE));
+        Assert.assertEquals("{{unresolved: unknown}}, off",
+                            dirigent.compose(context, "{list:element=select:online={unknown\\}:other=off}",
+                                             Arrays.asList(Status.ONLINE, Status.OFFLINE)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingOther()
+    {
+        dirigent.compose(context, "{select:online=on}", Status.AWAY);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.formatter;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import org.cubeengine.dirigent.MessageSource;
+import org.cubeengine.dirigent.ResultCache;
+import org.cubeengine.dirigent.builder.StringBuilderDirigent;
+import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
+import org.cubeengine.dirigent.parser.component.ResolvedMacro;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Tests the {@link SelectivePostProcessor}s.
+ */
+public class SelectivePostProcessorTest
+{
+    private final Context context = createContext(Locale.US);
+    private StringBuilderDirigent dirigent;
+
+    @Before
+    public void setUp()
+    {
+        dirigent = new StringBuilderDirigent();
+        dirigent.registerFormatter(new IntegerFormatter());
+        dirigent.registerFormatter(new StringFormatter());
+    }
+
+    @Test
+    public void testMacroNamesAndComponentTypes()
+    {
+        final CountingProcessor integers = new CountingProcessor("#", false, ResolvedMacro.class, "integer");
+        final CountingProcessor texts = new CountingProcessor("'", false, Text.class);
+        dirigent.addPostProcessor(integers).addPostProcessor(texts);
+
+        Assert.assertEquals("'a '#1#' b 'x", dirigent.compose(context, "a {integer} b {string}", 1, "x"));
+        Assert.assertEquals(1, integers.calls);
+        Assert.assertEquals(2, texts.calls);
+    }
+
+    @Test
+    public void testPureLiteralsAreProcessedOnCompile()
+    {
+        final CountingProcessor pure = new CountingProcessor("*", true, Text.class);
+        final CountingProcessor impure = new CountingProcessor("_", false, Component.class);
+        final CountingProcessor pureAfterImpure = new CountingProcessor("~", true);
+        dirigent.addPostProcessor(pure).addPostProcessor(impure).addPostProcessor(pureAfterImpure);
+
+        for (int i = 0; i < 3; i++)
+        {
+            Assert.assertEquals("~_*a *_~~_x_~", dirigent.compose(context, "a {}", "x"));
+        }
+        Assert.assertEquals(1, pure.calls);
+        Assert.assertEquals(6, impure.calls);
+        Assert.assertEquals(6, pureAfterImpure.calls);
+
+        dirigent.setMessageSource(new MessageSource()
+        {
+            @Override
+            public String getMessage(String key)
+            {
+                return key + " {}";
+            }
+        });
+        for (int i = 0; i < 3; i++)
+        {
+            Assert.assertEquals("~_*b *_~~_x_~", dirigent.composeMessage(context, "b", "x"));
+        }
+        Assert.assertEquals(2, pure.calls);
+        dirigent.getMessageCatalog().invalidate("b");
+        dirigent.composeMessage(context, "b", "x");
+        Assert.assertEquals(3, pure.calls);
+    }
+
+    @Test
+    public void testFormatterPostProcessors()
+    {
+        final CountingProcessor groups = new CountingProcessor("!", true, ComponentGroup.class);
+        final IntegerFormatter formatter = new IntegerFormatter();
+        formatter.addPostProcessor(groups);
+        Assert.assertTrue(formatter.isPure());
+        dirigent.registerFormatter(formatter);
+        Assert.assertEquals("1", dirigent.compose(context, "{integer}", 1));
+        Assert.assertEquals(0, groups.calls);
+
+        formatter.addPostProcessor(new WrappingPostProcessor("(", ")"));
+        Assert.assertFalse(formatter.isPure());
+    }
+
+    @Test
+    public void testResultCacheWithPurePostProcessors()
+    {
+        final ResultCache<String> cache = new ResultCache<String>(100);
+        dirigent.setResultCache(cache);
+        dirigent.addPostProcessor(new CountingProcessor("*", true));
+        dirigent.compose(context, "a {integer}", 1);
+        dirigent.compose(context, "a {integer}", 1);
+        Assert.assertEquals(1, cache.getHitCount());
+
+        dirigent.addPostProcessor(new WrappingPostProcessor("(", ")"));
+        dirigent.compose(context, "a {integer}", 1);
+        dirigent.compose(context, "a {integer}", 1);
+        Assert.assertEquals(1, cache.getHitCount());
+    }
+
+    private static class CountingProcessor implements SelectivePostProcessor
+    {
+        private final String mark;
+        private final boolean pure;
+        private final Set<Class<? extends Component>> types;
+        private final Set<String> names;
+        private int calls = 0;
+
+        private CountingProcessor(String mark, boolean pure, Class<? extends Component> type, String... names)
+        {
+            this.mark = mark;
+            this.pure = pure;
+            this.types = Collections.<Class<? extends Component>>singleton(type);
+            this.names = new HashSet<String>();
+            Collections.addAll(this.names, names);
+        }
+
+        private CountingProcessor(String mark, boolean pure)
+        {
+            this.mark = mark;
+            this.pure = pure;
+            this.types = Collections.emptySet();
+            this.names = Collections.emptySet();
+        }
+
+        @Override
+        public Set<Class<? extends Component>> getComponentTypes()
+        {
+            return types;
+        }
+
+        @Override
+        public Set<String> getMacroNames()
+        {
+            return names;
+        }
+
+        @Override
+        public boolean isPure()
+        {
+            return pure;
+        }
+
+        @Override
+        public Component process(Component component, Context context, Arguments arguments)
+        {
+            calls++;
+            final Text mark = new Text(this.mark);
+            return new ComponentGroup(mark, component, mark);
+        }
+    }
+}
@@ -25,6 +25,7 @@ package org.cubeengine.dirigent.formatter;
 import java.util.Locale;
 import org.cubeengine.dirigent.parser.component.Component;
 import org.cubeengine.dirigent.context.Arguments;
+import org.cubeengine.dirigent.parser.CharSequenceText;
 import org.cubeengine.dirigent.parser.Text;
 import org.junit.Assert;
 import org.junit.Test;
@@ -48,6 +49,33 @@ public class StringFormatterTest
         checkFormat("SOMETHING", "someTHING", Locale.GERMANY, StringFormatter.UPPERCASE_FLAG);
     }
 
+    @Test
+    public void testSubClasses()
+    {
+        final StringFormatter custom = new StringFormatter()
+        {
+            @Override
+            protected String parseObjectToString(Object object, Locale locale, Arguments args)
+            {
+                return "<" + object + ">";
+            }
+        };
+        final Component component = custom.format("a", createContext(Locale.US), Arguments.NONE);
+        Assert.assertEquals("<a>", ((Text)component).getText());
+
+        Assert.assertTrue(
+            stringFormatter.format("a", createContext(Locale.US), Arguments.NONE) instanceof CharSequenceText);
+        final StringFormatter optIn = new StringFormatter()
+        {
+            @Override
+            protected boolean keepsCharSequences()
+            {
+                return true;
+            }
+        };
+        Assert.assertTrue(optIn.format("a", createContext(Locale.US), Arguments.NONE) instanceof CharSequenceText);
+    }
+
     private void checkFormat(final String expected, final Object object, final Locale locale, final String flag)
     {
         final Arguments arguments;
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.parser;
+
+import java.util.Locale;
+import org.cubeengine.dirigent.parser.CharSequenceText.CaseConversion;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link CharSequenceText} class.
+ */
+public class CharSequenceTextTest
+{
+    private static final String[] SAMPLES = {"", "Steve", "ILLUMINATI in Istanbul", "x_Y-z 123 {}", "Straße",
+        "ΟΔΟΣ", "İstanbul ıi", "Ǆemal"};
+
+    @Test
+    public void testMatchesStringConversion()
+    {
+        for (Locale locale : Locale.getAvailableLocales())
+        {
+            for (String sample : SAMPLES)
+            {
+                check(sample.toLowerCase(locale), sample, CaseConversion.LOWERCASE, locale);
+                check(sample.toUpperCase(locale), sample, CaseConversion.UPPERCASE, locale);
+                check(sample, sample, CaseConversion.NONE, locale);
+            }
+        }
+    }
+
+    @Test
+    public void testTurkishDotlessI()
+    {
+        final Locale turkish = new Locale("tr", "TR");
+        check("ılluminati", "Illuminati", CaseConversion.LOWERCASE, turkish);
+        check("İSTANBUL", "istanbul", CaseConversion.UPPERCASE, turkish);
+    }
+
+    @Test
+    public void testStreamsWithoutToString()
+    {
+        final CharSequence input = new CharSequence()
+        {
+            private final String text = "Steve";
+
+            @Override
+            public int length()
+            {
+                return text.length();
+            }
+
+            @Override
+            public char charAt(int index)
+            {
+                return text.charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end)
+            {
+                return text.subSequence(start, end);
+            }
+
+            @Override
+            public String toString()
+            {
+                throw new AssertionError("toString must not be called");
+            }
+        };
+
+        for (CaseConversion conversion : CaseConversion.values())
+        {
+            final StringBuilder builder = new StringBuilder();
+            new CharSequenceText(input, conversion, Locale.US).appendTo(builder);
+            Assert.assertEquals(conversion == CaseConversion.NONE ? "Steve" : conversion == CaseConversion.LOWERCASE
+                ? "steve" : "STEVE", builder.toString());
+        }
+    }
+
+    private static void check(String expected, String sample, CaseConversion conversion, Locale locale)
+    {
+        final CharSequenceText text = new CharSequenceText(new StringBuilder(sample), conversion, locale);
+        final StringBuilder builder = new StringBuilder("> ");
+        text.appendTo(builder);
+        Assert.assertEquals(locale + ": " + sample, "> " + expected, builder.toString());
+        Assert.assertEquals(locale + ": " + sample, expected, text.getText());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.parser;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.cubeengine.dirigent.TestHelper.arg;
+import static org.cubeengine.dirigent.TestHelper.elems;
+import static org.cubeengine.dirigent.TestHelper.named;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the {@link Escaper}.
+ */
+public class EscaperTest
+{
+    @Test
+    public void testUnchangedInputIsReturned()
+    {
+        final String s = "nothing to escape {here";
+        assertSame(s, Escaper.ARGUMENT_VALUE.escape(s));
+        assertSame(s, Escaper.PARAMETER_NAME.escape(s));
+        assertSame(s, Escaper.PARAMETER_VALUE.escape(s));
+        assertSame("", Escaper.ARGUMENT_VALUE.escape(""));
+    }
+
+    @Test
+    public void testEscape()
+    {
+        assertEquals("\\:\\=\\}", Escaper.ARGUMENT_VALUE.escape(":=}"));
+        assertEquals("a\\:b\\}c", Escaper.PARAMETER_NAME.escape("a:b}c"));
+        assertEquals("=\\:", Escaper.PARAMETER_VALUE.escape("=:"));
+    }
+
+    @Test
+    public void testAppendable() throws IOException
+    {
+        final StringWriter writer = new StringWriter();
+        Escaper.ARGUMENT_VALUE.escape("a:=}b{", writer);
+        Escaper.ARGUMENT_VALUE.escape(" plain", writer);
+        assertEquals("a\\:\\=\\}b{ plain", writer.toString());
+
+        assertEquals("x=\\}", Escaper.PARAMETER_VALUE.escape("=}", new StringBuilder("x")).toString());
+    }
+
+    @Test
+    public void testEscapeAll()
+    {
+        final StringBuilder out = new StringBuilder("{list:");
+        Escaper.ARGUMENT_VALUE.escapeAll(Arrays.asList("a:b", "c", "d}"), ":", out).append('}');
+        assertEquals("{list:a\\:b:c:d\\}}", out.toString());
+        assertEquals(elems(named("list", arg("a:b"), arg("c"), arg("d}"))), Parser.parse(out.toString()));
+
+        assertEquals("", Escaper.ARGUMENT_VALUE.escapeAll(Collections.<String>emptyList(), ":", new StringBuilder())
+                                               .toString());
+    }
+}
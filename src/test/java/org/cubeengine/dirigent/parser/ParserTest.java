@@ -22,6 +22,7 @@
  */
 package org.cubeengine.dirigent.parser;
 
+import org.cubeengine.dirigent.parser.element.PropertyPathMacro;
 import org.junit.Test;
 
 import static org.cubeengine.dirigent.TestHelper.*;
@@ -244,6 +245,27 @@ public class ParserTest
             parse("empty {name#:=arg} empty"));
     }
 
+    @Test
+    public void testPropertyPath()
+    {
+        assertEquals(elems(new PropertyPathMacro(0, "name")), parse("{0.name}"));
+        assertEquals(elems(new PropertyPathMacro(1, "stats.kills")), parse("{1.stats.kills}"));
+        assertEquals(
+            elems(complete(0, "number", arg(PATH_PARAM, "stats.kills"))),
+            parse("{0.stats.kills:number}"));
+        assertEquals(
+            elems(complete(0, "number", arg("#,##0"), arg(PATH_PARAM, "stats.kills"))),
+            parse("{0.stats.kills:number:#,##0}"));
+        assertEquals(
+            elems(named("player", arg(PATH_PARAM, "stats.kills"))),
+            parse("{player:@path=stats.kills}"));
+        assertEquals(elems(named("1a.b")), parse("{1a.b}"));
+
+        assertEquals(elems(txt("empty {0.} path")), parse("empty {0.} path"));
+        assertEquals(elems(txt("empty {0.:name} path")), parse("empty {0.:name} path"));
+        assertEquals(elems(txt("illegal macro {0.name")), parse("illegal macro {0.name"));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testNullMessage()
     {
@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.parser;
+
+import java.nio.charset.Charset;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link StyledText} and the {@link Style}s.
+ */
+public class StyledTextTest
+{
+    @Test
+    public void testBuilder()
+    {
+        final StyledText text = new StyledText.Builder().append("a", Style.BOLD).append("", Style.ITALIC).append("b",
+                                                                                                             Style.BOLD)
+                                                        .append("cde", 1, 3, Style.PLAIN).build();
+        Assert.assertEquals("abde", text.getText());
+        Assert.assertEquals(2, text.getRunCount());
+        Assert.assertEquals(0, text.getRunStart(0));
+        Assert.assertEquals(2, text.getRunEnd(0));
+        Assert.assertEquals(Style.BOLD, text.getRunStyle(0));
+        Assert.assertEquals(2, text.getRunStart(1));
+        Assert.assertEquals(4, text.getRunEnd(1));
+        Assert.assertEquals(Style.PLAIN, text.getRunStyle(1));
+
+        final StyledText nested = new StyledText.Builder().append(text, Style.color(12)).build();
+        Assert.assertEquals("abde", nested.getText());
+        Assert.assertEquals(Style.BOLD | Style.color(12), nested.getRunStyle(0));
+        Assert.assertEquals(Style.color(12), nested.getRunStyle(1));
+        Assert.assertEquals(nested, new StyledText.Builder().append(text, Style.color(12)).build());
+        Assert.assertFalse(nested.equals(text));
+    }
+
+    @Test
+    public void testEqualsIsSymmetric()
+    {
+        final Text text = new Text("ab");
+        final StyledText styled = StyledText.of("ab", Style.BOLD);
+        Assert.assertFalse(text.equals(styled));
+        Assert.assertFalse(styled.equals(text));
+        Assert.assertEquals(styled, StyledText.of("ab", Style.BOLD));
+        Assert.assertEquals(text, new EncodedText("ab", Charset.forName("UTF-8")));
+    }
+
+    @Test
+    public void testStyle()
+    {
+        Assert.assertEquals(-1, Style.getColor(Style.BOLD));
+        Assert.assertEquals(0, Style.getColor(Style.color(0)));
+        Assert.assertEquals(15, Style.getColor(Style.color(15) | Style.ITALIC));
+        Assert.assertTrue(Style.has(Style.BOLD | Style.ITALIC, Style.ITALIC));
+        Assert.assertFalse(Style.has(Style.BOLD, Style.ITALIC));
+
+        final int merged = Style.merge(Style.BOLD | Style.color(1), Style.ITALIC | Style.color(2));
+        Assert.assertTrue(Style.has(merged, Style.BOLD | Style.ITALIC));
+        Assert.assertEquals(2, Style.getColor(merged));
+        Assert.assertEquals(1, Style.getColor(Style.merge(Style.color(1), Style.UNDERLINED)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidColor()
+    {
+        Style.color(16);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.perf;
+
+import org.cubeengine.dirigent.parser.Escaper;
+
+/**
+ * Compares the single pass {@link Escaper} with the previous implementation, which chained three
+ * {@link String#replace(CharSequence, CharSequence)} calls.
+ */
+public class EscapeBenchmark
+{
+    private static final int ITERATIONS = 5000000;
+
+    public static void main(String[] args)
+    {
+        String[] inputs = {"just a plain chat message without any special characters",
+                           "a chat message: with a colon and a brace } in it", "=:}"};
+        for (int round = 0; round < 5; round++)
+        {
+            for (String input : inputs)
+            {
+                System.out.println("Input: " + input);
+                System.out.println("  replace: " + measureReplace(input) + "ns");
+                System.out.println("  escaper: " + measureEscaper(input) + "ns");
+                System.out.println("  builder: " + measureBuilder(input) + "ns");
+            }
+        }
+    }
+
+    private static double measureReplace(String input)
+    {
+        long length = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            length += input.replace(":", "\\:").replace("=", "\\=").replace("}", "\\}").length();
+        }
+        return result(start, length);
+    }
+
+    private static double measureEscaper(String input)
+    {
+        long length = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            length += Escaper.ARGUMENT_VALUE.escape(input).length();
+        }
+        return result(start, length);
+    }
+
+    private static double measureBuilder(String input)
+    {
+        long length = 0;
+        StringBuilder builder = new StringBuilder();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            builder.setLength(0);
+            length += Escaper.ARGUMENT_VALUE.escape(input, builder).length();
+        }
+        return result(start, length);
+    }
+
+    private static double result(long start, long length)
+    {
+        double perCall = (System.nanoTime() - start) / (double)ITERATIONS;
+        if (length == 0)
+        {
+            // keeps the results alive
+            System.out.println("empty");
+        }
+        return perCall;
+    }
+}
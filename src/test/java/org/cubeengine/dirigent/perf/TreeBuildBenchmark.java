@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ * Copyright © 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.cubeengine.dirigent.perf;
+
+import java.util.Locale;
+import org.cubeengine.dirigent.builder.StringMessageBuilder;
+import org.cubeengine.dirigent.context.Context;
+import org.cubeengine.dirigent.parser.Text;
+import org.cubeengine.dirigent.parser.component.Component;
+import org.cubeengine.dirigent.parser.component.ComponentGroup;
+
+import static org.cubeengine.dirigent.context.Contexts.createContext;
+
+/**
+ * Compares the recursive and the iterative traversal of the {@link StringMessageBuilder} for deep and for wide
+ * component trees.
+ */
+public class TreeBuildBenchmark
+{
+    private static final int ITERATIONS = 20000;
+
+    public static void main(String[] args)
+    {
+        final Context context = createContext(Locale.US);
+        final StringMessageBuilder recursive = new StringMessageBuilder();
+        final StringMessageBuilder iterative = new StringMessageBuilder();
+        iterative.setIterative(true);
+
+        Component deep = new Text("x");
+        for (int i = 0; i < 500; i++)
+        {
+            deep = new ComponentGroup(new Text("("), deep, new Text(")"));
+        }
+        final Component[] texts = new Component[10000];
+        for (int i = 0; i < texts.length; i++)
+        {
+            texts[i] = new Text("y");
+        }
+        final ComponentGroup wide = new ComponentGroup(texts);
+
+        for (int round = 0; round < 5; round++)
+        {
+            System.out.println("Deep (500 levels):");
+            System.out.println("  recursive: " + measure(recursive, new ComponentGroup(deep), context) + "ns");
+            System.out.println("  iterative: " + measure(iterative, new ComponentGroup(deep), context) + "ns");
+            System.out.println("Wide (10000 texts):");
+            System.out.println("  recursive: " + measure(recursive, wide, context) + "ns");
+            System.out.println("  iterative: " + measure(iterative, wide, context) + "ns");
+        }
+    }
+
+    private static double measure(StringMessageBuilder messageBuilder, ComponentGroup group, Context context)
+    {
+        long length = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            StringBuilder builder = messageBuilder.newBuilder();
+            messageBuilder.buildGroup(group, builder, context);
+            length += messageBuilder.finalize(builder, context).length();
+        }
+        double perCall = (System.nanoTime() - start) / (double)ITERATIONS;
+        if (length == 0)
+        {
+            // keeps the results alive
+            System.out.println("empty");
+        }
+        return perCall;
+    }
+}